@@ -14,7 +14,6 @@ import nl.gogognome.gogoaccount.component.ledger.LedgerService;
 import nl.gogognome.gogoaccount.component.ledger.PaymentAmountAgainstDebtorAndCreditorValidator;
 import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.component.settings.SettingsService;
-import nl.gogognome.gogoaccount.component.text.KeyValueReplacer;
 import nl.gogognome.gogoaccount.gui.DocumentRegistry;
 import nl.gogognome.gogoaccount.gui.MainFrame;
 import nl.gogognome.gogoaccount.gui.TextResourceRegistry;
@@ -28,7 +27,9 @@ import nl.gogognome.gogoaccount.gui.views.*;
 import nl.gogognome.gogoaccount.reportgenerators.InvoicesToModelConverter;
 import nl.gogognome.gogoaccount.reportgenerators.ReportToModelConverter;
 import nl.gogognome.gogoaccount.services.BookkeepingService;
+import nl.gogognome.gogoaccount.services.ReportCache;
 import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
 import nl.gogognome.lib.text.AmountFormat;
 import nl.gogognome.lib.text.TextResource;
 import org.springframework.beans.factory.BeanFactory;
@@ -39,6 +40,7 @@ import org.springframework.core.io.ResourceLoader;
 
 import java.util.Currency;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class BeanConfiguration {
@@ -50,6 +52,9 @@ public class BeanConfiguration {
 			BookkeepingService bookkeepingService,
 			DocumentService documentService,
 			ConfigurationService configurationService,
+			LedgerService ledgerService,
+			InvoiceService invoiceService,
+			PartyService partyService,
 			ViewFactory viewFactory,
 			ControllerFactory controllerFactory,
 			DocumentRegistry documentRegistry,
@@ -59,6 +64,9 @@ public class BeanConfiguration {
 				bookkeepingService,
 				documentService,
 				configurationService,
+				ledgerService,
+				invoiceService,
+				partyService,
 				viewFactory,
 				controllerFactory,
 				documentRegistry,
@@ -240,8 +248,10 @@ public class BeanConfiguration {
 	@Scope("prototype")
 	public ExportPdfsInvoicesView exportPdfsInvoicesView(DocumentWrapper documentWrapper, InvoiceService invoiceService,
 														 InvoicePreviewTemplate invoicePreviewTemplate,
-														 SettingsService settingsService, PdfGenerator pdfGenerator) {
-		return new ExportPdfsInvoicesView(documentWrapper.document, invoiceService, invoicePreviewTemplate, settingsService, pdfGenerator);
+														 SettingsService settingsService, PdfGenerator pdfGenerator,
+														 ExecutorService executorService) {
+		return new ExportPdfsInvoicesView(documentWrapper.document, invoiceService, invoicePreviewTemplate, settingsService, pdfGenerator,
+				executorService);
 	}
 
 	@Bean
@@ -302,9 +312,9 @@ public class BeanConfiguration {
 
 	@Bean
 	@Scope("prototype")
-	public PartiesView partiesView(DocumentWrapper documentWrapper, DirectDebitService directDebitService,
-								   PartyService partyService, ViewFactory viewFactory) {
-		return new PartiesView(documentWrapper.document, directDebitService, partyService, viewFactory);
+	public PartiesView partiesView(DocumentWrapper documentWrapper, ConfigurationService configurationService,
+								   DirectDebitService directDebitService, PartyService partyService, ViewFactory viewFactory) {
+		return new PartiesView(documentWrapper.document, configurationService, directDebitService, partyService, viewFactory);
 	}
 
 	@Bean
@@ -344,9 +354,11 @@ public class BeanConfiguration {
 															 TextResourceWrapper textResourceWrapper, BookkeepingService bookkeepingService,
 															 ConfigurationService configurationService, InvoiceService invoiceService,
 															 LedgerService ledgerService, PartyService partyService,
-															 ReportToModelConverter reportToModelConverter, ViewFactory viewFactory) {
+															 ReportToModelConverter reportToModelConverter, ViewFactory viewFactory,
+															 ExecutorService executorService) {
 		return new GenerateReportController(documentWrapper.document, amountFormatWrapper.amountFormat, getResource(textResourceWrapper),
-				bookkeepingService, configurationService, invoiceService, ledgerService, partyService, reportToModelConverter, viewFactory);
+				bookkeepingService, configurationService, invoiceService, ledgerService, partyService, reportToModelConverter, viewFactory,
+				executorService);
 	}
 
 	@Bean
@@ -368,8 +380,24 @@ public class BeanConfiguration {
 	@Scope("prototype")
 	public BookkeepingService bookkeepingService(DirectDebitService directDebitService, LedgerService ledgerService,
 												 ConfigurationService configurationService,
-												 DocumentService documentService, InvoiceService invoiceService, PartyService partyService) {
-		return new BookkeepingService(directDebitService, ledgerService, configurationService, documentService, invoiceService, partyService);
+												 DocumentService documentService, InvoiceService invoiceService, PartyService partyService,
+												 ReportCache reportCache, ExecutorService executorService) {
+		return new BookkeepingService(directDebitService, ledgerService, configurationService, documentService, invoiceService, partyService,
+				reportCache, executorService);
+	}
+
+	@Bean
+	public ReportCache reportCache() {
+		return new ReportCache();
+	}
+
+	/**
+	 * The executor for all work that is done in parallel, like creating reports and exporting invoices.
+	 * It has one thread per processor, however many reports or exports run at the same time.
+	 */
+	@Bean(destroyMethod = "shutdownNow")
+	public ExecutorService executorService() {
+		return ParallelTasks.newExecutorService(Runtime.getRuntime().availableProcessors());
 	}
 
 	@Bean
@@ -440,9 +468,8 @@ public class BeanConfiguration {
 
 	@Bean
 	@Scope("prototype")
-	public InvoicePreviewTemplate invoicePreviewTemplate(AmountFormatWrapper amountFormatWrapper, KeyValueReplacer keyValueReplacer,
-														 TextResourceWrapper textResourceWrapper) {
-		return new InvoicePreviewTemplate(amountFormatWrapper.amountFormat, keyValueReplacer, getResource(textResourceWrapper));
+	public InvoicePreviewTemplate invoicePreviewTemplate(AmountFormatWrapper amountFormatWrapper, TextResourceWrapper textResourceWrapper) {
+		return new InvoicePreviewTemplate(amountFormatWrapper.amountFormat, getResource(textResourceWrapper));
 	}
 
 	@Bean
@@ -467,11 +494,6 @@ public class BeanConfiguration {
 		return textResourceWrapper.textResource;
 	}
 
-	@Bean
-	public KeyValueReplacer variableReplacer() {
-		return new KeyValueReplacer();
-	}
-
 	@Bean
 	public PdfGenerator pdfGenerator() {
 		return new PdfGenerator();
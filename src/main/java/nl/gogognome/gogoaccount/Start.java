@@ -1,9 +1,17 @@
 package nl.gogognome.gogoaccount;
 
 import nl.gogognome.dataaccess.transaction.CurrentTransaction;
+import nl.gogognome.gogoaccount.businessobjects.ReportType;
+import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.document.DocumentAwareTransaction;
+import nl.gogognome.gogoaccount.component.document.DocumentService;
+import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
+import nl.gogognome.gogoaccount.component.ledger.LedgerService;
+import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.gui.MainFrame;
 import nl.gogognome.gogoaccount.gui.TextResourceRegistry;
+import nl.gogognome.gogoaccount.reportgenerators.BatchReportRunner;
+import nl.gogognome.gogoaccount.services.BookkeepingService;
 import nl.gogognome.lib.gui.beans.BeanFactory;
 import nl.gogognome.lib.swing.MessageDialog;
 import nl.gogognome.lib.swing.SwingUtils;
@@ -24,8 +32,9 @@ import javax.swing.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
-import java.util.Currency;
-import java.util.Locale;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Starts gogo account with the graphical user interface.
@@ -44,6 +53,8 @@ public class Start {
      *        Further, if the argument <tt>-lang=X</tt> is used, then
      *        the language is set to </tt>X</tt>. </tt>X</tt> should be a valid
      *        ISO 639 language code.
+     *        If the argument <tt>--batch</tt> is used, then no user interface is shown. Instead reports are
+     *        generated for all bookkeeping files passed as arguments. See {@link #runBatch}.
      */
     public static void main(String[] args) {
         Start start = new Start();
@@ -55,6 +66,10 @@ public class Start {
         initFactory(Locale.getDefault());
         SimpleCommandLinePropertySource commandLinePropertySource = new SimpleCommandLinePropertySource(args);
         parseArguments(commandLinePropertySource);
+        if (commandLinePropertySource.containsProperty("batch")) {
+            runBatch(args, commandLinePropertySource);
+            return;
+        }
         DefaultLookAndFeel.useDefaultLookAndFeel();
         logger.debug("Locale: " + Locale.getDefault());
 
@@ -78,6 +93,58 @@ public class Start {
         waitForFrameToClose();
     }
 
+    /**
+     * Generates reports for many bookkeeping files without user interface, using a single application context.
+     * Supported options:
+     * <ul>
+     *     <li><tt>--types=PLAIN_TEXT,ODT_DOCUMENT</tt> the report types; the default is <tt>PLAIN_TEXT</tt></li>
+     *     <li><tt>--date=yyyy-MM-dd</tt> the date of the reports; the default is today</li>
+     *     <li><tt>--template=file</tt> the template for ODT reports</li>
+     *     <li><tt>--output=directory</tt> the directory for the reports; the default is the current directory</li>
+     * </ul>
+     * A summary is logged when all files have been processed. The exit code is 0 if all reports were generated.
+     */
+    private void runBatch(String[] args, CommandLinePropertySource<?> commandLinePropertySource) {
+        ConfigurableApplicationContext ctx = new SpringApplicationBuilder(Start.class).headless(true).web(WebApplicationType.NONE).run(args);
+        int exitCode;
+        try {
+            TextResource textResource = Factory.getInstance(TextResource.class);
+            ctx.getBean(TextResourceRegistry.class).register(textResource);
+            BatchReportRunner batchReportRunner = new BatchReportRunner(textResource, ctx.getBean(DocumentService.class),
+                    ctx.getBean(BookkeepingService.class), ctx.getBean(ConfigurationService.class), ctx.getBean(InvoiceService.class),
+                    ctx.getBean(LedgerService.class), ctx.getBean(PartyService.class), ctx.getBean(ExecutorService.class));
+
+            List<File> bookkeepingFiles = new ArrayList<>();
+            if (commandLinePropertySource.containsProperty("nonOptionArgs")) {
+                for (String name : commandLinePropertySource.getProperty("nonOptionArgs").split(",")) {
+                    bookkeepingFiles.add(new File(name));
+                }
+            }
+            List<ReportType> reportTypes = Arrays.stream(getProperty(commandLinePropertySource, "types", "PLAIN_TEXT").split(","))
+                    .map(type -> ReportType.valueOf(type.trim()))
+                    .toList();
+            String dateString = getProperty(commandLinePropertySource, "date", null);
+            Date date = dateString != null ? new SimpleDateFormat("yyyy-MM-dd").parse(dateString) : new Date();
+            String templateName = getProperty(commandLinePropertySource, "template", null);
+            File templateFile = templateName != null ? new File(templateName) : null;
+            File outputDirectory = new File(getProperty(commandLinePropertySource, "output", "."));
+
+            BatchReportRunner.Summary summary = batchReportRunner.run(bookkeepingFiles, reportTypes, date, templateFile, outputDirectory);
+            logger.info(summary.toString());
+            exitCode = summary.getNrFailures() == 0 ? 0 : 1;
+        } catch (Exception e) {
+            logger.error("Batch run failed", e);
+            exitCode = 2;
+        } finally {
+            ctx.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private String getProperty(CommandLinePropertySource<?> commandLinePropertySource, String name, String defaultValue) {
+        return commandLinePropertySource.containsProperty(name) ? commandLinePropertySource.getProperty(name) : defaultValue;
+    }
+
     private void waitForFrameToClose() {
         try {
             synchronized (lock) {
@@ -0,0 +1,107 @@
+package nl.gogognome.gogoaccount.businessobjects;
+
+import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.lib.text.Amount;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Contains the balance sheets and income statements of a number of years side by side. Each year is a column.
+ * Accounts are matched by id. The amount of an account is null for a year whose bookkeeping does not contain
+ * the account.
+ */
+public class MultiYearComparison {
+
+    public static class Row {
+        private final Account account;
+        private final List<Amount> amounts;
+
+        private Row(Account account, List<Amount> amounts) {
+            this.account = account;
+            this.amounts = amounts;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        public List<Amount> getAmounts() {
+            return amounts;
+        }
+    }
+
+    private final List<String> descriptions;
+    private final List<Date> endDates;
+    private final List<Row> assets;
+    private final List<Row> liabilities;
+    private final List<Row> expenses;
+    private final List<Row> revenues;
+    private final List<Amount> resultsOfOperations;
+
+    /**
+     * Constructor.
+     * @param descriptions the descriptions of the bookkeepings, ordered by year
+     * @param reports the reports at the end of each year, in the same order as the descriptions
+     */
+    public MultiYearComparison(List<String> descriptions, List<Report> reports) {
+        this.descriptions = descriptions;
+        endDates = reports.stream().map(Report::getEndDate).toList();
+        assets = mergeAccounts(reports, Report::getAssets);
+        liabilities = mergeAccounts(reports, Report::getLiabilities);
+        expenses = mergeAccounts(reports, Report::getExpenses);
+        revenues = mergeAccounts(reports, Report::getRevenues);
+        resultsOfOperations = reports.stream().map(Report::getResultOfOperations).toList();
+    }
+
+    /**
+     * Merges the accounts of all reports. The accounts are ordered as in the most recent report that contains
+     * them; accounts that only occur in older reports come last.
+     */
+    private static List<Row> mergeAccounts(List<Report> reports, Function<Report, List<Account>> accountsOfReport) {
+        Map<String, Account> idToAccount = new LinkedHashMap<>();
+        for (int i=reports.size()-1; i>=0; i--) {
+            for (Account account : accountsOfReport.apply(reports.get(i))) {
+                idToAccount.putIfAbsent(account.getId(), account);
+            }
+        }
+
+        List<Row> rows = new ArrayList<>(idToAccount.size());
+        for (Account account : idToAccount.values()) {
+            List<Amount> amounts = new ArrayList<>(reports.size());
+            for (Report report : reports) {
+                amounts.add(accountsOfReport.apply(report).contains(account) ? report.getAmount(account) : null);
+            }
+            rows.add(new Row(account, amounts));
+        }
+        return rows;
+    }
+
+    public List<String> getDescriptions() {
+        return descriptions;
+    }
+
+    public List<Date> getEndDates() {
+        return endDates;
+    }
+
+    public List<Row> getAssets() {
+        return assets;
+    }
+
+    public List<Row> getLiabilities() {
+        return liabilities;
+    }
+
+    public List<Row> getExpenses() {
+        return expenses;
+    }
+
+    public List<Row> getRevenues() {
+        return revenues;
+    }
+
+    public List<Amount> getResultsOfOperations() {
+        return resultsOfOperations;
+    }
+}
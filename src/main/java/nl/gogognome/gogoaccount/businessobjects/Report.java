@@ -5,6 +5,7 @@ import nl.gogognome.gogoaccount.component.configuration.AccountType;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
 import nl.gogognome.gogoaccount.component.party.Party;
 import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.AmountAccumulator;
 import nl.gogognome.lib.text.TextResource;
 import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.lib.util.Factory;
@@ -20,6 +21,9 @@ import java.util.*;
  *   <li>all mutations of all accounts</li>
  *   <li>the debtors and creditors that have open invoices</li>
  * </ul>
+ *
+ * <p>A report is built by {@link ReportBuilder} or {@link ReportSeriesBuilder} and is not changed after that.
+ * Reports are shared by multiple views, so the lists returned by the getters are read-only.</p>
  */
 public class Report {
 
@@ -63,11 +67,11 @@ public class Report {
 
     private final TextResource textResource = Factory.getInstance(TextResource.class);
 
-    public Report() {
+    Report() {
         super();
     }
 
-    public void setEndDate(Date endDate) {
+    void setEndDate(Date endDate) {
         this.endDate = endDate;
     }
 
@@ -76,7 +80,7 @@ public class Report {
     }
 
     public List<Account> getAssets() {
-        return assets;
+        return Collections.unmodifiableList(assets);
     }
 
     public List<Account> getAssetsInclLossAccount() {
@@ -94,7 +98,7 @@ public class Report {
     }
 
     public List<Account> getLiabilities() {
-        return liabilities;
+        return Collections.unmodifiableList(liabilities);
     }
 
     public List<Account> getLiabilitiesInclProfitAccount() {
@@ -112,7 +116,7 @@ public class Report {
     }
 
     public List<Account> getExpenses() {
-        return expenses;
+        return Collections.unmodifiableList(expenses);
     }
 
     void setExpenses(List<Account> expenses) {
@@ -120,7 +124,7 @@ public class Report {
     }
 
     public List<Account> getRevenues() {
-        return revenues;
+        return Collections.unmodifiableList(revenues);
     }
 
     void setRevenues(List<Account> revenues) {
@@ -148,16 +152,20 @@ public class Report {
     }
 
     void addLedgerLineForAccount(Account account, LedgerLine line) {
-        getLedgerLinesForAccount(account).add(line);
+        accountToLedgerLines.computeIfAbsent(account, k -> new ArrayList<>()).add(line);
     }
 
     public List<LedgerLine> getLedgerLinesForAccount(Account account) {
-        return accountToLedgerLines.computeIfAbsent(account, k -> new ArrayList<>());
+        return Collections.unmodifiableList(accountToLedgerLines.getOrDefault(account, Collections.emptyList()));
     }
 
     void addInvoice(Invoice invoice) {
+        addInvoice(invoice, invoice.getAmountToBePaid());
+    }
+
+    void addInvoice(Invoice invoice, Amount remainingAmount) {
         invoices.add(invoice);
-        invoiceToRemainingAmount.put(invoice, invoice.getAmountToBePaid());
+        invoiceToRemainingAmount.put(invoice, remainingAmount);
     }
 
     void addPayment(Invoice invoice, Amount amount) {
@@ -201,6 +209,18 @@ public class Report {
         }
     }
 
+    void determineBalanceForDebtorsAndCreditors(Map<String, Party> idToParty) {
+        for (Invoice invoice : invoices) {
+            Party party = idToParty.get(invoice.getPartyId());
+            Amount amount = getRemainingAmountForInvoice(invoice);
+            if (amount.isPositive()) {
+                setBalanceForDebtor(party, getBalanceForDebtor(party).add(amount));
+            } else if (amount.isNegative()) {
+                setBalanceForCreditor(party, getBalanceForCreditor(party).subtract(amount));
+            }
+        }
+    }
+
     public Amount getRemainingAmountForInvoice(Invoice invoice) {
         Amount amount = invoiceToRemainingAmount.get(invoice);
         if (amount == null) {
@@ -210,7 +230,7 @@ public class Report {
     }
 
     public List<Invoice> getInvoices() {
-        return invoices;
+        return Collections.unmodifiableList(invoices);
     }
 
     public Amount getBalanceForDebtor(Party debtor) {
@@ -274,11 +294,11 @@ public class Report {
     }
 
     public Amount getTotalOfAccounts(List<Account> accounts) {
-        Amount total = Amount.ZERO;
+        AmountAccumulator total = new AmountAccumulator();
         for (Account a : accounts) {
-            total = total.add(getAmount(a));
+            total.add(getAmount(a));
         }
-        return total;
+        return total.toAmount();
     }
 
     public boolean totalDebitAccountsDiffersFromTotalDebtors() {
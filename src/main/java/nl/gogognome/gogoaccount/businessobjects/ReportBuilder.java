@@ -3,17 +3,13 @@ package nl.gogognome.gogoaccount.businessobjects;
 import nl.gogognome.gogoaccount.businessobjects.Report.LedgerLine;
 import nl.gogognome.gogoaccount.component.configuration.Account;
 import nl.gogognome.gogoaccount.component.configuration.Bookkeeping;
-import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
-import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
-import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
-import nl.gogognome.gogoaccount.component.invoice.Payment;
 import nl.gogognome.gogoaccount.component.ledger.JournalEntry;
 import nl.gogognome.gogoaccount.component.ledger.JournalEntryDetail;
+import nl.gogognome.gogoaccount.component.ledger.LedgerSnapshot;
 import nl.gogognome.gogoaccount.component.party.Party;
-import nl.gogognome.gogoaccount.component.party.PartyService;
-import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.AmountAccumulator;
 import nl.gogognome.lib.text.TextResource;
 import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.lib.util.Factory;
@@ -25,60 +21,79 @@ import java.util.Map;
 
 import static java.util.stream.Collectors.toMap;
 
+/**
+ * Builds a report from journal entries and invoices. All accounts, invoices and parties are passed to the builder
+ * up front, so building a report does not query the database. The totals of the accounts can be taken from
+ * a ledger snapshot instead of from the journal entries.
+ */
 public class ReportBuilder {
 
-    private final ConfigurationService configurationService;
-    private final InvoiceService invoiceService;
-    private final PartyService partyService;
-
-    private final Document document;
     private final Bookkeeping bookkeeping;
+    private final ReportProfile profile;
     private Report report;
 
+    private final List<Account> accounts;
     private final Map<String, Account> idToAccount;
-    private final Map<Account, Amount> accountToTotalDebet = new HashMap<>();
-    private final Map<Account, Amount> accountToTotalCredit = new HashMap<>();
+    private final Map<String, Invoice> idToInvoice;
+    private final Map<String, Party> idToParty;
+    private final Map<Account, AmountAccumulator> accountToAmount = new HashMap<>();
+    private final Map<Account, AmountAccumulator> accountToTotalDebet = new HashMap<>();
+    private final Map<Account, AmountAccumulator> accountToTotalCredit = new HashMap<>();
     private final Map<Account, Amount> accountToStartDebet = new HashMap<>();
     private final Map<Account, Amount> accountToStartCredit = new HashMap<>();
+    private boolean totalsTakenFromSnapshot;
+    private Account ledgerAccount;
 
     private final TextResource textResource = Factory.getInstance(TextResource.class);
 
-    public ReportBuilder(Document document, ConfigurationService configurationService, InvoiceService invoiceService,
-                         PartyService partyService) throws ServiceException {
-        this.document = document;
-        this.configurationService = configurationService;
-        this.invoiceService = invoiceService;
-        this.partyService = partyService;
-        idToAccount = this.configurationService.findAllAccounts(document).stream().collect(toMap(a -> a.getId(), a -> a));
-        bookkeeping = configurationService.getBookkeeping(document);
+    /**
+     * Constructor for a builder that builds all parts of the report.
+     * @param bookkeeping the bookkeeping
+     * @param accounts all accounts of the bookkeeping
+     * @param invoices all invoices of the bookkeeping
+     * @param parties all parties of the bookkeeping
+     */
+    public ReportBuilder(Bookkeeping bookkeeping, List<Account> accounts, List<Invoice> invoices, List<Party> parties) {
+        this(bookkeeping, ReportProfile.FULL, accounts, invoices, parties);
+    }
+
+    /**
+     * Constructor.
+     * @param bookkeeping the bookkeeping
+     * @param profile specifies which parts of the report are built. Invoices and payments are ignored if the
+     *                profile does not include the debtors and creditors.
+     * @param accounts all accounts of the bookkeeping
+     * @param invoices all invoices of the bookkeeping; may be empty if the profile includes neither the debtors
+     *                 and creditors nor the ledger
+     * @param parties all parties of the bookkeeping; may be empty if the profile does not include the debtors
+     *                and creditors
+     */
+    public ReportBuilder(Bookkeeping bookkeeping, ReportProfile profile, List<Account> accounts, List<Invoice> invoices, List<Party> parties) {
+        this.bookkeeping = bookkeeping;
+        this.profile = profile;
+        this.accounts = accounts;
+        idToAccount = accounts.stream().collect(toMap(Account::getId, a -> a));
+        idToInvoice = invoices.stream().collect(toMap(Invoice::getId, i -> i));
+        idToParty = parties.stream().collect(toMap(Party::getId, p -> p));
     }
 
     public void init() {
         this.report = new Report();
     }
 
-    public Report build() throws ServiceException {
+    public Report build() {
+        for (Map.Entry<Account, AmountAccumulator> entry : accountToAmount.entrySet()) {
+            report.setAmount(entry.getKey(), entry.getValue().toAmount());
+        }
         report.removeCompletedInvoices();
         report.determineResultOfOperations();
-        addFootersToLedgerLines();
-        determineBalanceForDebtorsAndCreditors();
-        return report;
-    }
-
-    private void determineBalanceForDebtorsAndCreditors() throws ServiceException {
-        for (Invoice invoice : report.getInvoices()) {
-            Party party = partyService.getParty(document, invoice.getPartyId());
-            Amount amount = report.getRemainingAmountForInvoice(invoice);
-            if (amount.isPositive()) {
-                Amount balance = report.getBalanceForDebtor(party);
-                balance = balance.add(amount);
-                report.setBalanceForDebtor(party, balance);
-            } else if (amount.isNegative()) {
-                Amount balance = report.getBalanceForCreditor(party);
-                balance = balance.subtract(amount);
-                report.setBalanceForCreditor(party, balance);
-            }
+        if (profile.includesLedger() || ledgerAccount != null) {
+            addFootersToLedgerLines();
+        }
+        if (profile.includesDebtorsAndCreditors()) {
+            report.determineBalanceForDebtorsAndCreditors(idToParty);
         }
+        return report;
     }
 
     public void setEndDate(Date date) {
@@ -101,44 +116,74 @@ public class ReportBuilder {
         report.setRevenues(revenues);
     }
 
-    public void addJournal(JournalEntry journalEntry, List<JournalEntryDetail> details) throws ServiceException {
+    /**
+     * Takes the totals of all accounts at the end date of the report from a ledger snapshot. Journal entries that
+     * are added afterwards only add ledger lines.
+     * @param snapshot the snapshot
+     */
+    public void addLedgerSnapshot(LedgerSnapshot snapshot) {
+        long[] debetBalances = snapshot.getDebetBalances(report.getEndDate());
+        for (int accountIndex = 0; accountIndex < debetBalances.length; accountIndex++) {
+            Account account = idToAccount.get(snapshot.getAccountId(accountIndex));
+            long balance = account.isDebet() ? debetBalances[accountIndex] : -debetBalances[accountIndex];
+            accountToAmount.computeIfAbsent(account, a -> new AmountAccumulator()).add(new Amount(balance));
+        }
+        totalsTakenFromSnapshot = true;
+    }
+
+    /**
+     * Builds the ledger lines of one account, even if the profile does not include the ledger. Only the journal
+     * entry details of this account need to be added then.
+     * @param account the account
+     */
+    public void setLedgerAccount(Account account) {
+        ledgerAccount = account;
+    }
+
+    public void addJournal(JournalEntry journalEntry, List<JournalEntryDetail> details) {
         for (JournalEntryDetail detail : details) {
             addJournalEntryDetail(journalEntry, detail);
         }
     }
 
-    private void addJournalEntryDetail(JournalEntry journalEntry, JournalEntryDetail item) throws ServiceException {
-        addAmountToTotalForAccount(item);
-        addLedgerLineForAccount(journalEntry, item);
-        addAmountToTotalDebetOrCredit(item); // must come after ledger line has been added
-        // otherwise the amount for the first line is added to the start line
+    private void addJournalEntryDetail(JournalEntry journalEntry, JournalEntryDetail item) {
+        if (!totalsTakenFromSnapshot) {
+            addAmountToTotalForAccount(item);
+        }
+        if (includesLedgerLinesOf(idToAccount.get(item.getAccountId()))) {
+            addLedgerLineForAccount(journalEntry, item);
+            addAmountToTotalDebetOrCredit(item); // must come after ledger line has been added
+            // otherwise the amount for the first line is added to the start line
+        }
+    }
+
+    private boolean includesLedgerLinesOf(Account account) {
+        return profile.includesLedger() || account.equals(ledgerAccount);
     }
 
-    private void addAmountToTotalForAccount(JournalEntryDetail journalEntryDetail) throws ServiceException {
+    private void addAmountToTotalForAccount(JournalEntryDetail journalEntryDetail) {
         Account account = idToAccount.get(journalEntryDetail.getAccountId());
-        Amount accountAmount = report.getAmount(account);
+        AmountAccumulator accountAmount = accountToAmount.computeIfAbsent(account, a -> new AmountAccumulator());
 
         if (account.isDebet() == journalEntryDetail.isDebet()) {
-            accountAmount = accountAmount.add(journalEntryDetail.getAmount());
+            accountAmount.add(journalEntryDetail.getAmount());
         } else {
-            accountAmount = accountAmount.subtract(journalEntryDetail.getAmount());
+            accountAmount.subtract(journalEntryDetail.getAmount());
         }
-
-        report.setAmount(account, accountAmount);
     }
 
-    private void addLedgerLineForAccount(JournalEntry journalEntry, JournalEntryDetail item) throws ServiceException {
+    private void addLedgerLineForAccount(JournalEntry journalEntry, JournalEntryDetail item) {
         if (DateUtil.compareDayOfYear(journalEntry.getDate(), bookkeeping.getStartOfPeriod()) >= 0) {
             Account account = idToAccount.get(item.getAccountId());
             if (!hasStartBalanceLineBeenAdded(account)) {
-                addStartLedgerLineForAccount(account, accountToTotalDebet.get(account),
-                        accountToTotalCredit.get(account));
+                addStartLedgerLineForAccount(account, getTotal(accountToTotalDebet, account),
+                        getTotal(accountToTotalCredit, account));
             }
             Invoice invoice = null;
             if (item.getInvoiceId() != null) {
-                invoice = invoiceService.getInvoice(document, item.getInvoiceId());
+                invoice = idToInvoice.get(item.getInvoiceId());
             } else  if (journalEntry.getIdOfCreatedInvoice() != null) {
-                invoice = invoiceService.getInvoice(document, journalEntry.getIdOfCreatedInvoice());
+                invoice = idToInvoice.get(journalEntry.getIdOfCreatedInvoice());
             }
             addLedgerLineForAccount(account, journalEntry, item, invoice);
         }
@@ -175,24 +220,31 @@ public class ReportBuilder {
     private void addAmountToTotalDebetOrCredit(JournalEntryDetail journalEntryDetail) {
         Account account = idToAccount.get(journalEntryDetail.getAccountId());
         if (journalEntryDetail.isDebet()) {
-            Amount totalAmount = nullToZero(accountToTotalDebet.get(account)).add(journalEntryDetail.getAmount());
-            accountToTotalDebet.put(account, totalAmount);
+            accountToTotalDebet.computeIfAbsent(account, a -> new AmountAccumulator()).add(journalEntryDetail.getAmount());
         } else {
-            Amount totalAmount = nullToZero(accountToTotalCredit.get(account)).add(journalEntryDetail.getAmount());
-            accountToTotalCredit.put(account, totalAmount);
+            accountToTotalCredit.computeIfAbsent(account, a -> new AmountAccumulator()).add(journalEntryDetail.getAmount());
         }
     }
 
+    private Amount getTotal(Map<Account, AmountAccumulator> accountToTotal, Account account) {
+        AmountAccumulator total = accountToTotal.get(account);
+        return total != null ? total.toAmount() : null;
+    }
+
     private boolean hasStartBalanceLineBeenAdded(Account account) {
         return !report.getLedgerLinesForAccount(account).isEmpty();
     }
 
-    public void addInvoice(Invoice invoice, List<Payment> payments) throws ServiceException {
-        report.addInvoice(invoice);
-
-        payments.stream()
-                .filter(p -> DateUtil.compareDayOfYear(p.getDate(), report.getEndDate()) <= 0)
-                .forEach(p -> report.addPayment(invoice, p.getAmount()));
+    /**
+     * Adds an invoice to the report.
+     * @param invoice the invoice
+     * @param remainingAmount the amount to be paid minus the payments made up to and including the end date
+     */
+    public void addInvoice(Invoice invoice, Amount remainingAmount) {
+        if (!profile.includesDebtorsAndCreditors()) {
+            return;
+        }
+        report.addInvoice(invoice, remainingAmount);
     }
 
     private Amount nullToZero(Amount amount) {
@@ -203,11 +255,14 @@ public class ReportBuilder {
         return amount;
     }
 
-    private void addFootersToLedgerLines() throws ServiceException {
-        for (Account account : configurationService.findAllAccounts(document)) {
+    private void addFootersToLedgerLines() {
+        for (Account account : accounts) {
+            if (!includesLedgerLinesOf(account)) {
+                continue;
+            }
             if (!hasStartBalanceLineBeenAdded(account)) {
                 addStartLedgerLineForAccount(account,
-                        accountToTotalDebet.get(account), accountToTotalCredit.get(account));
+                        getTotal(accountToTotalDebet, account), getTotal(accountToTotalCredit, account));
             }
             addLedgerLineWithTotalMutations(account);
             addEndLedgerLineForAccount(account);
@@ -217,8 +272,8 @@ public class ReportBuilder {
     private void addLedgerLineWithTotalMutations(Account a) {
         LedgerLine line = new LedgerLine();
         line.description = textResource.getString("rep.totalMutations");
-        line.debetAmount = nullToZero(accountToTotalDebet.get(a)).subtract(accountToStartDebet.get(a));
-        line.creditAmount = nullToZero(accountToTotalCredit.get(a)).subtract(accountToStartCredit.get(a));
+        line.debetAmount = nullToZero(getTotal(accountToTotalDebet, a)).subtract(accountToStartDebet.get(a));
+        line.creditAmount = nullToZero(getTotal(accountToTotalCredit, a)).subtract(accountToStartCredit.get(a));
         report.addLedgerLineForAccount(a, line);
     }
 
@@ -226,7 +281,7 @@ public class ReportBuilder {
         LedgerLine line = new LedgerLine();
         line.description = textResource.getString("rep.endBalance");
         setAmountInLedgerLine(line, account,
-                accountToTotalDebet.get(account), accountToTotalCredit.get(account));
+                getTotal(accountToTotalDebet, account), getTotal(accountToTotalCredit, account));
         report.addLedgerLineForAccount(account, line);
     }
 }
@@ -0,0 +1,29 @@
+package nl.gogognome.gogoaccount.businessobjects;
+
+/**
+ * Specifies which parts of a report are built. Each profile contains the parts of the profiles before it.
+ */
+public enum ReportProfile {
+    /** Only the totals of the accounts and the result of operations. */
+    TOTALS,
+    /** The totals plus the debtors and creditors. */
+    TOTALS_DEBTORS_AND_CREDITORS,
+    /** All parts of the report, including the ledger lines of all accounts. */
+    FULL;
+
+    public boolean includesDebtorsAndCreditors() {
+        return includes(TOTALS_DEBTORS_AND_CREDITORS);
+    }
+
+    public boolean includesLedger() {
+        return includes(FULL);
+    }
+
+    /**
+     * @param profile a profile
+     * @return true if a report built with this profile contains all parts of a report built with the other profile
+     */
+    public boolean includes(ReportProfile profile) {
+        return ordinal() >= profile.ordinal();
+    }
+}
@@ -0,0 +1,134 @@
+package nl.gogognome.gogoaccount.businessobjects;
+
+import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.gogoaccount.component.configuration.AccountType;
+import nl.gogognome.gogoaccount.component.invoice.Invoice;
+import nl.gogognome.gogoaccount.component.invoice.Payment;
+import nl.gogognome.gogoaccount.component.ledger.JournalEntry;
+import nl.gogognome.gogoaccount.component.ledger.JournalEntryDetail;
+import nl.gogognome.gogoaccount.component.party.Party;
+import nl.gogognome.lib.text.AmountAccumulator;
+import nl.gogognome.lib.util.DateUtil;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Builds reports for a number of dates in a single pass over the journal entries, invoices and payments.
+ * Journal entries must be added in order of their dates. Each time the pass reaches a requested date, a report
+ * is taken from the running totals, so the costs do not grow with the product of the number of journal entries
+ * and the number of dates.
+ *
+ * <p>The reports contain the balance sheet, the operational result and the debtors and creditors, but no
+ * ledger lines.
+ */
+public class ReportSeriesBuilder {
+
+    private final List<Account> assets;
+    private final List<Account> liabilities;
+    private final List<Account> expenses;
+    private final List<Account> revenues;
+    private final Map<String, Account> idToAccount;
+    private final Map<String, Party> idToParty;
+
+    private final List<Date> dates;
+    private int nextDateIndex;
+    private final List<Report> reports = new ArrayList<>();
+
+    private final Map<Account, AmountAccumulator> accountToAmount = new HashMap<>();
+
+    private final List<Invoice> invoices;
+    private int nextInvoiceIndex;
+    private final List<Invoice> issuedInvoices = new ArrayList<>();
+
+    private final List<Payment> payments;
+    private int nextPaymentIndex;
+    private final Map<String, AmountAccumulator> invoiceIdToPaidAmount = new HashMap<>();
+
+    /**
+     * Constructor.
+     * @param accounts all accounts of the bookkeeping
+     * @param invoices all invoices of the bookkeeping
+     * @param payments all payments of the bookkeeping
+     * @param parties all parties of the bookkeeping
+     * @param dates the dates for which reports must be built in ascending order
+     */
+    public ReportSeriesBuilder(List<Account> accounts, List<Invoice> invoices, List<Payment> payments, List<Party> parties, List<Date> dates) {
+        assets = filterAccounts(accounts, AccountType.get(true, true));
+        liabilities = filterAccounts(accounts, AccountType.get(false, true));
+        expenses = filterAccounts(accounts, AccountType.get(true, false));
+        revenues = filterAccounts(accounts, AccountType.get(false, false));
+        idToAccount = accounts.stream().collect(toMap(Account::getId, a -> a));
+        idToParty = parties.stream().collect(toMap(Party::getId, p -> p));
+        this.invoices = invoices.stream().sorted(Comparator.comparing(Invoice::getIssueDate)).toList();
+        this.payments = payments.stream().sorted(Comparator.comparing(Payment::getDate)).toList();
+        this.dates = dates;
+    }
+
+    private static List<Account> filterAccounts(List<Account> accounts, List<AccountType> accountTypes) {
+        return accounts.stream().filter(account -> accountTypes.contains(account.getType())).toList();
+    }
+
+    public void addJournal(JournalEntry journalEntry, List<JournalEntryDetail> details) {
+        buildReportsForDatesBefore(journalEntry.getDate());
+        for (JournalEntryDetail detail : details) {
+            Account account = idToAccount.get(detail.getAccountId());
+            AmountAccumulator accountAmount = accountToAmount.computeIfAbsent(account, a -> new AmountAccumulator());
+            if (account.isDebet() == detail.isDebet()) {
+                accountAmount.add(detail.getAmount());
+            } else {
+                accountAmount.subtract(detail.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Builds the reports for the dates that have not been reached by the journal entries.
+     * @return the reports in the order of the dates
+     */
+    public List<Report> build() {
+        buildReportsForDatesBefore(null);
+        return reports;
+    }
+
+    private void buildReportsForDatesBefore(Date date) {
+        while (nextDateIndex < dates.size() && (date == null || DateUtil.compareDayOfYear(dates.get(nextDateIndex), date) < 0)) {
+            reports.add(buildReport(dates.get(nextDateIndex)));
+            nextDateIndex++;
+        }
+    }
+
+    private Report buildReport(Date date) {
+        while (nextInvoiceIndex < invoices.size() && DateUtil.compareDayOfYear(invoices.get(nextInvoiceIndex).getIssueDate(), date) <= 0) {
+            issuedInvoices.add(invoices.get(nextInvoiceIndex));
+            nextInvoiceIndex++;
+        }
+        while (nextPaymentIndex < payments.size() && DateUtil.compareDayOfYear(payments.get(nextPaymentIndex).getDate(), date) <= 0) {
+            Payment payment = payments.get(nextPaymentIndex);
+            invoiceIdToPaidAmount.computeIfAbsent(payment.getInvoiceId(), id -> new AmountAccumulator()).add(payment.getAmount());
+            nextPaymentIndex++;
+        }
+
+        Report report = new Report();
+        report.setEndDate(date);
+        report.setAssets(assets);
+        report.setLiabilities(liabilities);
+        report.setExpenses(expenses);
+        report.setRevenues(revenues);
+        for (Map.Entry<Account, AmountAccumulator> entry : accountToAmount.entrySet()) {
+            report.setAmount(entry.getKey(), entry.getValue().toAmount());
+        }
+        for (Invoice invoice : issuedInvoices) {
+            report.addInvoice(invoice);
+            AmountAccumulator paidAmount = invoiceIdToPaidAmount.get(invoice.getId());
+            if (paidAmount != null) {
+                report.addPayment(invoice, paidAmount.toAmount());
+            }
+        }
+        report.removeCompletedInvoices();
+        report.determineResultOfOperations();
+        report.determineBalanceForDebtorsAndCreditors(idToParty);
+        return report;
+    }
+}
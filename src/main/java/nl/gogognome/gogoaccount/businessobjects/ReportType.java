@@ -7,5 +7,6 @@ package nl.gogognome.gogoaccount.businessobjects;
  */
 public enum ReportType {
 	PLAIN_TEXT,
-	ODT_DOCUMENT
+	ODT_DOCUMENT,
+	CSV_SERIES
 }
@@ -7,6 +7,8 @@ import nl.gogognome.gogoaccount.services.ServiceTransaction;
 import java.sql.SQLException;
 import java.util.List;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.ACCOUNT;
+
 public class ConfigurationService {
 
     public boolean hasAccounts(Document document) throws ServiceException {
@@ -45,7 +47,7 @@ public class ConfigurationService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new AccountDAO(document).create(account);
-            document.notifyChange();
+            document.notifyChange(ACCOUNT, account.getId());
         });
     }
 
@@ -53,6 +55,7 @@ public class ConfigurationService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new AccountDAO(document).update(account);
+            document.notifyChange(ACCOUNT, account.getId());
         });
     }
 
@@ -67,6 +70,7 @@ public class ConfigurationService {
                 }
                 throw e;
             }
+            document.notifyChange(ACCOUNT, account.getId());
         });
     }
 
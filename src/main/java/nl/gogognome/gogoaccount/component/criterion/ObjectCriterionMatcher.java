@@ -20,8 +20,21 @@ public class ObjectCriterionMatcher {
     }
 
     public boolean matches(Criterion criterion, Object... params) {
+        return matchesTextElements(criterion, toTextElements(params));
+    }
+
+    /**
+     * Converts objects to the texts that are matched against a criterion. Use this method together with
+     * {@link #matchesTextElements(Criterion, String[])} for objects that are matched many times.
+     * @param params the objects
+     * @return the texts
+     */
+    public String[] toTextElements(Object... params) {
         int resultSize = countResultingSize(params);
-        String[] textElements = convertToStrings(resultSize, params);
+        return convertToStrings(resultSize, params);
+    }
+
+    public boolean matchesTextElements(Criterion criterion, String[] textElements) {
         return criterionMatcher.matches(criterion, textElements);
     }
 
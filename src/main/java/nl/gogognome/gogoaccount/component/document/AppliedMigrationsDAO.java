@@ -0,0 +1,22 @@
+package nl.gogognome.gogoaccount.component.document;
+
+import nl.gogognome.dataaccess.dao.AbstractDAO;
+
+import java.sql.SQLException;
+
+/**
+ * Reads the migrations that the database migrator has applied to the database of a document.
+ */
+class AppliedMigrationsDAO extends AbstractDAO {
+
+    public AppliedMigrationsDAO(Document document) {
+        super(document.getBookkeepingId());
+    }
+
+    /**
+     * @return the id of the latest applied migration or null if no migration has been applied
+     */
+    public Long getLatestAppliedMigrationId() throws SQLException {
+        return execute("SELECT MAX(id) FROM _database_migrations").findFirst(r -> r.getLong(1));
+    }
+}
@@ -2,24 +2,32 @@ package nl.gogognome.gogoaccount.component.document;
 
 import nl.gogognome.dataaccess.transaction.CurrentTransaction;
 import nl.gogognome.dataaccess.transaction.Transaction;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType;
 
 import java.io.*;
 import java.sql.*;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.*;
 
 public class Document {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final ArrayList<DocumentListener> listeners = new ArrayList<>();
+    /** Listeners may be added and removed by any thread while the listeners are being notified. */
+    private final List<DocumentListener> listeners = new CopyOnWriteArrayList<>();
     private final String bookkeepingId = UUID.randomUUID().toString();
     private File databaseFile;
     private Locale locale = Locale.US;
     protected Connection connectionToKeepInMemoryDatabaseAlive;
     private boolean readonly;
+    private final AtomicLong version = new AtomicLong();
+    private File directoryToDeleteWhenClosed;
 
     protected Document() {
     }
@@ -28,6 +36,16 @@ public class Document {
         return bookkeepingId;
     }
 
+    /**
+     * Gets the version of this document. The version changes each time the database changes and when
+     * a transaction that changed the database closes. Data derived from the database can be reused as long as
+     * the version is unchanged.
+     * @return the version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     public void addListener( DocumentListener l ) {
         listeners.add(l);
     }
@@ -36,10 +54,11 @@ public class Document {
         listeners.remove(l);
     }
 
-    void notifyListeners()
+    void notifyListeners(DocumentChanges changes)
     {
+        version.incrementAndGet();
         for (DocumentListener l : listeners) {
-            l.documentChanged(this);
+            l.documentChanged(this, changes);
         }
     }
 
@@ -47,8 +66,36 @@ public class Document {
      * This method is called each time the database changes.
      * This method will make sure that the <tt>DatabaseListener</tt>s get notified
      * at the proper moment only if this database is the current database.
+     * Listeners must assume that anything may have changed. Use {@link #notifyChange(EntityType, Collection)}
+     * when the changed entities are known.
      */
     public void notifyChange() {
+        notifyChange(DocumentChanges.unspecified());
+    }
+
+    /**
+     * This method is called each time entities of the document change.
+     * @param entityType the kind of the changed entities
+     * @param ids the ids of the changed entities
+     */
+    public void notifyChange(EntityType entityType, String... ids) {
+        notifyChange(entityType, Arrays.asList(ids));
+    }
+
+    /**
+     * This method is called each time entities of the document change. The changes of a transaction are
+     * collected and the listeners are notified once when the transaction closes.
+     * @param entityType the kind of the changed entities
+     * @param ids the ids of the changed entities
+     */
+    public void notifyChange(EntityType entityType, Collection<String> ids) {
+        DocumentChanges changes = new DocumentChanges();
+        changes.add(entityType, ids);
+        notifyChange(changes);
+    }
+
+    private void notifyChange(DocumentChanges changes) {
+        version.incrementAndGet();
         DocumentAwareTransaction documentAwareTransaction = null;
         if (CurrentTransaction.hasTransaction()) {
             Transaction transaction = CurrentTransaction.get();
@@ -57,9 +104,9 @@ public class Document {
             }
         }
         if (documentAwareTransaction != null) {
-            documentAwareTransaction.notifyListenersWhenTransactionCloses(this);
+            documentAwareTransaction.notifyListenersWhenTransactionCloses(this, changes);
         } else {
-            notifyListeners();
+            notifyListeners(changes);
         }
     }
 
@@ -103,5 +150,29 @@ public class Document {
             }
         }
         connectionToKeepInMemoryDatabaseAlive = null;
+        if (directoryToDeleteWhenClosed != null) {
+            deleteRecursively(directoryToDeleteWhenClosed);
+            directoryToDeleteWhenClosed = null;
+        }
+    }
+
+    /**
+     * Deletes a directory with temporary files, like a migrated copy of the database, when this document is closed.
+     * @param directory the directory
+     */
+    void deleteWhenClosed(File directory) {
+        directoryToDeleteWhenClosed = directory;
+    }
+
+    private void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete()) {
+            logger.warn("Failed to delete temporary file " + file.getAbsolutePath());
+        }
     }
 }
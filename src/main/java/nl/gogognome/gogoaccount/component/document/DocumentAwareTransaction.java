@@ -3,25 +3,29 @@ package nl.gogognome.gogoaccount.component.document;
 import nl.gogognome.dataaccess.DataAccessException;
 import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DocumentAwareTransaction extends CompositeDatasourceTransaction {
 
-    private List<Document> documents = new ArrayList<>();
+    private Map<Document, DocumentChanges> documentToChanges = new LinkedHashMap<>();
 
     @Override
     public void close() throws DataAccessException {
         try {
             super.close();
         } finally {
-            documents.forEach(d -> d.notifyListeners());
+            documentToChanges.forEach((document, changes) -> document.notifyListeners(changes));
         }
     }
 
-    public void notifyListenersWhenTransactionCloses(Document document) {
-        if (!documents.contains(document)) {
-            documents.add(document);
-        }
+    /**
+     * Collects changes of a document. The listeners of the document are notified once about all collected
+     * changes when the transaction closes.
+     * @param document the document
+     * @param changes the changes
+     */
+    public void notifyListenersWhenTransactionCloses(Document document, DocumentChanges changes) {
+        documentToChanges.computeIfAbsent(document, d -> new DocumentChanges()).addAll(changes);
     }
 }
@@ -0,0 +1,86 @@
+package nl.gogognome.gogoaccount.component.document;
+
+import java.util.*;
+
+/**
+ * Describes the changes made to a document in a transaction. For each kind of entity the ids of the changed
+ * entities are collected. Changes that were reported without specifying the changed entities make
+ * {@link #hasUnspecifiedChanges()} return <code>true</code>; in that case listeners must assume that anything
+ * may have changed.
+ */
+public class DocumentChanges {
+
+    public enum EntityType {
+        /** Journal entries are identified by their unique id. */
+        JOURNAL_ENTRY,
+        INVOICE,
+        PAYMENT,
+        PARTY,
+        ACCOUNT
+    }
+
+    private final Map<EntityType, Set<String>> entityTypeToIds = new EnumMap<>(EntityType.class);
+    private boolean unspecifiedChanges;
+
+    static DocumentChanges unspecified() {
+        DocumentChanges changes = new DocumentChanges();
+        changes.addUnspecifiedChange();
+        return changes;
+    }
+
+    void add(EntityType entityType, Collection<String> ids) {
+        entityTypeToIds.computeIfAbsent(entityType, type -> new LinkedHashSet<>()).addAll(ids);
+    }
+
+    void addUnspecifiedChange() {
+        unspecifiedChanges = true;
+    }
+
+    void addAll(DocumentChanges changes) {
+        changes.entityTypeToIds.forEach(this::add);
+        unspecifiedChanges |= changes.unspecifiedChanges;
+    }
+
+    public boolean hasUnspecifiedChanges() {
+        return unspecifiedChanges;
+    }
+
+    /**
+     * @param entityType the kind of entity
+     * @return the ids of the changed (added, updated or removed) entities of the specified kind
+     */
+    public Set<String> getChangedIds(EntityType entityType) {
+        return Collections.unmodifiableSet(entityTypeToIds.getOrDefault(entityType, Collections.emptySet()));
+    }
+
+    /**
+     * Checks whether the changes can affect entities of at least one of the specified kinds.
+     * @param entityTypes the kinds of entities
+     * @return <code>true</code> if there are unspecified changes or if an entity of one of the kinds has changed
+     */
+    public boolean affects(EntityType... entityTypes) {
+        if (unspecifiedChanges) {
+            return true;
+        }
+        for (EntityType entityType : entityTypes) {
+            if (entityTypeToIds.containsKey(entityType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether only entities of the specified kinds have changed.
+     * @param entityTypes the kinds of entities
+     * @return <code>true</code> if all changes concern entities of the specified kinds
+     */
+    public boolean affectsOnly(EntityType... entityTypes) {
+        return !unspecifiedChanges && Arrays.asList(entityTypes).containsAll(entityTypeToIds.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentChanges(" + entityTypeToIds + (unspecifiedChanges ? ", unspecified changes" : "") + ")";
+    }
+}
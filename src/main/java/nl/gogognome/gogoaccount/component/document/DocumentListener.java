@@ -1,5 +1,7 @@
 package nl.gogognome.gogoaccount.component.document;
 
+import nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType;
+
 /**
  * This interface specifies a listener to changes in the document.
  */
@@ -12,4 +14,36 @@ public interface DocumentListener
 	 *        instance in subsequent calls!
 	 */
 	void documentChanged(Document document);
+
+	/**
+	 * This method is called when the database has changed. Override this method to handle only the changed
+	 * entities instead of reloading everything.
+	 * @param document the document
+	 * @param changes the changes made to the document since the previous notification
+	 */
+	default void documentChanged(Document document, DocumentChanges changes) {
+		documentChanged(document);
+	}
+
+	/**
+	 * Creates a listener that ignores changes that do not affect entities of the specified kinds.
+	 * @param action the action to perform when entities of the specified kinds have changed
+	 * @param entityTypes the kinds of entities
+	 * @return the listener
+	 */
+	static DocumentListener whenChanged(Runnable action, EntityType... entityTypes) {
+		return new DocumentListener() {
+			@Override
+			public void documentChanged(Document document) {
+				action.run();
+			}
+
+			@Override
+			public void documentChanged(Document document, DocumentChanges changes) {
+				if (changes.affects(entityTypes)) {
+					action.run();
+				}
+			}
+		};
+	}
 }
@@ -12,6 +12,7 @@ import org.h2.jdbcx.JdbcDataSource;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.SQLException;
 import java.util.*;
 
@@ -19,6 +20,9 @@ import static java.util.stream.Collectors.*;
 
 public class DocumentService {
 
+    private static final long ADD_AMOUNTS_IN_CENTS_MIGRATION_ID = 140;
+    private static final String MIGRATIONS_RESOURCE = "/database/_migrations.txt";
+
     private final ConfigurationService configurationService;
 
     public DocumentService(ConfigurationService configurationService) {
@@ -42,6 +46,56 @@ public class DocumentService {
         });
     }
 
+    /**
+     * Opens a document that will only be read, for example to compare it with other bookkeepings.
+     * A file with the current schema is opened in read-only mode, so it is not changed. A file with an older
+     * schema is not changed either: a temporary copy of it is migrated and opened instead. The copy is deleted
+     * when the document is closed. The document is read-only even if its bookkeeping has not been closed.
+     * @param databaseFile the database file
+     * @return the document
+     */
+    public Document openDocumentReadOnly(File databaseFile) throws ServiceException {
+        return ServiceTransaction.withResult(() -> {
+            String jdbcUrl = "jdbc:h2:file:" + getFilePathWithoutExtension(databaseFile) + ";ACCESS_MODE_DATA=r";
+            Document document = new Document();
+            document.setDatabaseFile(databaseFile);
+
+            registerDataSource(document, jdbcUrl);
+            boolean schemaIsUpToDate;
+            try {
+                schemaIsUpToDate = isSchemaUpToDate(document);
+            } catch (Exception e) {
+                document.close();
+                throw e;
+            }
+            if (!schemaIsUpToDate) {
+                document.close();
+                return openMigratedCopy(databaseFile);
+            }
+
+            document.setReadonly(true);
+            return document;
+        });
+    }
+
+    private Document openMigratedCopy(File databaseFile) throws IOException, SQLException, DataAccessException {
+        File directory = Files.createTempDirectory("gogoaccount-migrated-").toFile();
+        Document document = new Document();
+        document.deleteWhenClosed(directory);
+        try {
+            File copy = new File(directory, "bookkeeping.h2.db");
+            Files.copy(new File(getFilePathWithoutExtension(databaseFile) + ".h2.db").toPath(), copy.toPath());
+            registerDataSource(document, "jdbc:h2:file:" + getFilePathWithoutExtension(copy));
+            applyDatabaseMigrations(document, Long.MAX_VALUE);
+        } catch (Exception e) {
+            document.close();
+            throw e;
+        }
+        document.setDatabaseFile(databaseFile);
+        document.setReadonly(true);
+        return document;
+    }
+
     public Document createNewDocumentInMemory(String description) throws ServiceException {
         String jdbcUrl = "jdbc:h2:mem:bookkeeping-" + UUID.randomUUID();
         return createDocument(jdbcUrl, description);
@@ -87,11 +141,25 @@ public class DocumentService {
         document.connectionToKeepInMemoryDatabaseAlive = dataSource.getConnection();
     }
 
+    private boolean isSchemaUpToDate(Document document) throws IOException, SQLException {
+        Long latestAppliedMigrationId = new AppliedMigrationsDAO(document).getLatestAppliedMigrationId();
+        return latestAppliedMigrationId != null && latestAppliedMigrationId == getLatestMigrationId(document);
+    }
+
+    private long getLatestMigrationId(Document document) throws IOException {
+        List<Migration> migrations = new DatabaseMigratorDAO(document.getBookkeepingId()).loadMigrationsFromResource(MIGRATIONS_RESOURCE);
+        return migrations.stream().mapToLong(Migration::getId).max().orElse(0);
+    }
+
     private void applyDatabaseMigrations(Document document, long maxMigrationNr) throws IOException, DataAccessException, SQLException {
         DatabaseMigratorDAO databaseMigratorDAO = new DatabaseMigratorDAO(document.getBookkeepingId());
-        List<Migration> migrations = databaseMigratorDAO.loadMigrationsFromResource("/database/_migrations.txt");
+        List<Migration> migrations = databaseMigratorDAO.loadMigrationsFromResource(MIGRATIONS_RESOURCE);
         List<Migration> migrationsToBeApplied = migrations.stream().filter(m -> m.getId() <= maxMigrationNr).collect(toList());
-        databaseMigratorDAO.applyMigrations(migrationsToBeApplied);
+
+        // Legacy amounts must be converted after the amount in cents columns have been added and before the old columns are dropped
+        databaseMigratorDAO.applyMigrations(migrationsToBeApplied.stream().filter(m -> m.getId() <= ADD_AMOUNTS_IN_CENTS_MIGRATION_ID).collect(toList()));
+        new LegacyAmountConverterDAO(document).convertLegacyAmounts();
+        databaseMigratorDAO.applyMigrations(migrationsToBeApplied.stream().filter(m -> m.getId() > ADD_AMOUNTS_IN_CENTS_MIGRATION_ID).collect(toList()));
     }
 
     private static Date getFirstDayOfYear(Date date) {
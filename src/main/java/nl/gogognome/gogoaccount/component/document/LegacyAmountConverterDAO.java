@@ -0,0 +1,73 @@
+package nl.gogognome.gogoaccount.component.document;
+
+import nl.gogognome.dataaccess.dao.AbstractDAO;
+import nl.gogognome.gogoaccount.util.AmountInDatabase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts amounts that are stored in the legacy text format, like "EUR 12.34", to amounts in cents.
+ * Amounts in the current text format are converted by the migration that adds the columns for the amounts
+ * in cents. The legacy format cannot be parsed in SQL, so these amounts are converted here, before the
+ * migration that drops the text columns.
+ */
+class LegacyAmountConverterDAO extends AbstractDAO {
+
+    private static final String[][] TABLE_AND_COLUMN_NAMES = {
+            { "invoice", "amount_to_be_paid" },
+            { "invoice_detail", "amount" },
+            { "payment", "amount" },
+            { "journal_entry_detail", "amount" }
+    };
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    public LegacyAmountConverterDAO(Document document) {
+        super(document.getBookkeepingId());
+    }
+
+    public void convertLegacyAmounts() throws SQLException {
+        for (String[] tableAndColumnName : TABLE_AND_COLUMN_NAMES) {
+            String tableName = tableAndColumnName[0];
+            String columnName = tableAndColumnName[1];
+            if (columnExists(tableName, columnName + "_in_cents")) {
+                convertLegacyAmounts(tableName, columnName);
+            }
+        }
+    }
+
+    private boolean columnExists(String tableName, String columnName) throws SQLException {
+        return execute("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME=? AND COLUMN_NAME=?",
+                tableName.toUpperCase(), columnName.toUpperCase()).findFirst(r -> r.getLong(1)) > 0;
+    }
+
+    private void convertLegacyAmounts(String tableName, String columnName) throws SQLException {
+        List<String[]> idsAndAmounts = execute("SELECT id, " + columnName + " FROM " + tableName
+                + " WHERE " + columnName + " IS NOT NULL AND " + columnName + "_in_cents IS NULL")
+                .toList(r -> new String[] { r.getString("id"), r.getString(columnName) });
+        for (int start = 0; start < idsAndAmounts.size(); start += MAX_ROWS_PER_STATEMENT) {
+            updateAmountsInCents(tableName, columnName, idsAndAmounts.subList(start, Math.min(idsAndAmounts.size(), start + MAX_ROWS_PER_STATEMENT)));
+        }
+    }
+
+    /**
+     * Updates the amounts in cents of a number of rows with a single statement.
+     */
+    private void updateAmountsInCents(String tableName, String columnName, List<String[]> idsAndAmounts) throws SQLException {
+        StringBuilder sql = new StringBuilder(100 + idsAndAmounts.size() * 20);
+        sql.append("UPDATE ").append(tableName).append(" SET ").append(columnName).append("_in_cents=CASE id");
+        List<Object> parameters = new ArrayList<>(idsAndAmounts.size() * 3);
+        List<String> ids = new ArrayList<>(idsAndAmounts.size());
+        for (String[] idAndAmount : idsAndAmounts) {
+            sql.append(" WHEN ? THEN CAST(? AS BIGINT)");
+            parameters.add(idAndAmount[0]);
+            parameters.add(AmountInDatabase.toCents(AmountInDatabase.parse(idAndAmount[1])));
+            ids.add(idAndAmount[0]);
+        }
+        sql.append(" END WHERE id IN (?)");
+        parameters.add(ids);
+        execute(sql.toString(), parameters.toArray()).ignoreResult();
+    }
+}
@@ -0,0 +1,236 @@
+package nl.gogognome.gogoaccount.component.invoice;
+
+import nl.gogognome.gogoaccount.component.party.Party;
+import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.AmountFormat;
+import nl.gogognome.lib.text.TextResource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An invoice preview template that has been split into literal texts and placeholders. The template is parsed once.
+ * Rendering an invoice writes the literal texts and the escaped values of the placeholders to a writer, so the cost
+ * of rendering an invoice is proportional to the size of the output.
+ *
+ * <p>The part of the template between <code>${lineStart}</code> and <code>${lineEnd}</code> is rendered once
+ * for each invoice detail and once for each payment.</p>
+ *
+ * <p>Instances are immutable and can be shared by multiple threads.</p>
+ */
+public class CompiledInvoicePreviewTemplate {
+
+    private final static String LINE_START = "${lineStart}";
+    private final static String LINE_END = "${lineEnd}";
+
+    private enum Placeholder {
+        DATE("${date}"),
+        INVOICE_ID("${invoice.id}"),
+        INVOICE_PARTY_REFERENCE("${invoice.partyReference}"),
+        INVOICE_DESCRIPTION("${invoice.description}"),
+        INVOICE_AMOUNT("${invoice.amount}"),
+        INVOICE_ISSUE_DATE("${invoice.issueDate}"),
+        INVOICE_DUE_DATE("${invoice.dueDate}"),
+        PARTY_ID("${party.id}"),
+        PARTY_NAME("${party.name}"),
+        PARTY_ADDRESS("${party.address}"),
+        PARTY_ZIP_CODE("${party.zipCode}"),
+        PARTY_CITY("${party.city}"),
+        LINE_DATE("${line.date}"),
+        LINE_DESCRIPTION("${line.description}"),
+        LINE_AMOUNT("${line.amount}");
+
+        private final String key;
+
+        Placeholder(String key) {
+            this.key = key;
+        }
+
+        boolean isLinePlaceholder() {
+            return this == LINE_DATE || this == LINE_DESCRIPTION || this == LINE_AMOUNT;
+        }
+    }
+
+    private final static Map<String, Placeholder> KEY_TO_PLACEHOLDER = new HashMap<>();
+    static {
+        for (Placeholder placeholder : Placeholder.values()) {
+            KEY_TO_PLACEHOLDER.put(placeholder.key, placeholder);
+        }
+    }
+
+    private final AmountFormat amountFormat;
+    private final TextResource textResource;
+
+    private final Segment[] segmentsBeforeLines;
+    private final Segment[] lineSegments;
+    private final Segment[] segmentsAfterLines;
+
+    CompiledInvoicePreviewTemplate(String templateContents, AmountFormat amountFormat, TextResource textResource) {
+        this.amountFormat = amountFormat;
+        this.textResource = textResource;
+
+        int lineStartIndex = templateContents.indexOf(LINE_START);
+        int lineEndIndex = templateContents.indexOf(LINE_END);
+        if (lineStartIndex != -1 && lineEndIndex >= lineStartIndex + LINE_START.length()) {
+            segmentsBeforeLines = parse(templateContents.substring(0, lineStartIndex), false);
+            lineSegments = parse(templateContents.substring(lineStartIndex + LINE_START.length(), lineEndIndex), true);
+            segmentsAfterLines = parse(templateContents.substring(lineEndIndex + LINE_END.length()), false);
+        } else {
+            segmentsBeforeLines = parse(templateContents, false);
+            lineSegments = null;
+            segmentsAfterLines = new Segment[0];
+        }
+    }
+
+    private static Segment[] parse(String text, boolean lineTemplate) {
+        List<Segment> segments = new ArrayList<>();
+        int literalStart = 0;
+        int index = text.indexOf("${");
+        while (index != -1) {
+            int endIndex = text.indexOf('}', index);
+            if (endIndex == -1) {
+                break;
+            }
+            Placeholder placeholder = KEY_TO_PLACEHOLDER.get(text.substring(index, endIndex + 1));
+            if (placeholder != null && (lineTemplate || !placeholder.isLinePlaceholder())) {
+                if (index > literalStart) {
+                    segments.add(new Segment(text.substring(literalStart, index), null));
+                }
+                segments.add(new Segment(null, placeholder));
+                literalStart = endIndex + 1;
+                index = text.indexOf("${", literalStart);
+            } else {
+                index = text.indexOf("${", index + 2);
+            }
+        }
+        if (literalStart < text.length()) {
+            segments.add(new Segment(text.substring(literalStart), null));
+        }
+        return segments.toArray(new Segment[0]);
+    }
+
+    /**
+     * Renders the template for an invoice as UTF-8 encoded text. The output stream is flushed, but not closed.
+     * @param outputStream the stream to which the rendered invoice is written
+     * @param invoice the invoice
+     * @param invoiceDetails the details of the invoice
+     * @param payments the payments of the invoice
+     * @param party the party of the invoice
+     * @param dueDate the date before which the invoice must be paid
+     */
+    public void render(OutputStream outputStream, Invoice invoice, List<InvoiceDetail> invoiceDetails, List<Payment> payments,
+                       Party party, Date dueDate) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        render(writer, invoice, invoiceDetails, payments, party, dueDate);
+        writer.flush();
+    }
+
+    /**
+     * Renders the template for an invoice. The writer is not flushed or closed.
+     * @param writer the writer to which the rendered invoice is written
+     * @param invoice the invoice
+     * @param invoiceDetails the details of the invoice
+     * @param payments the payments of the invoice
+     * @param party the party of the invoice
+     * @param dueDate the date before which the invoice must be paid
+     */
+    public void render(Writer writer, Invoice invoice, List<InvoiceDetail> invoiceDetails, List<Payment> payments,
+                       Party party, Date dueDate) throws IOException {
+        String[] values = new String[Placeholder.values().length];
+        values[Placeholder.DATE.ordinal()] = textResource.formatDate("gen.dateFormatFull", new Date());
+        values[Placeholder.INVOICE_ID.ordinal()] = invoice.getId();
+        values[Placeholder.INVOICE_PARTY_REFERENCE.ordinal()] = invoice.getPartyReference();
+        values[Placeholder.INVOICE_DESCRIPTION.ordinal()] = invoice.getDescription();
+        values[Placeholder.INVOICE_AMOUNT.ordinal()] = amountFormat.formatAmount(getAmountToBePaid(invoice, invoiceDetails, payments).toBigInteger());
+        values[Placeholder.INVOICE_ISSUE_DATE.ordinal()] = textResource.formatDate("gen.dateFormatFull", invoice.getIssueDate());
+        values[Placeholder.INVOICE_DUE_DATE.ordinal()] = textResource.formatDate("gen.dateFormatFull", dueDate);
+        values[Placeholder.PARTY_ID.ordinal()] = party.getId();
+        values[Placeholder.PARTY_NAME.ordinal()] = party.getName();
+        values[Placeholder.PARTY_ADDRESS.ordinal()] = party.getAddress();
+        values[Placeholder.PARTY_ZIP_CODE.ordinal()] = party.getZipCode();
+        values[Placeholder.PARTY_CITY.ordinal()] = party.getCity();
+
+        write(writer, segmentsBeforeLines, values);
+        if (lineSegments != null) {
+            for (InvoiceDetail invoiceDetail : invoiceDetails) {
+                writeLine(writer, values, invoice.getIssueDate(), invoiceDetail.getDescription(),
+                        getAmountToBePaidForDetailLine(invoice, invoiceDetail));
+            }
+            for (Payment payment : payments) {
+                writeLine(writer, values, payment.getDate(), payment.getDescription(), payment.getAmount().negate());
+            }
+        }
+        write(writer, segmentsAfterLines, values);
+    }
+
+    private void writeLine(Writer writer, String[] values, Date date, String description, Amount amount) throws IOException {
+        values[Placeholder.LINE_DATE.ordinal()] = textResource.formatDate("gen.dateFormat", date);
+        values[Placeholder.LINE_DESCRIPTION.ordinal()] = description;
+        values[Placeholder.LINE_AMOUNT.ordinal()] = amountFormat.formatAmount(amount.toBigInteger());
+        write(writer, lineSegments, values);
+    }
+
+    private Amount getAmountToBePaid(Invoice invoice, List<InvoiceDetail> invoiceDetails, List<Payment> payments) {
+        Amount amountToBePaid = new Amount(BigInteger.ZERO);
+        for (InvoiceDetail invoiceDetail : invoiceDetails) {
+            amountToBePaid = amountToBePaid.add(getAmountToBePaidForDetailLine(invoice, invoiceDetail));
+        }
+        for (Payment payment : payments) {
+            amountToBePaid = amountToBePaid.subtract(payment.getAmount());
+        }
+        return amountToBePaid;
+    }
+
+    private Amount getAmountToBePaidForDetailLine(Invoice invoice, InvoiceDetail detailLine) {
+        return invoice.getAmountToBePaid().isNegative() ? detailLine.getAmount().negate() : detailLine.getAmount();
+    }
+
+    private static void write(Writer writer, Segment[] segments, String[] values) throws IOException {
+        for (Segment segment : segments) {
+            if (segment.placeholder == null) {
+                writer.write(segment.literal);
+            } else {
+                writeEscaped(writer, values[segment.placeholder.ordinal()]);
+            }
+        }
+    }
+
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        int start = 0;
+        for (int i=0; i<value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 32 || c > 127 || "&\"'<>".indexOf(c) != -1) {
+                writer.write(value, start, i - start);
+                writer.write("&#");
+                writer.write(Integer.toString(c));
+                writer.write(';');
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+    }
+
+    private static class Segment {
+        private final String literal;
+        private final Placeholder placeholder;
+
+        Segment(String literal, Placeholder placeholder) {
+            this.literal = literal;
+            this.placeholder = placeholder;
+        }
+    }
+}
@@ -5,14 +5,27 @@ import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.util.AmountInDatabase;
+import nl.gogognome.gogoaccount.util.MultiRowInsertDAO;
+import nl.gogognome.lib.text.Amount;
 import nl.gogognome.lib.util.StringUtil;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.toDay;
 
 class InvoiceDAO extends AbstractDomainClassDAO<Invoice> {
 
+    private final static String[] COLUMN_NAMES = { "id", "party_reference", "description", "issue_date", "amount_to_be_paid", "party_id" };
+
+    private final Document document;
+
     InvoiceDAO(Document document) {
         super("invoice", null, document.getBookkeepingId());
+        this.document = document;
     }
 
     public Invoice createWithNewId(String invoiceId, Invoice invoice) throws SQLException {
@@ -24,6 +37,53 @@ class InvoiceDAO extends AbstractDomainClassDAO<Invoice> {
         return getObjectFromResultSet(convertNameValuePairsToResultSet(nvp));
     }
 
+    /**
+     * Creates invoices that already have an id. The number of statements does not depend on the number of invoices,
+     * except for one statement per 500 invoices.
+     * @param invoices the invoices
+     */
+    public void createAll(List<Invoice> invoices) throws SQLException {
+        List<Object[]> rows = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            rows.add(new Object[] { invoice.getId(), invoice.getPartyReference(), invoice.getDescription(),
+                    invoice.getIssueDate() != null ? new java.sql.Date(invoice.getIssueDate().getTime()) : null,
+                    AmountInDatabase.toCents(invoice.getAmountToBePaid()), invoice.getPartyId() });
+        }
+        new MultiRowInsertDAO(document).insertRows(tableName, COLUMN_NAMES, rows);
+    }
+
+    public List<Invoice> findByIds(List<String> invoiceIds) throws SQLException {
+        return execute("SELECT * FROM " + tableName + " WHERE id IN (?)", invoiceIds)
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
+    /**
+     * Finds the invoices whose amount to be paid differs from the sum of the payments made up to and including a date.
+     * @param date the date
+     * @return the open invoices ordered by id
+     */
+    public List<Invoice> findOpenInvoices(Date date) throws SQLException {
+        return execute("SELECT i.* FROM " + tableName + " i " + joinAmountPaidUpToDate()
+                + " WHERE i.amount_to_be_paid <> COALESCE(p.amount_paid, 0) ORDER BY i.id", toDay(date))
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
+    /**
+     * Determines for all invoices the amount to be paid minus the payments made up to and including a date.
+     * @param date the date
+     * @return map from invoice id to remaining amount
+     */
+    public Map<String, Amount> getIdToRemainingAmount(Date date) throws SQLException {
+        return execute("SELECT i.id, i.amount_to_be_paid - COALESCE(p.amount_paid, 0) AS remaining_amount FROM " + tableName + " i "
+                + joinAmountPaidUpToDate(), toDay(date))
+                .toHashMap(r -> r.getString("id"), r -> AmountInDatabase.fromCents(r.getLong("remaining_amount")));
+    }
+
+    private String joinAmountPaidUpToDate() {
+        return "LEFT JOIN (SELECT invoice_id, SUM(amount) AS amount_paid FROM payment WHERE date <= ? GROUP BY invoice_id) p"
+                + " ON p.invoice_id = i.id";
+    }
+
     private int getPreviousSequenceNumber(String invoiceIdFormat, int startIndex, int endIndex) throws SQLException {
         String pattern = StringUtil.replace(invoiceIdFormat, startIndex, endIndex, StringUtil.prependToSize("", endIndex - startIndex, '_'));
         String previousId = execute("SELECT MAX(id) FROM " + tableName + " WHERE id LIKE '" + pattern + "'").findFirst(r -> r.getString(1));
@@ -46,7 +106,7 @@ class InvoiceDAO extends AbstractDomainClassDAO<Invoice> {
         invoice.setPartyReference(result.getString("party_reference"));
         invoice.setDescription(result.getString("description"));
         invoice.setIssueDate(result.getDate("issue_date"));
-        invoice.setAmountToBePaid(AmountInDatabase.parse(result.getString("amount_to_be_paid")));
+        invoice.setAmountToBePaid(AmountInDatabase.fromCents(result.getLong("amount_to_be_paid")));
         invoice.setPartyId(result.getString("party_id"));
         return invoice;
     }
@@ -58,7 +118,7 @@ class InvoiceDAO extends AbstractDomainClassDAO<Invoice> {
                 .add("party_reference", invoice.getPartyReference())
                 .add("description", invoice.getDescription())
                 .add("issue_date", invoice.getIssueDate())
-                .add("amount_to_be_paid", AmountInDatabase.format(invoice.getAmountToBePaid()))
+                .add("amount_to_be_paid", AmountInDatabase.toCents(invoice.getAmountToBePaid()))
                 .add("party_id", invoice.getPartyId());
     }
 }
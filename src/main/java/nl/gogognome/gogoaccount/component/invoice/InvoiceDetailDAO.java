@@ -5,10 +5,12 @@ import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.util.AmountInDatabase;
+import nl.gogognome.gogoaccount.util.MultiRowInsertDAO;
 import nl.gogognome.lib.collections.DefaultValueMap;
 import nl.gogognome.lib.text.Amount;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -18,8 +20,13 @@ import static java.util.Collections.emptyList;
 
 class InvoiceDetailDAO extends AbstractDomainClassDAO<InvoiceDetail> {
 
+    private final static String[] COLUMN_NAMES = { "id", "invoice_id", "description", "amount" };
+
+    private final Document document;
+
     public InvoiceDetailDAO(Document document) {
         super("invoice_detail", "domain_class_sequence", document.getBookkeepingId());
+        this.document = document;
     }
 
     public void createDetails(String invoiceId, List<String> descriptions, List<Amount> amounts) throws SQLException {
@@ -36,6 +43,23 @@ class InvoiceDetailDAO extends AbstractDomainClassDAO<InvoiceDetail> {
         }
     }
 
+    /**
+     * Creates invoice details. The number of statements does not depend on the number of invoice details,
+     * except for one statement per 500 invoice details.
+     * @param invoiceDetails the invoice details; their ids are ignored
+     */
+    public void createAll(List<InvoiceDetail> invoiceDetails) throws SQLException {
+        MultiRowInsertDAO multiRowInsertDAO = new MultiRowInsertDAO(document);
+        List<Long> ids = multiRowInsertDAO.getNextLongsFromSequence(sequenceName, invoiceDetails.size());
+        List<Object[]> rows = new ArrayList<>(invoiceDetails.size());
+        for (int i=0; i<invoiceDetails.size(); i++) {
+            InvoiceDetail invoiceDetail = invoiceDetails.get(i);
+            rows.add(new Object[] { ids.get(i), invoiceDetail.getInvoiceId(), invoiceDetail.getDescription(),
+                    AmountInDatabase.toCents(invoiceDetail.getAmount()) });
+        }
+        multiRowInsertDAO.insertRows(tableName, COLUMN_NAMES, rows);
+    }
+
     public void updateDetails(String invoiceId, List<String> newDescriptions, List<Amount> newAmounts) throws SQLException {
         deleteWhere(new NameValuePairs().add("invoice_id", invoiceId));
         createDetails(invoiceId, newDescriptions, newAmounts);
@@ -56,7 +80,7 @@ class InvoiceDetailDAO extends AbstractDomainClassDAO<InvoiceDetail> {
         InvoiceDetail invoiceDetail = new InvoiceDetail(result.getLong("id"));
         invoiceDetail.setInvoiceId(result.getString("invoice_id"));
         invoiceDetail.setDescription(result.getString("description"));
-        invoiceDetail.setAmount(AmountInDatabase.parse(result.getString("amount")));
+        invoiceDetail.setAmount(AmountInDatabase.fromCents(result.getLong("amount")));
         return invoiceDetail;
     }
 
@@ -66,6 +90,6 @@ class InvoiceDetailDAO extends AbstractDomainClassDAO<InvoiceDetail> {
                 .add("id", invoiceDetail.getId())
                 .add("invoice_id", invoiceDetail.getInvoiceId())
                 .add("description", invoiceDetail.getDescription())
-                .add("amount", AmountInDatabase.format(invoiceDetail.getAmount()));
+                .add("amount", AmountInDatabase.toCents(invoiceDetail.getAmount()));
     }
 }
@@ -0,0 +1,237 @@
+package nl.gogognome.gogoaccount.component.invoice;
+
+import nl.gogognome.gogoaccount.component.criterion.ObjectCriterionMatcher;
+import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges;
+import nl.gogognome.gogoaccount.component.document.DocumentListener;
+import nl.gogognome.gogoaccount.component.party.Party;
+import nl.gogognome.gogoaccount.component.party.PartyService;
+import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.lib.text.AmountAccumulator;
+import nl.gogognome.lib.text.AmountFormat;
+import nl.gogognome.lib.util.DateUtil;
+import nl.gogognome.textsearch.criteria.Criterion;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toMap;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.*;
+
+/**
+ * Keeps the invoice overviews of a document in memory, so that a search does not load all invoices, payments,
+ * invoice sendings and parties again. The overviews are built when the cache is used for the first time. After that
+ * only the overviews of the invoices affected by the changes reported to the document listeners are rebuilt.
+ * The texts that are matched against a criterion are determined once per overview.
+ *
+ * <p>The overviews are shared by all searches and must not be modified.</p>
+ */
+class InvoiceOverviewCache implements DocumentListener {
+
+    /** If more invoices have changed than this number, all overviews are rebuilt instead. */
+    private static final int MAX_NR_INVOICES_TO_PATCH = 500;
+
+    private final AmountFormat amountFormat;
+    private final PartyService partyService;
+    private final ObjectCriterionMatcher objectCriterionMatcher;
+
+    private final SortedMap<String, CachedInvoiceOverview> invoiceIdToOverview = new TreeMap<>();
+    private final Map<String, String> paymentIdToInvoiceId = new HashMap<>();
+
+    private final Set<String> changedInvoiceIds = new HashSet<>();
+    private final Set<String> changedPaymentIds = new HashSet<>();
+    private final Set<String> changedPartyIds = new HashSet<>();
+    private boolean rebuildNeeded = true;
+    private long notifiedVersion;
+
+    InvoiceOverviewCache(Document document, AmountFormat amountFormat, PartyService partyService, ObjectCriterionMatcher objectCriterionMatcher) {
+        this.amountFormat = amountFormat;
+        this.partyService = partyService;
+        this.objectCriterionMatcher = objectCriterionMatcher;
+        this.notifiedVersion = document.getVersion();
+    }
+
+    @Override
+    public synchronized void documentChanged(Document document) {
+        rebuildNeeded = true;
+        notifiedVersion = document.getVersion();
+    }
+
+    @Override
+    public synchronized void documentChanged(Document document, DocumentChanges changes) {
+        if (changes.hasUnspecifiedChanges()) {
+            rebuildNeeded = true;
+        } else {
+            changedInvoiceIds.addAll(changes.getChangedIds(INVOICE));
+            changedPaymentIds.addAll(changes.getChangedIds(PAYMENT));
+            changedPartyIds.addAll(changes.getChangedIds(PARTY));
+        }
+        notifiedVersion = document.getVersion();
+    }
+
+    /**
+     * Finds the invoice overviews that match a criterion. This method must be called within a transaction.
+     * @param document the document
+     * @param criterion the criterion; null matches all invoices
+     * @param includeClosedInvoices true if invoices that have been paid exactly must be included
+     * @return the matching overviews ordered by invoice id
+     */
+    synchronized List<InvoiceOverview> findInvoiceOverviews(Document document, Criterion criterion, boolean includeClosedInvoices)
+            throws SQLException, ServiceException {
+        Collection<CachedInvoiceOverview> overviews;
+        if (document.getVersion() != notifiedVersion) {
+            // The document has been changed in the current transaction. These changes are reported to
+            // the listeners when the transaction closes. Until then the cache cannot be used.
+            overviews = buildOverviews(new InvoiceDAO(document).findAll(), new PaymentDAO(document).findAll(),
+                    new InvoiceSendingDAO(document).findAll(), partyService.findAllParties(document));
+        } else {
+            updateChangedOverviews(document);
+            overviews = invoiceIdToOverview.values();
+        }
+
+        List<InvoiceOverview> result = new ArrayList<>();
+        for (CachedInvoiceOverview cachedOverview : overviews) {
+            InvoiceOverview overview = cachedOverview.overview;
+            if ((includeClosedInvoices || !overview.getAmountToBePaid().equals(overview.getAmountPaid()))
+                    && (criterion == null || objectCriterionMatcher.matchesTextElements(criterion, cachedOverview.textElements))) {
+                result.add(overview);
+            }
+        }
+        return result;
+    }
+
+    private void updateChangedOverviews(Document document) throws SQLException, ServiceException {
+        Set<String> invoiceIds = new HashSet<>(changedInvoiceIds);
+        if (!rebuildNeeded) {
+            addInvoiceIdsOfChangedPayments(document, invoiceIds);
+            for (CachedInvoiceOverview cachedOverview : invoiceIdToOverview.values()) {
+                if (changedPartyIds.contains(cachedOverview.overview.getPartyId())) {
+                    invoiceIds.add(cachedOverview.overview.getId());
+                }
+            }
+        }
+
+        if (rebuildNeeded || invoiceIds.size() > MAX_NR_INVOICES_TO_PATCH) {
+            invoiceIdToOverview.clear();
+            paymentIdToInvoiceId.clear();
+            List<Payment> payments = new PaymentDAO(document).findAll();
+            store(buildOverviews(new InvoiceDAO(document).findAll(), payments,
+                    new InvoiceSendingDAO(document).findAll(), partyService.findAllParties(document)), payments);
+        } else if (!invoiceIds.isEmpty()) {
+            List<String> ids = new ArrayList<>(invoiceIds);
+            for (String id : ids) {
+                invoiceIdToOverview.remove(id);
+            }
+            paymentIdToInvoiceId.values().removeAll(invoiceIds);
+
+            List<Invoice> invoices = new InvoiceDAO(document).findByIds(ids);
+            List<Payment> payments = new PaymentDAO(document).findForInvoices(ids);
+            List<String> partyIds = invoices.stream().map(Invoice::getPartyId).distinct().toList();
+            List<Party> parties = partyIds.isEmpty() ? emptyList() : new ArrayList<>(partyService.getIdToParty(document, partyIds).values());
+            store(buildOverviews(invoices, payments, new InvoiceSendingDAO(document).findForInvoices(ids), parties), payments);
+        }
+
+        rebuildNeeded = false;
+        changedInvoiceIds.clear();
+        changedPaymentIds.clear();
+        changedPartyIds.clear();
+    }
+
+    /**
+     * Adds the ids of the invoices of the changed payments. Removed payments are looked up in the cache;
+     * new payments are looked up in the database.
+     */
+    private void addInvoiceIdsOfChangedPayments(Document document, Set<String> invoiceIds) throws SQLException {
+        List<String> unknownPaymentIds = new ArrayList<>();
+        for (String paymentId : changedPaymentIds) {
+            String invoiceId = paymentIdToInvoiceId.get(paymentId);
+            if (invoiceId != null) {
+                invoiceIds.add(invoiceId);
+            } else {
+                unknownPaymentIds.add(paymentId);
+            }
+        }
+        if (!unknownPaymentIds.isEmpty()) {
+            invoiceIds.addAll(new PaymentDAO(document).findInvoiceIdsOfPayments(unknownPaymentIds));
+        }
+    }
+
+    private void store(List<CachedInvoiceOverview> overviews, List<Payment> payments) {
+        for (CachedInvoiceOverview overview : overviews) {
+            invoiceIdToOverview.put(overview.overview.getId(), overview);
+        }
+        for (Payment payment : payments) {
+            paymentIdToInvoiceId.put(payment.getId(), payment.getInvoiceId());
+        }
+    }
+
+    private List<CachedInvoiceOverview> buildOverviews(List<Invoice> invoices, List<Payment> payments,
+            List<InvoiceSending> invoiceSendings, List<Party> parties) {
+        Map<String, List<Payment>> invoiceIdToPayments = payments.stream().collect(groupingBy(Payment::getInvoiceId));
+        Map<String, InvoiceSending> invoiceIdToLastSending = new HashMap<>();
+        invoiceSendings.forEach(s -> {
+            if (!invoiceIdToLastSending.containsKey(s.getInvoiceId())
+                    || DateUtil.compareDayOfYear(invoiceIdToLastSending.get(s.getInvoiceId()).getDate(), s.getDate()) < 0) {
+                invoiceIdToLastSending.put(s.getInvoiceId(), s);
+            }
+        });
+        Map<String, Party> partyIdToParty = parties.stream().collect(toMap(Party::getId, party -> party));
+
+        List<CachedInvoiceOverview> overviews = new ArrayList<>(invoices.size());
+        for (Invoice invoice : invoices) {
+            InvoiceOverview overview = buildInvoiceOverview(invoice, invoiceIdToPayments, invoiceIdToLastSending, partyIdToParty);
+            overviews.add(new CachedInvoiceOverview(overview,
+                    objectCriterionMatcher.toTextElements(getSearchableValues(overview, amountFormat))));
+        }
+        overviews.sort(Comparator.comparing(o -> o.overview.getId()));
+        return overviews;
+    }
+
+    private InvoiceOverview buildInvoiceOverview(Invoice invoice, Map<String, List<Payment>> invoiceIdToPayments,
+            Map<String, InvoiceSending> invoiceIdToLastInvoiceSending, Map<String, Party> partyIdToParty) {
+        InvoiceOverview overview = new InvoiceOverview(invoice.getId());
+        overview.setPartyReference(invoice.getPartyReference());
+        overview.setDescription(invoice.getDescription());
+        overview.setIssueDate(invoice.getIssueDate());
+        overview.setAmountToBePaid(invoice.getAmountToBePaid());
+        overview.setPartyId(invoice.getPartyId());
+        AmountAccumulator amountPaid = new AmountAccumulator();
+        for (Payment payment : invoiceIdToPayments.getOrDefault(invoice.getId(), emptyList())) {
+            amountPaid.add(payment.getAmount());
+        }
+        overview.setAmountPaid(amountPaid.toAmount());
+        overview.setPartyName(partyIdToParty.get(invoice.getPartyId()).getName());
+        overview.setPartyEmailAddress(partyIdToParty.get(invoice.getPartyId()).getEmailAddress());
+        overview.setPartyRemarks(partyIdToParty.get(invoice.getPartyId()).getRemarks());
+        overview.setLastSending(invoiceIdToLastInvoiceSending.get(invoice.getId()));
+        return overview;
+    }
+
+    /**
+     * @return the values of an invoice overview that are matched against a criterion
+     */
+    static Object[] getSearchableValues(InvoiceOverview invoiceOverview, AmountFormat amountFormat) {
+        return new Object[] {
+                amountFormat.formatAmount(invoiceOverview.getAmountPaid().toBigInteger()),
+                amountFormat.formatAmount(invoiceOverview.getAmountToBePaid().toBigInteger()),
+                invoiceOverview.getDescription(),
+                invoiceOverview.getId(),
+                invoiceOverview.getPartyReference(),
+                invoiceOverview.getIssueDate(),
+                invoiceOverview.getPartyId(),
+                invoiceOverview.getPartyName()
+        };
+    }
+
+    private static class CachedInvoiceOverview {
+        private final InvoiceOverview overview;
+        private final String[] textElements;
+
+        CachedInvoiceOverview(InvoiceOverview overview, String[] textElements) {
+            this.overview = overview;
+            this.textElements = textElements;
+        }
+    }
+}
@@ -4,13 +4,45 @@ import nl.gogognome.dataaccess.dao.AbstractDomainClassDAO;
 import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.util.MultiRowInsertDAO;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.toDay;
 
 class InvoiceSendingDAO extends AbstractDomainClassDAO<InvoiceSending> {
 
+    private final static String[] COLUMN_NAMES = { "id", "invoice_id", "date", "type" };
+
+    private final Document document;
+
     public InvoiceSendingDAO(Document document) {
         super("invoice_sending", "domain_class_sequence", document.getBookkeepingId());
+        this.document = document;
+    }
+
+    /**
+     * Creates invoice sendings. The number of statements does not depend on the number of invoice sendings,
+     * except for one statement per 500 invoice sendings.
+     * @param invoiceSendings the invoice sendings; their ids are ignored
+     */
+    public void createAll(List<InvoiceSending> invoiceSendings) throws SQLException {
+        MultiRowInsertDAO multiRowInsertDAO = new MultiRowInsertDAO(document);
+        List<Long> ids = multiRowInsertDAO.getNextLongsFromSequence(sequenceName, invoiceSendings.size());
+        List<Object[]> rows = new ArrayList<>(invoiceSendings.size());
+        for (int i=0; i<invoiceSendings.size(); i++) {
+            InvoiceSending invoiceSending = invoiceSendings.get(i);
+            rows.add(new Object[] { ids.get(i), invoiceSending.getInvoiceId(), toDay(invoiceSending.getDate()),
+                    invoiceSending.getType().name() });
+        }
+        multiRowInsertDAO.insertRows(tableName, COLUMN_NAMES, rows);
+    }
+
+    public List<InvoiceSending> findForInvoices(List<String> invoiceIds) throws SQLException {
+        return execute("SELECT * FROM " + tableName + " WHERE invoice_id IN (?)", invoiceIds)
+                .toList(r -> getObjectFromResultSet(r));
     }
 
     @Override
@@ -14,16 +14,19 @@ import nl.gogognome.lib.text.TextResource;
 import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.textsearch.criteria.Criterion;
 
-import java.math.BigInteger;
 import java.util.*;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.*;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.INVOICE;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PAYMENT;
 import static nl.gogognome.gogoaccount.component.invoice.InvoiceTemplate.Type.SALE;
 
 public class InvoiceService {
 
     private final ObjectCriterionMatcher objectCriterionMatcher = new ObjectCriterionMatcher();
+    private final Map<Document, InvoiceOverviewCache> documentToInvoiceOverviewCache = new WeakHashMap<>();
 
     private final AmountFormat amountFormat;
     private final PartyService partyService;
@@ -45,6 +48,11 @@ public class InvoiceService {
         return ServiceTransaction.withResult(() -> new InvoiceDAO(document).findAll("id"));
     }
 
+    public Map<String, Invoice> getIdToInvoice(Document document, List<String> invoiceIds) throws ServiceException {
+        return ServiceTransaction.withResult(() -> new InvoiceDAO(document).findByIds(invoiceIds).stream()
+                .collect(toMap(Invoice::getId, invoice -> invoice)));
+    }
+
     public Invoice create(Document document, String invoiceIdFormat, InvoiceDefinition invoiceDefinition) throws ServiceException {
         return ServiceTransaction.withResult(() -> {
             document.ensureDocumentIsWriteable();
@@ -67,12 +75,61 @@ public class InvoiceService {
             List<Amount> amounts = invoiceDefinition.getLines().stream().map(InvoiceDefinitionLine::getAmount).collect(toList());
             invoiceDetailsDAO.createDetails(invoice.getId(), descriptions, amounts);
 
-            document.notifyChange();
+            document.notifyChange(INVOICE, invoice.getId());
             return invoice;
         });
     }
 
-    private void validateInvoice(InvoiceDefinition invoiceDefinition) throws ServiceException {
+    /**
+     * Creates invoices for a number of invoice definitions. A block of invoice ids is reserved at once and the
+     * invoices and their details are stored with a number of statements that does not depend on the number of
+     * invoices. The listeners of the document are notified once.
+     * @param document the document
+     * @param invoiceIdFormat the format of the invoice ids
+     * @param invoiceDefinitions the invoice definitions; they must have been validated
+     *        with {@link #validateInvoice(InvoiceDefinition)}
+     * @return the created invoices in the same order as the invoice definitions
+     */
+    public List<Invoice> createAll(Document document, String invoiceIdFormat, List<InvoiceDefinition> invoiceDefinitions) throws ServiceException {
+        return ServiceTransaction.withResult(() -> {
+            document.ensureDocumentIsWriteable();
+            Iterator<String> invoiceIds = settingsService.reserveIds(document, "previousInvoiceId", invoiceIdFormat, invoiceDefinitions.size());
+
+            List<Invoice> invoices = new ArrayList<>(invoiceDefinitions.size());
+            List<InvoiceDetail> invoiceDetails = new ArrayList<>();
+            for (InvoiceDefinition invoiceDefinition : invoiceDefinitions) {
+                Invoice invoice = new Invoice(invoiceIds.next());
+                invoice.setPartyReference(invoiceDefinition.getPartyReference());
+                invoice.setDescription(invoiceDefinition.getDescription());
+                invoice.setPartyId(invoiceDefinition.getParty().getId());
+                Amount totalAmount = invoiceDefinition.getTotalAmount();
+                invoice.setAmountToBePaid(invoiceDefinition.getType() == SALE ? totalAmount : totalAmount.negate());
+                invoice.setIssueDate(invoiceDefinition.getIssueDate());
+                invoices.add(invoice);
+
+                for (InvoiceDefinitionLine line : invoiceDefinition.getLines()) {
+                    InvoiceDetail invoiceDetail = new InvoiceDetail();
+                    invoiceDetail.setInvoiceId(invoice.getId());
+                    invoiceDetail.setDescription(line.getDescription());
+                    invoiceDetail.setAmount(line.getAmount());
+                    invoiceDetails.add(invoiceDetail);
+                }
+            }
+
+            new InvoiceDAO(document).createAll(invoices);
+            new InvoiceDetailDAO(document).createAll(invoiceDetails);
+
+            document.notifyChange(INVOICE, invoices.stream().map(Invoice::getId).toList());
+            return invoices;
+        });
+    }
+
+    /**
+     * Validates an invoice definition.
+     * @param invoiceDefinition the invoice definition
+     * @throws ServiceException if the invoice definition is invalid
+     */
+    public void validateInvoice(InvoiceDefinition invoiceDefinition) throws ServiceException {
         if (invoiceDefinition.getIssueDate() == null) {
             throw new ServiceException(textResource.getString("InvoiceService.issueDateNull"));
         }
@@ -141,10 +198,14 @@ public class InvoiceService {
      */
     public List<Invoice> findInvoices(Document document, InvoiceSearchCriteria searchCriteria) throws ServiceException {
         return ServiceTransaction.withResult(() -> {
-            List<Invoice> invoices = new InvoiceDAO(document).findAll("id");
+            InvoiceDAO invoiceDAO = new InvoiceDAO(document);
+            List<Invoice> invoices = searchCriteria.areClosedInvoicesIncluded() ? invoiceDAO.findAll("id") : invoiceDAO.findOpenInvoices(new Date());
+            Map<String, Party> idToParty = searchCriteria.getName() != null
+                    ? partyService.findAllParties(document).stream().collect(toMap(Party::getId, party -> party))
+                    : emptyMap();
             List<Invoice> matchingInvoices = new ArrayList<>();
             for (Invoice invoice : invoices) {
-                if (matches(document, searchCriteria, invoice)) {
+                if (matches(searchCriteria, invoice, idToParty)) {
                     matchingInvoices.add(invoice);
                 }
             }
@@ -152,6 +213,28 @@ public class InvoiceService {
         });
     }
 
+    /**
+     * Finds the invoices that have not been paid completely at a date. The remaining amounts of all invoices are
+     * determined by a single query.
+     * @param document database containing the bookkeeping
+     * @param date the date for which the remaining amounts have to be determined
+     * @return the open invoices ordered by id
+     */
+    public List<Invoice> findOpenInvoices(Document document, Date date) throws ServiceException {
+        return ServiceTransaction.withResult(() -> new InvoiceDAO(document).findOpenInvoices(date));
+    }
+
+    /**
+     * Gets for all invoices the amount that has to be paid minus the payments that have been made up to
+     * and including a date. The remaining amounts are determined by a single query.
+     * @param document database containing the bookkeeping
+     * @param date the date for which the remaining amounts have to be determined
+     * @return map from invoice id to remaining amount
+     */
+    public Map<String, Amount> getRemainingAmounts(Document document, Date date) throws ServiceException {
+        return ServiceTransaction.withResult(() -> new InvoiceDAO(document).getIdToRemainingAmount(date));
+    }
+
     public void createDetails(Document document, Invoice invoice, List<String> descriptions, List<Amount> amounts) throws ServiceException {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
@@ -174,7 +257,7 @@ public class InvoiceService {
             document.ensureDocumentIsWriteable();
             new InvoiceDAO(document).update(invoice);
             new InvoiceDetailDAO(document).updateDetails(invoice.getId(), newDescriptions, newAmounts);
-            document.notifyChange();
+            document.notifyChange(INVOICE, invoice.getId());
         });
     }
 
@@ -182,7 +265,7 @@ public class InvoiceService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new InvoiceDAO(document).delete(invoiceId);
-            document.notifyChange();
+            document.notifyChange(INVOICE, invoiceId);
         });
     }
 
@@ -201,21 +284,19 @@ public class InvoiceService {
     }
 
     /**
-     * Checks whether the specified <code>Invoice</code> matches these criteria.
+     * Checks whether the specified <code>Invoice</code> matches the id and name of the criteria.
+     * Open invoices have already been selected by the query.
      * @param invoice the invoice
      * @return <code>true</code> if the invoice matches the criteria,
      *          <code>false</code> otherwise
      */
-    private boolean matches(Document document, InvoiceSearchCriteria searchCriteria, Invoice invoice) throws ServiceException {
+    private boolean matches(InvoiceSearchCriteria searchCriteria, Invoice invoice, Map<String, Party> idToParty) {
         boolean matches = true;
         if (searchCriteria.getId() != null) {
             matches = matches && matches(searchCriteria.getId(), invoice.getId());
         }
         if (searchCriteria.getName() != null) {
-            matches = matches && matches(searchCriteria.getName(), partyService.getParty(document, invoice.getPartyId()).getName());
-        }
-        if (!searchCriteria.areClosedInvoicesIncluded()) {
-            matches = matches && !isPaid(document, invoice.getId(), new Date());
+            matches = matches && matches(searchCriteria.getName(), idToParty.get(invoice.getPartyId()).getName());
         }
         return matches;
     }
@@ -256,9 +337,11 @@ public class InvoiceService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             PaymentDAO paymentDAO = new PaymentDAO(document);
+            List<String> paymentIds = new ArrayList<>();
             for (Payment payment : payments) {
-                paymentDAO.create(payment);
+                paymentIds.add(paymentDAO.create(payment).getId());
             }
+            document.notifyChange(PAYMENT, paymentIds);
         });
     }
 
@@ -266,7 +349,7 @@ public class InvoiceService {
         return ServiceTransaction.withResult(() -> {
             document.ensureDocumentIsWriteable();
             Payment createdPayment = new PaymentDAO(document).create(payment);
-            document.notifyChange();
+            document.notifyChange(PAYMENT, createdPayment.getId());
             return createdPayment;
         });
     }
@@ -275,7 +358,7 @@ public class InvoiceService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new PaymentDAO(document).delete(paymentId);
-            document.notifyChange();
+            document.notifyChange(PAYMENT, paymentId);
         });
     }
 
@@ -283,49 +366,28 @@ public class InvoiceService {
         return ServiceTransaction.withResult(() -> new PaymentDAO(document).hasPayments(invoiceId));
     }
 
+    /**
+     * Finds the overviews of the invoices that match a criterion. The overviews are kept in memory per document
+     * and are updated when invoices, payments or parties change. The returned overviews must not be modified.
+     * @param document the document
+     * @param criterion the criterion; null matches all invoices
+     * @param includeClosedInvoices true if invoices that have been paid exactly must be included
+     * @return the matching overviews ordered by invoice id
+     */
     public List<InvoiceOverview> findInvoiceOverviews(Document document, Criterion criterion, boolean includeClosedInvoices) throws ServiceException {
-        return ServiceTransaction.withResult(() -> {
-            List<Invoice> invoices = new InvoiceDAO(document).findAll();
-            Map<String, List<Payment>> invoiceIdToPayments = new PaymentDAO(document).findAll()
-                    .stream()
-                    .collect(groupingBy(Payment::getInvoiceId));
-            Map<String, InvoiceSending> invoiceIdToLastSending = new HashMap<>();
-            new InvoiceSendingDAO(document).findAll()
-                    .forEach(s -> {
-                        if (!invoiceIdToLastSending.containsKey(s.getInvoiceId())
-                                || DateUtil.compareDayOfYear(invoiceIdToLastSending.get(s.getInvoiceId()).getDate(), s.getDate()) < 0) {
-                            invoiceIdToLastSending.put(s.getInvoiceId(), s);
-                        }
-                    });
-
-            Map<String, Party> partyIdToParty = partyService.findAllParties(document)
-                    .stream()
-                    .collect(toMap(Party::getId, party -> party));
-            return invoices.stream()
-                    .map(invoice -> buildInvoiceOverview(invoice, invoiceIdToPayments, invoiceIdToLastSending, partyIdToParty))
-                    .filter(overview -> includeClosedInvoices || !overview.getAmountToBePaid().equals(overview.getAmountPaid()))
-                    .filter(overview -> matches(criterion, overview, amountFormat))
-                    .collect(toList());
-        });
+        return ServiceTransaction.withResult(() -> getInvoiceOverviewCache(document).findInvoiceOverviews(document, criterion, includeClosedInvoices));
     }
 
-    private InvoiceOverview buildInvoiceOverview(Invoice invoice, Map<String, List<Payment>> invoiceIdToPayments,
-            Map<String, InvoiceSending> invoiceIdToLastInvoiceSending, Map<String, Party> partyIdToParty) {
-        InvoiceOverview overview = new InvoiceOverview(invoice.getId());
-        overview.setPartyReference(invoice.getPartyReference());
-        overview.setDescription(invoice.getDescription());
-        overview.setIssueDate(invoice.getIssueDate());
-        overview.setAmountToBePaid(invoice.getAmountToBePaid());
-        overview.setPartyId(invoice.getPartyId());
-        List<Payment> payments = invoiceIdToPayments.getOrDefault(invoice.getId(), emptyList());
-        overview.setAmountPaid(payments.stream()
-                .map(Payment::getAmount)
-                .reduce(new Amount(BigInteger.ZERO), (a, b) -> a.add(b)));
-        overview.setPartyName(partyIdToParty.get(invoice.getPartyId()).getName());
-        overview.setPartyEmailAddress(partyIdToParty.get(invoice.getPartyId()).getEmailAddress());
-        overview.setPartyRemarks(partyIdToParty.get(invoice.getPartyId()).getRemarks());
-        overview.setLastSending(invoiceIdToLastInvoiceSending.get(invoice.getId()));
-        return overview;
+    private InvoiceOverviewCache getInvoiceOverviewCache(Document document) {
+        synchronized (documentToInvoiceOverviewCache) {
+            InvoiceOverviewCache cache = documentToInvoiceOverviewCache.get(document);
+            if (cache == null) {
+                cache = new InvoiceOverviewCache(document, amountFormat, partyService, objectCriterionMatcher);
+                document.addListener(cache);
+                documentToInvoiceOverviewCache.put(document, cache);
+            }
+            return cache;
+        }
     }
 
     protected boolean matches(Criterion criterion, InvoiceOverview invoiceOverview, AmountFormat amountFormat) {
@@ -333,15 +395,7 @@ public class InvoiceService {
             return true;
         }
 
-        return objectCriterionMatcher.matches(criterion,
-                amountFormat.formatAmount(invoiceOverview.getAmountPaid().toBigInteger()),
-                amountFormat.formatAmount(invoiceOverview.getAmountToBePaid().toBigInteger()),
-                invoiceOverview.getDescription(),
-                invoiceOverview.getId(),
-                invoiceOverview.getPartyReference(),
-                invoiceOverview.getIssueDate(),
-                invoiceOverview.getPartyId(),
-                invoiceOverview.getPartyName());
+        return objectCriterionMatcher.matches(criterion, InvoiceOverviewCache.getSearchableValues(invoiceOverview, amountFormat));
     }
 
     public DefaultValueMap<String,List<InvoiceDetail>> getIdToInvoiceDetails(Document document, List<String> invoiceIds) throws ServiceException {
@@ -364,7 +418,34 @@ public class InvoiceService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new InvoiceSendingDAO(document).create(invoiceSending);
-            document.notifyChange();
+            document.notifyChange(INVOICE, invoiceSending.getInvoiceId());
+        });
+    }
+
+    /**
+     * Records that a number of invoices have been sent. The invoice sendings are created in one transaction
+     * and the listeners of the document are notified once.
+     * @param document the document
+     * @param invoices the invoices that have been sent
+     * @param type the way the invoices have been sent
+     */
+    public void createInvoiceSendings(Document document, List<Invoice> invoices, InvoiceSending.Type type) throws ServiceException {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        ServiceTransaction.withoutResult(() -> {
+            document.ensureDocumentIsWriteable();
+            Date now = DateUtil.createNow();
+            List<InvoiceSending> invoiceSendings = new ArrayList<>(invoices.size());
+            for (Invoice invoice : invoices) {
+                InvoiceSending invoiceSending = new InvoiceSending();
+                invoiceSending.setDate(now);
+                invoiceSending.setInvoiceId(invoice.getId());
+                invoiceSending.setType(type);
+                invoiceSendings.add(invoiceSending);
+            }
+            new InvoiceSendingDAO(document).createAll(invoiceSendings);
+            document.notifyChange(INVOICE, invoices.stream().map(Invoice::getId).toList());
         });
     }
 
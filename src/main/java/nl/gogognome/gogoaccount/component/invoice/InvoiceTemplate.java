@@ -1,5 +1,6 @@
 package nl.gogognome.gogoaccount.component.invoice;
 
+import nl.gogognome.gogoaccount.component.invoice.amountformula.AmountFormulaEvaluator;
 import nl.gogognome.gogoaccount.component.party.Party;
 import nl.gogognome.lib.text.Amount;
 
@@ -19,6 +20,7 @@ public class InvoiceTemplate {
     private final Date issueDate;
     private String description;
     private final List<InvoiceTemplateLine> invoiceTemplateLines;
+    private AmountFormulaEvaluator amountFormulaEvaluator;
 
     public InvoiceTemplate(Type type, String partyReference, Date issueDate, String description, List<InvoiceTemplateLine> invoiceTemplateLines) {
         this.type = type;
@@ -48,13 +50,25 @@ public class InvoiceTemplate {
         return invoiceTemplateLines;
     }
 
+    /**
+     * Gets the invoice definition for a party. The amount formulas are evaluated once per distinct
+     * combination of tags; parties with the same tags reuse the amounts.
+     * This method is not thread safe.
+     * @param party the party
+     * @param partyTags the tags of the party
+     * @return the invoice definition
+     */
     public InvoiceDefinition getInvoiceDefinitionFor(Party party, List<String> partyTags) {
-        List<InvoiceDefinitionLine> resultLineDefinitions = new ArrayList<>();
+        if (amountFormulaEvaluator == null) {
+            amountFormulaEvaluator = new AmountFormulaEvaluator(invoiceTemplateLines.stream().map(InvoiceTemplateLine::getAmountFormula).toList());
+        }
+        Amount[] amounts = amountFormulaEvaluator.getAmounts(partyTags);
 
-        for (InvoiceTemplateLine line : invoiceTemplateLines) {
-            Amount amount =  line.getAmountFormula().getAmount(partyTags);
-            if (amount != null) {
-                resultLineDefinitions.add(new InvoiceDefinitionLine(amount, line.getDescription(), line.getAccount()));
+        List<InvoiceDefinitionLine> resultLineDefinitions = new ArrayList<>(amounts.length);
+        for (int i=0; i<amounts.length; i++) {
+            if (amounts[i] != null) {
+                InvoiceTemplateLine line = invoiceTemplateLines.get(i);
+                resultLineDefinitions.add(new InvoiceDefinitionLine(amounts[i], line.getDescription(), line.getAccount()));
             }
         }
         return new InvoiceDefinition(party, type, getPartyReference(), issueDate, replaceKeywords(getDescription(), party), resultLineDefinitions);
@@ -31,7 +31,7 @@ class PaymentDAO extends AbstractDomainClassDAO<Payment> {
         payment.setInvoiceId(result.getString("invoice_id"));
         payment.setDescription(result.getString("description"));
         payment.setDate(result.getDate("date"));
-        payment.setAmount(AmountInDatabase.parse(result.getString("amount")));
+        payment.setAmount(AmountInDatabase.fromCents(result.getLong("amount")));
         return payment;
     }
 
@@ -45,6 +45,16 @@ class PaymentDAO extends AbstractDomainClassDAO<Payment> {
         return new DefaultValueMap<>(invoiceIdToPayments, emptyList());
     }
 
+    public List<Payment> findForInvoices(List<String> invoiceIds) throws SQLException {
+        return execute("SELECT * FROM " + tableName + " WHERE invoice_id IN (?)", invoiceIds)
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
+    public List<String> findInvoiceIdsOfPayments(List<String> paymentIds) throws SQLException {
+        return execute("SELECT DISTINCT invoice_id FROM " + tableName + " WHERE id IN (?)", paymentIds)
+                .toList(r -> r.getString(1));
+    }
+
     @Override
     protected NameValuePairs getNameValuePairs(Payment payment) throws SQLException {
         return new NameValuePairs()
@@ -52,7 +62,7 @@ class PaymentDAO extends AbstractDomainClassDAO<Payment> {
                 .add("invoice_id", payment.getInvoiceId())
                 .add("description", payment.getDescription())
                 .add("date", payment.getDate())
-                .add("amount", AmountInDatabase.format(payment.getAmount()));
+                .add("amount", AmountInDatabase.toCents(payment.getAmount()));
     }
 
     @Override
@@ -0,0 +1,50 @@
+package nl.gogognome.gogoaccount.component.invoice.amountformula;
+
+import nl.gogognome.lib.text.Amount;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a number of amount formulas for many parties. The tags of a party are interned and represented
+ * as a bit set. Many parties share the same combination of tags, so the formulas are evaluated once per
+ * distinct combination of tags and the amounts are reused for the other parties with that combination.
+ *
+ * <p>Instances are not thread safe.</p>
+ */
+public class AmountFormulaEvaluator {
+
+    private final List<AmountFormula> amountFormulas;
+    private final Map<String, Integer> tagToId = new HashMap<>();
+    private final Map<BitSet, Amount[]> tagSetToAmounts = new HashMap<>();
+    private final BitSet tagSet = new BitSet();
+
+    public AmountFormulaEvaluator(List<AmountFormula> amountFormulas) {
+        this.amountFormulas = amountFormulas;
+    }
+
+    /**
+     * Gets the amounts of the formulas for a party.
+     * @param partyTags the tags of the party
+     * @return the amounts in the order of the formulas; an amount is null if its formula has no amount for the tags.
+     *         The array is shared by all parties with the same combination of tags and must not be modified.
+     */
+    public Amount[] getAmounts(List<String> partyTags) {
+        tagSet.clear();
+        for (String tag : partyTags) {
+            tagSet.set(tagToId.computeIfAbsent(tag, t -> tagToId.size()));
+        }
+
+        Amount[] amounts = tagSetToAmounts.get(tagSet);
+        if (amounts == null) {
+            amounts = new Amount[amountFormulas.size()];
+            for (int i=0; i<amounts.length; i++) {
+                amounts[i] = amountFormulas.get(i).getAmount(partyTags);
+            }
+            tagSetToAmounts.put((BitSet) tagSet.clone(), amounts);
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,102 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import nl.gogognome.dataaccess.dao.AbstractDAO;
+import nl.gogognome.gogoaccount.component.document.Document;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.toDay;
+
+/**
+ * Maintains the mutation per account per day. The mutation of a row is the sum of the debet amounts minus the sum
+ * of the credit amounts booked on the account on the date of the row. Booking a journal entry changes one row
+ * per account; the balance of an account at a date is the sum of the mutations up to and including that date.
+ */
+class AccountDailyMutationDAO extends AbstractDAO {
+
+    public AccountDailyMutationDAO(Document document) {
+        super(document.getBookkeepingId());
+    }
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    /**
+     * Adds mutations to the balances of accounts. One statement is executed per 500 accounts and days,
+     * so the number of statements hardly depends on the number of mutations. Mutations of zero are skipped.
+     * @param dateToAccountIdToDebetAmount the mutations in cents by date and account id; positive for debet
+     *                                     and negative for credit amounts
+     */
+    public void addMutations(Map<Date, Map<String, Long>> dateToAccountIdToDebetAmount) throws SQLException {
+        // Dates with different times fall on the same day. A MERGE statement must not contain the same key twice.
+        Map<java.sql.Date, Map<String, Long>> dayToAccountIdToDebetAmount = new LinkedHashMap<>();
+        for (Map.Entry<Date, Map<String, Long>> dateEntry : dateToAccountIdToDebetAmount.entrySet()) {
+            Map<String, Long> accountIdToDebetAmount =
+                    dayToAccountIdToDebetAmount.computeIfAbsent(toDay(dateEntry.getKey()), day -> new LinkedHashMap<>());
+            dateEntry.getValue().forEach((accountId, amount) -> accountIdToDebetAmount.merge(accountId, amount, Long::sum));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<java.sql.Date, Map<String, Long>> dayEntry : dayToAccountIdToDebetAmount.entrySet()) {
+            for (Map.Entry<String, Long> accountEntry : dayEntry.getValue().entrySet()) {
+                if (accountEntry.getValue() != 0) {
+                    rows.add(new Object[] { accountEntry.getKey(), dayEntry.getKey(), accountEntry.getValue() });
+                }
+            }
+        }
+        for (int start = 0; start < rows.size(); start += MAX_ROWS_PER_STATEMENT) {
+            List<Object[]> chunk = rows.subList(start, Math.min(rows.size(), start + MAX_ROWS_PER_STATEMENT));
+            mergeMutations(chunk);
+        }
+    }
+
+    /**
+     * Adds the mutations with one MERGE statement. The new mutation of a row is the added amount plus the
+     * mutation that is already stored for the account and date, if any.
+     */
+    private void mergeMutations(List<Object[]> rows) throws SQLException {
+        StringBuilder sql = new StringBuilder("MERGE INTO account_daily_mutation (account_id, date, mutation) KEY (account_id, date) VALUES ");
+        Object[] parameters = new Object[rows.size() * 5];
+        int index = 0;
+        for (Object[] row : rows) {
+            if (index > 0) {
+                sql.append(',');
+            }
+            sql.append("(?, ?, ? + COALESCE((SELECT m.mutation FROM account_daily_mutation m WHERE m.account_id=? AND m.date=?), 0))");
+            parameters[index++] = row[0];
+            parameters[index++] = row[1];
+            parameters[index++] = row[2];
+            parameters[index++] = row[0];
+            parameters[index++] = row[1];
+        }
+        execute(sql.toString(), parameters).ignoreResult();
+    }
+
+    /**
+     * Gets the balance of an account at the end of the specified date.
+     * @param accountId the id of the account
+     * @param date the date
+     * @return the sum of the debet amounts minus the sum of the credit amounts in cents
+     */
+    public long getDebetBalance(String accountId, Date date) throws SQLException {
+        Long balance = execute("SELECT SUM(mutation) FROM account_daily_mutation WHERE account_id=? AND date<=?",
+                accountId, toDay(date)).findFirst(r -> r.getLong(1));
+        return balance != null ? balance : 0;
+    }
+
+    /**
+     * Recalculates all mutations from the journal entry details.
+     */
+    public void rebuild() throws SQLException {
+        execute("DELETE FROM account_daily_mutation").ignoreResult();
+        execute("INSERT INTO account_daily_mutation (account_id, date, mutation) "
+                + "SELECT d.account_id, e.date, SUM(CASE WHEN d.debet THEN d.amount ELSE -d.amount END) "
+                + "FROM journal_entry_detail d JOIN journal_entry e ON e.id=d.journal_entry_id "
+                + "GROUP BY d.account_id, e.date")
+                .ignoreResult();
+    }
+}
@@ -7,61 +7,130 @@ import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
 import nl.gogognome.gogoaccount.component.party.Party;
 import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.lib.collections.DefaultValueMap;
 import nl.gogognome.lib.text.Amount;
 import nl.gogognome.lib.text.AmountFormat;
 import nl.gogognome.lib.util.Factory;
 import nl.gogognome.textsearch.criteria.Criterion;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Formats all journal entries of a document. Journal entries, their details, invoices and parties are loaded
+ * with a fixed number of queries and joined in memory, so the number of queries does not depend on the
+ * number of journal entries.
+ */
 class FormattedJournalEntryFinder {
 
     private final ObjectCriterionMatcher objectCriterionMatcher = new ObjectCriterionMatcher();
-    private final LedgerService ledgerService;
     private final InvoiceService invoiceService;
     private final PartyService partyService;
-    private Logger logger = LoggerFactory.getLogger(LedgerService.class);
 
-    public FormattedJournalEntryFinder(LedgerService ledgerService, InvoiceService invoiceService, PartyService partyService) {
-        this.ledgerService = ledgerService;
+    public FormattedJournalEntryFinder(InvoiceService invoiceService, PartyService partyService) {
         this.invoiceService = invoiceService;
         this.partyService = partyService;
     }
 
-    FormattedJournalEntry format(Document document, JournalEntry journalEntry) {
+    /**
+     * Formats the journal entries of the document that match the criterion. Must be called within a transaction.
+     * @param document the document
+     * @param criterion the criterion; null matches all journal entries
+     * @return the formatted journal entries ordered by date
+     */
+    List<FormattedJournalEntry> find(Document document, Criterion criterion) throws ServiceException, SQLException {
+        List<JournalEntry> journalEntries = new JournalEntryDAO(document).findAll("date");
+        DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetails = new JournalEntryDetailDAO(document).getJournalEntryIdToDetails();
+        Map<String, Invoice> idToInvoice = invoiceService.findAllInvoices(document).stream()
+                .collect(toMap(Invoice::getId, invoice -> invoice));
+        Map<String, Party> idToParty = partyService.findAllParties(document).stream()
+                .collect(toMap(Party::getId, party -> party));
+        return formatMatchingJournalEntries(criterion, journalEntries, journalEntryIdToDetails, idToInvoice, idToParty);
+    }
+
+    /**
+     * Formats the specified journal entries of the document that match the criterion. Only the invoices and parties
+     * that the journal entries refer to are loaded. Must be called within a transaction.
+     * @param document the document
+     * @param criterion the criterion; null matches all journal entries
+     * @param journalEntryUniqueIds the unique ids of the journal entries
+     * @return the formatted journal entries ordered by date
+     */
+    List<FormattedJournalEntry> find(Document document, Criterion criterion, List<Long> journalEntryUniqueIds) throws ServiceException, SQLException {
+        List<JournalEntry> journalEntries = new JournalEntryDAO(document).findByUniqueIds(journalEntryUniqueIds);
+        DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetails = new JournalEntryDetailDAO(document).findByJournalEntries(journalEntryUniqueIds);
+
+        Set<String> invoiceIds = new HashSet<>();
+        for (JournalEntry journalEntry : journalEntries) {
+            if (journalEntry.getIdOfCreatedInvoice() != null) {
+                invoiceIds.add(journalEntry.getIdOfCreatedInvoice());
+            }
+            for (JournalEntryDetail detail : journalEntryIdToDetails.get(journalEntry.getUniqueId())) {
+                if (detail.getInvoiceId() != null) {
+                    invoiceIds.add(detail.getInvoiceId());
+                }
+            }
+        }
+        Map<String, Invoice> idToInvoice = invoiceIds.isEmpty() ? emptyMap() : invoiceService.getIdToInvoice(document, new ArrayList<>(invoiceIds));
+        List<String> partyIds = idToInvoice.values().stream().map(Invoice::getPartyId).distinct().toList();
+        Map<String, Party> idToParty = partyIds.isEmpty() ? emptyMap() : partyService.getIdToParty(document, partyIds);
+        return formatMatchingJournalEntries(criterion, journalEntries, journalEntryIdToDetails, idToInvoice, idToParty);
+    }
+
+    private List<FormattedJournalEntry> formatMatchingJournalEntries(Criterion criterion, List<JournalEntry> journalEntries,
+            DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetails, Map<String, Invoice> idToInvoice,
+            Map<String, Party> idToParty) {
+        AmountFormat amountFormat = Factory.getInstance(AmountFormat.class);
+
+        List<FormattedJournalEntry> result = new ArrayList<>();
+        for (JournalEntry journalEntry : journalEntries) {
+            FormattedJournalEntry formattedJournalEntry = format(journalEntry, journalEntryIdToDetails.get(journalEntry.getUniqueId()),
+                    idToInvoice, idToParty, amountFormat);
+            if (matches(criterion, formattedJournalEntry)) {
+                result.add(formattedJournalEntry);
+            }
+        }
+        return result;
+    }
+
+    private FormattedJournalEntry format(JournalEntry journalEntry, List<JournalEntryDetail> details, Map<String, Invoice> idToInvoice,
+                                         Map<String, Party> idToParty, AmountFormat amountFormat) {
         FormattedJournalEntry formattedJournalEntry = new FormattedJournalEntry();
         formattedJournalEntry.id = journalEntry.getId();
         formattedJournalEntry.date = journalEntry.getDate();
         formattedJournalEntry.description = journalEntry.getDescription();
         formattedJournalEntry.journalEntry = journalEntry;
-        try {
-            List<JournalEntryDetail> details = ledgerService.findJournalEntryDetails(document, journalEntry);
-            for (JournalEntryDetail detail : details) {
-                if (detail.getInvoiceId() != null) {
-                    Invoice invoice = invoiceService.getInvoice(document, detail.getInvoiceId());
-                    addInvoice(document, formattedJournalEntry, invoice, detail.getAmount());
-                }
-            }
-            if (journalEntry.getIdOfCreatedInvoice() != null) {
-                Invoice invoice = invoiceService.getInvoice(document, journalEntry.getIdOfCreatedInvoice());
-                addInvoice(document, formattedJournalEntry, invoice, invoice.getAmountToBePaid());
+        for (JournalEntryDetail detail : details) {
+            if (detail.getInvoiceId() != null) {
+                Invoice invoice = idToInvoice.get(detail.getInvoiceId());
+                addInvoice(formattedJournalEntry, invoice, detail.getAmount(), idToParty, amountFormat);
             }
-        } catch (ServiceException e) {
-            logger.warn(e.getMessage(), e);
-            formattedJournalEntry.invoiceDescription = "???";
-            formattedJournalEntry.party = "???";
+        }
+        if (journalEntry.getIdOfCreatedInvoice() != null) {
+            Invoice invoice = idToInvoice.get(journalEntry.getIdOfCreatedInvoice());
+            addInvoice(formattedJournalEntry, invoice, invoice != null ? invoice.getAmountToBePaid() : null, idToParty, amountFormat);
         }
         return formattedJournalEntry;
     }
 
-    private void addInvoice(Document document, FormattedJournalEntry formattedJournalEntry, Invoice invoice, Amount amount) throws ServiceException {
-        AmountFormat af = Factory.getInstance(AmountFormat.class);
+    private void addInvoice(FormattedJournalEntry formattedJournalEntry, Invoice invoice, Amount amount, Map<String, Party> idToParty,
+                            AmountFormat amountFormat) {
+        if (invoice == null) {
+            formattedJournalEntry.invoiceDescription = append(formattedJournalEntry.invoiceDescription, "???");
+            formattedJournalEntry.party = append(formattedJournalEntry.party, "???");
+            return;
+        }
         formattedJournalEntry.invoiceDescription = append(formattedJournalEntry.invoiceDescription, invoice.getId()
-                + " - " + invoice.getDescription() + " - " +  af.formatAmountWithoutCurrency(amount.toBigInteger()));
-        Party party = partyService.getParty(document, invoice.getPartyId());
-        formattedJournalEntry.party = append(formattedJournalEntry.party, party.getId() + " - " + party.getName());
+                + " - " + invoice.getDescription() + " - " +  amountFormat.formatAmountWithoutCurrency(amount.toBigInteger()));
+        Party party = idToParty.get(invoice.getPartyId());
+        formattedJournalEntry.party = append(formattedJournalEntry.party, party != null ? party.getId() + " - " + party.getName() : "???");
     }
 
     private String append(String a, String b) {
@@ -71,7 +140,7 @@ class FormattedJournalEntryFinder {
         return a + "; " + b;
     }
 
-    boolean matches(Criterion criterion, FormattedJournalEntry journalEntry) {
+    private boolean matches(Criterion criterion, FormattedJournalEntry journalEntry) {
         return criterion == null || objectCriterionMatcher.matches(criterion, journalEntry.date, journalEntry.id, journalEntry.description, journalEntry.invoiceDescription, journalEntry.party);
     }
 
@@ -4,15 +4,53 @@ import nl.gogognome.dataaccess.dao.AbstractDomainClassDAO;
 import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.util.MultiRowInsertDAO;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.dateRangeCondition;
+import static nl.gogognome.gogoaccount.util.SqlDates.toDay;
 
 class JournalEntryDAO extends AbstractDomainClassDAO<JournalEntry> {
 
+    private final static String[] COLUMN_NAMES = { "id", "tag", "date", "create_invoice_id", "description" };
+
+    private final Document document;
+
     public JournalEntryDAO(Document document) {
         super("journal_entry", "domain_class_sequence", document.getBookkeepingId());
+        this.document = document;
     }
 
+    /**
+     * Creates journal entries with new unique ids. The number of statements does not depend on the
+     * number of journal entries, except for one statement per 500 journal entries.
+     * @param journalEntries the journal entries
+     * @return the created journal entries in the same order as the specified journal entries
+     */
+    public List<JournalEntry> createAll(List<JournalEntry> journalEntries) throws SQLException {
+        MultiRowInsertDAO multiRowInsertDAO = new MultiRowInsertDAO(document);
+        List<Long> ids = multiRowInsertDAO.getNextLongsFromSequence(sequenceName, journalEntries.size());
+        List<JournalEntry> createdJournalEntries = new ArrayList<>(journalEntries.size());
+        List<Object[]> rows = new ArrayList<>(journalEntries.size());
+        for (int i=0; i<journalEntries.size(); i++) {
+            JournalEntry journalEntry = journalEntries.get(i);
+            JournalEntry createdJournalEntry = new JournalEntry(ids.get(i));
+            createdJournalEntry.setId(journalEntry.getId());
+            createdJournalEntry.setDate(journalEntry.getDate());
+            createdJournalEntry.setIdOfCreatedInvoice(journalEntry.getIdOfCreatedInvoice());
+            createdJournalEntry.setDescription(journalEntry.getDescription());
+            createdJournalEntries.add(createdJournalEntry);
+            rows.add(new Object[] { createdJournalEntry.getUniqueId(), createdJournalEntry.getId(),
+                    toDay(createdJournalEntry.getDate()), createdJournalEntry.getIdOfCreatedInvoice(),
+                    createdJournalEntry.getDescription() });
+        }
+        multiRowInsertDAO.insertRows(tableName, COLUMN_NAMES, rows);
+        return createdJournalEntries;
+    }
 
     public JournalEntry findById(String id) throws SQLException {
         return first(new NameValuePairs().add("tag", id));
@@ -22,6 +60,56 @@ class JournalEntryDAO extends AbstractDomainClassDAO<JournalEntry> {
         return first(new NameValuePairs().add("create_invoice_id", invoiceId));
     }
 
+    /**
+     * Finds the journal entries with the specified unique ids.
+     * @param uniqueIds the unique ids of the journal entries
+     * @return the journal entries ordered by date and unique id
+     */
+    public List<JournalEntry> findByUniqueIds(List<Long> uniqueIds) throws SQLException {
+        if (uniqueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return execute("SELECT * FROM " + tableName + " WHERE id IN (?) ORDER BY date, id", uniqueIds)
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
+    /**
+     * Finds the journal entries with a date in the specified range.
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @return the journal entries ordered by date and unique id
+     */
+    public List<JournalEntry> findInDateRange(Date startDate, Date endDate) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String condition = dateRangeCondition("date", startDate, endDate, parameters);
+        return execute("SELECT * FROM " + tableName + " WHERE " + condition + " ORDER BY date, id", parameters.toArray())
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
+    /**
+     * Finds a page of the journal entries with a date in the specified range. Pages are read with a forward-only
+     * cursor: the next page starts after the last journal entry of the previous page.
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @param lastJournalEntryOfPreviousPage the last journal entry of the previous page; null to get the first page
+     * @param pageSize the maximum number of journal entries of the page
+     * @return the journal entries ordered by date and unique id
+     */
+    public List<JournalEntry> findPageInDateRange(Date startDate, Date endDate, JournalEntry lastJournalEntryOfPreviousPage, int pageSize)
+            throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String condition = dateRangeCondition("date", startDate, endDate, parameters);
+        if (lastJournalEntryOfPreviousPage != null) {
+            condition += " AND (date>? OR (date=? AND id>?))";
+            parameters.add(toDay(lastJournalEntryOfPreviousPage.getDate()));
+            parameters.add(toDay(lastJournalEntryOfPreviousPage.getDate()));
+            parameters.add(lastJournalEntryOfPreviousPage.getUniqueId());
+        }
+        parameters.add(pageSize);
+        return execute("SELECT * FROM " + tableName + " WHERE " + condition + " ORDER BY date, id LIMIT ?", parameters.toArray())
+                .toList(r -> getObjectFromResultSet(r));
+    }
+
     @Override
     protected JournalEntry getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
         JournalEntry journalEntry = new JournalEntry(result.getLong("id"));
@@ -5,20 +5,135 @@ import nl.gogognome.dataaccess.dao.NameValuePairs;
 import nl.gogognome.dataaccess.dao.ResultSetWrapper;
 import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.util.AmountInDatabase;
+import nl.gogognome.gogoaccount.util.MultiRowInsertDAO;
+import nl.gogognome.lib.collections.DefaultValueMap;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static nl.gogognome.gogoaccount.util.SqlDates.dateRangeCondition;
+import static nl.gogognome.gogoaccount.util.SqlDates.toDay;
 
 class JournalEntryDetailDAO extends AbstractDomainClassDAO<JournalEntryDetail> {
 
+    private final static String[] COLUMN_NAMES = { "id", "journal_entry_id", "amount", "account_id", "debet", "invoice_id", "payment_id" };
+
+    private final Document document;
+
     public JournalEntryDetailDAO(Document document) {
         super("journal_entry_detail", "domain_class_sequence", document.getBookkeepingId());
+        this.document = document;
+    }
+
+    /**
+     * Creates journal entry details with new ids. The number of statements does not depend on the
+     * number of journal entry details, except for one statement per 500 journal entry details.
+     * @param journalEntryDetails the journal entry details
+     * @return the created journal entry details in the same order as the specified journal entry details
+     */
+    public List<JournalEntryDetail> createAll(List<JournalEntryDetail> journalEntryDetails) throws SQLException {
+        MultiRowInsertDAO multiRowInsertDAO = new MultiRowInsertDAO(document);
+        List<Long> ids = multiRowInsertDAO.getNextLongsFromSequence(sequenceName, journalEntryDetails.size());
+        List<JournalEntryDetail> createdJournalEntryDetails = new ArrayList<>(journalEntryDetails.size());
+        List<Object[]> rows = new ArrayList<>(journalEntryDetails.size());
+        for (int i=0; i<journalEntryDetails.size(); i++) {
+            JournalEntryDetail detail = journalEntryDetails.get(i);
+            JournalEntryDetail createdDetail = new JournalEntryDetail(ids.get(i));
+            createdDetail.setJournalEntryUniqueId(detail.getJournalEntryUniqueId());
+            createdDetail.setAmount(detail.getAmount());
+            createdDetail.setAccountId(detail.getAccountId());
+            createdDetail.setDebet(detail.isDebet());
+            createdDetail.setInvoiceId(detail.getInvoiceId());
+            createdDetail.setPaymentId(detail.getPaymentId());
+            createdJournalEntryDetails.add(createdDetail);
+            rows.add(new Object[] { createdDetail.getId(), createdDetail.getJournalEntryUniqueId(), AmountInDatabase.toCents(createdDetail.getAmount()),
+                    createdDetail.getAccountId(), createdDetail.isDebet(), createdDetail.getInvoiceId(), createdDetail.getPaymentId() });
+        }
+        multiRowInsertDAO.insertRows(tableName, COLUMN_NAMES, rows);
+        return createdJournalEntryDetails;
     }
 
     public List<JournalEntryDetail> findByJournalEntry(long journalEntryUniqueId) throws SQLException {
         return findAll(new NameValuePairs().add("journal_entry_id", journalEntryUniqueId), "id");
     }
 
+    public DefaultValueMap<Long, List<JournalEntryDetail>> getJournalEntryIdToDetails() throws SQLException {
+        Map<Long, List<JournalEntryDetail>> journalEntryIdToDetails = execute("SELECT * FROM " + tableName + " ORDER BY journal_entry_id, id")
+                .toHashMapOfLists(r -> r.getLong("journal_entry_id"), r -> getObjectFromResultSet(r));
+        return new DefaultValueMap<>(journalEntryIdToDetails, emptyList());
+    }
+
+    /**
+     * Gets the details of journal entries with a date in the specified range.
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @return the details per unique id of the journal entry
+     */
+    public DefaultValueMap<Long, List<JournalEntryDetail>> getJournalEntryIdToDetailsInDateRange(Date startDate, Date endDate) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String condition = dateRangeCondition("e.date", startDate, endDate, parameters);
+        Map<Long, List<JournalEntryDetail>> journalEntryIdToDetails = execute("SELECT d.* FROM " + tableName + " d "
+                + "JOIN journal_entry e ON e.id=d.journal_entry_id WHERE " + condition + " ORDER BY d.journal_entry_id, d.id", parameters.toArray())
+                .toHashMapOfLists(r -> r.getLong("journal_entry_id"), r -> getObjectFromResultSet(r));
+        return new DefaultValueMap<>(journalEntryIdToDetails, emptyList());
+    }
+
+    /**
+     * Gets the details of the specified journal entries.
+     * @param journalEntryUniqueIds the unique ids of the journal entries
+     * @return the details per unique id of the journal entry
+     */
+    public DefaultValueMap<Long, List<JournalEntryDetail>> findByJournalEntries(List<Long> journalEntryUniqueIds) throws SQLException {
+        if (journalEntryUniqueIds.isEmpty()) {
+            return new DefaultValueMap<>(new HashMap<>(), emptyList());
+        }
+        Map<Long, List<JournalEntryDetail>> journalEntryIdToDetails = execute("SELECT * FROM " + tableName
+                + " WHERE journal_entry_id IN (?) ORDER BY journal_entry_id, id", journalEntryUniqueIds)
+                .toHashMapOfLists(r -> r.getLong("journal_entry_id"), r -> getObjectFromResultSet(r));
+        return new DefaultValueMap<>(journalEntryIdToDetails, emptyList());
+    }
+
+    /**
+     * Gets a page of the details of an account, ordered by date of the journal entry. Each element of the
+     * result contains a journal entry with exactly one detail.
+     * @param accountId the id of the account
+     * @param lastOfPreviousPage the last element of the previous page; null for the first page
+     * @param pageSize the maximum number of details
+     * @return the details with their journal entries
+     */
+    public List<JournalEntryWithDetails> findPageOfAccount(String accountId, JournalEntryWithDetails lastOfPreviousPage, int pageSize)
+            throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        String condition = "d.account_id=?";
+        parameters.add(accountId);
+        if (lastOfPreviousPage != null) {
+            JournalEntry lastJournalEntry = lastOfPreviousPage.getJournalEntry();
+            condition += " AND (e.date>? OR (e.date=? AND (e.id>? OR (e.id=? AND d.id>?))))";
+            parameters.add(toDay(lastJournalEntry.getDate()));
+            parameters.add(toDay(lastJournalEntry.getDate()));
+            parameters.add(lastJournalEntry.getUniqueId());
+            parameters.add(lastJournalEntry.getUniqueId());
+            parameters.add(lastOfPreviousPage.getJournalEntryDetails().get(0).getId());
+        }
+        parameters.add(pageSize);
+        return execute("SELECT d.*, e.tag, e.date, e.description, e.create_invoice_id FROM " + tableName + " d "
+                + "JOIN journal_entry e ON e.id=d.journal_entry_id WHERE " + condition + " ORDER BY e.date, e.id, d.id LIMIT ?", parameters.toArray())
+                .toList(r -> {
+                    JournalEntry journalEntry = new JournalEntry(r.getLong("journal_entry_id"));
+                    journalEntry.setId(r.getString("tag"));
+                    journalEntry.setDate(r.getDate("date"));
+                    journalEntry.setDescription(r.getString("description"));
+                    journalEntry.setIdOfCreatedInvoice(r.getString("create_invoice_id"));
+                    return new JournalEntryWithDetails(journalEntry, singletonList(getObjectFromResultSet(r)));
+                });
+    }
+
     public void deleteByJournalEntry(long journalEntryUniqueId) throws SQLException {
         deleteWhere(new NameValuePairs().add("journal_entry_id", journalEntryUniqueId));
     }
@@ -31,7 +146,7 @@ class JournalEntryDetailDAO extends AbstractDomainClassDAO<JournalEntryDetail> {
     protected JournalEntryDetail getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
         JournalEntryDetail detail = new JournalEntryDetail(result.getLong("id"));
         detail.setJournalEntryUniqueId(result.getLong("journal_entry_id"));
-        detail.setAmount(AmountInDatabase.parse(result.getString("amount")));
+        detail.setAmount(AmountInDatabase.fromCents(result.getLong("amount")));
         detail.setAccountId(result.getString("account_id"));
         detail.setDebet(result.getBoolean("debet"));
         detail.setInvoiceId(result.getString("invoice_id"));
@@ -44,7 +159,7 @@ class JournalEntryDetailDAO extends AbstractDomainClassDAO<JournalEntryDetail> {
         return new NameValuePairs()
                 .add("id", journalEntryDetail.getId())
                 .add("journal_entry_id", journalEntryDetail.getJournalEntryUniqueId())
-                .add("amount", AmountInDatabase.format(journalEntryDetail.getAmount()))
+                .add("amount", AmountInDatabase.toCents(journalEntryDetail.getAmount()))
                 .add("account_id", journalEntryDetail.getAccountId())
                 .add("debet", journalEntryDetail.isDebet())
                 .add("invoice_id", journalEntryDetail.getInvoiceId())
@@ -0,0 +1,12 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import nl.gogognome.gogoaccount.services.ServiceException;
+
+/**
+ * Visits journal entry details one by one, together with their journal entry.
+ */
+@FunctionalInterface
+public interface JournalEntryDetailVisitor {
+
+    void visit(JournalEntry journalEntry, JournalEntryDetail journalEntryDetail) throws ServiceException;
+}
@@ -0,0 +1,14 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import nl.gogognome.gogoaccount.services.ServiceException;
+
+import java.util.List;
+
+/**
+ * Visits journal entries one by one, together with their details.
+ */
+@FunctionalInterface
+public interface JournalEntryVisitor {
+
+    void visit(JournalEntry journalEntry, List<JournalEntryDetail> journalEntryDetails) throws ServiceException;
+}
@@ -0,0 +1,25 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import java.util.List;
+
+/**
+ * A journal entry together with its details. Used to add many journal entries at once.
+ */
+public class JournalEntryWithDetails {
+
+    private final JournalEntry journalEntry;
+    private final List<JournalEntryDetail> journalEntryDetails;
+
+    public JournalEntryWithDetails(JournalEntry journalEntry, List<JournalEntryDetail> journalEntryDetails) {
+        this.journalEntry = journalEntry;
+        this.journalEntryDetails = journalEntryDetails;
+    }
+
+    public JournalEntry getJournalEntry() {
+        return journalEntry;
+    }
+
+    public List<JournalEntryDetail> getJournalEntryDetails() {
+        return journalEntryDetails;
+    }
+}
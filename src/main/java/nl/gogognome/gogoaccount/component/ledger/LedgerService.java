@@ -10,23 +10,28 @@ import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.gogoaccount.services.ServiceTransaction;
 import nl.gogognome.lib.collections.DefaultValueMap;
+import nl.gogognome.lib.task.TaskProgressListener;
 import nl.gogognome.lib.text.Amount;
 import nl.gogognome.lib.text.TextResource;
-import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.lib.util.Factory;
 import nl.gogognome.textsearch.criteria.Criterion;
 
+import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
 import static nl.gogognome.gogoaccount.component.configuration.AccountType.CREDITOR;
 import static nl.gogognome.gogoaccount.component.configuration.AccountType.DEBTOR;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.JOURNAL_ENTRY;
 import static nl.gogognome.gogoaccount.component.invoice.InvoiceTemplate.Type.PURCHASE;
 import static nl.gogognome.gogoaccount.component.invoice.InvoiceTemplate.Type.SALE;
+import static nl.gogognome.gogoaccount.util.SqlDates.toEpochDay;
 
 public class LedgerService {
 
+    private static final int JOURNAL_ENTRY_PAGE_SIZE = 1000;
+
     private final TextResource textResource;
     private final ConfigurationService configurationService;
     private final InvoiceService invoiceService;
@@ -51,29 +56,109 @@ public class LedgerService {
     }
 
     public DefaultValueMap<Long, List<JournalEntryDetail>> getJournalEntryIdToDetailsMap(Document document) throws ServiceException {
-        return ServiceTransaction.withResult(() -> {
-            DefaultValueMap<Long, List<JournalEntryDetail>> result = new DefaultValueMap<>(new HashMap<>(), emptyList());
-            new JournalEntryDetailDAO(document).findAll().forEach(e -> {
-                List<JournalEntryDetail> list;
-                if (result.containsKey(e.getJournalEntryUniqueId())) {
-                    list = result.get(e.getJournalEntryUniqueId());
-                } else {
-                    list = new ArrayList<>();
-                    result.put(e.getJournalEntryUniqueId(), list);
+        return ServiceTransaction.withResult(() -> new JournalEntryDetailDAO(document).getJournalEntryIdToDetails());
+    }
+
+    /**
+     * Finds the journal entries with a date in the specified range. Only the journal entries in the range
+     * are read from the database.
+     * @param document the document
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @return the journal entries ordered by date
+     */
+    public List<JournalEntry> findJournalEntries(Document document, Date startDate, Date endDate) throws ServiceException {
+        return ServiceTransaction.withResult(() -> new JournalEntryDAO(document).findInDateRange(startDate, endDate));
+    }
+
+    /**
+     * Gets the details of the journal entries with a date in the specified range. Only the details of
+     * journal entries in the range are read from the database.
+     * @param document the document
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @return the details per unique id of the journal entry
+     */
+    public DefaultValueMap<Long, List<JournalEntryDetail>> getJournalEntryIdToDetailsMap(Document document, Date startDate, Date endDate)
+            throws ServiceException {
+        return ServiceTransaction.withResult(() -> new JournalEntryDetailDAO(document).getJournalEntryIdToDetailsInDateRange(startDate, endDate));
+    }
+
+    /**
+     * Visits the journal entries with a date in the specified range, ordered by date. The journal entries and
+     * their details are read in pages, so the memory needed does not depend on the number of journal entries.
+     * @param document the document
+     * @param startDate the first date of the range; null means the range has no lower bound
+     * @param endDate the last date of the range; null means the range has no upper bound
+     * @param visitor the visitor
+     */
+    public void forEachJournalEntry(Document document, Date startDate, Date endDate, JournalEntryVisitor visitor) throws ServiceException {
+        ServiceTransaction.withoutResult(() -> {
+            JournalEntryDAO journalEntryDAO = new JournalEntryDAO(document);
+            JournalEntryDetailDAO journalEntryDetailDAO = new JournalEntryDetailDAO(document);
+            JournalEntry lastJournalEntry = null;
+            List<JournalEntry> page;
+            do {
+                page = journalEntryDAO.findPageInDateRange(startDate, endDate, lastJournalEntry, JOURNAL_ENTRY_PAGE_SIZE);
+                List<Long> journalEntryUniqueIds = new ArrayList<>(page.size());
+                for (JournalEntry journalEntry : page) {
+                    journalEntryUniqueIds.add(journalEntry.getUniqueId());
                 }
-                list.add(e);
-            });
-            return result;
+                DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetails = journalEntryDetailDAO.findByJournalEntries(journalEntryUniqueIds);
+                for (JournalEntry journalEntry : page) {
+                    visitor.visit(journalEntry, journalEntryIdToDetails.get(journalEntry.getUniqueId()));
+                    lastJournalEntry = journalEntry;
+                }
+            } while (page.size() == JOURNAL_ENTRY_PAGE_SIZE);
         });
     }
 
+    /**
+     * Visits the journal entry details of an account, ordered by the date of their journal entries. The details
+     * are read in pages, so the memory needed does not depend on the number of details.
+     * @param document the document
+     * @param accountId the id of the account
+     * @param visitor the visitor
+     */
+    public void forEachJournalEntryDetailOfAccount(Document document, String accountId, JournalEntryDetailVisitor visitor) throws ServiceException {
+        ServiceTransaction.withoutResult(() -> {
+            JournalEntryDetailDAO journalEntryDetailDAO = new JournalEntryDetailDAO(document);
+            JournalEntryWithDetails last = null;
+            List<JournalEntryWithDetails> page;
+            do {
+                page = journalEntryDetailDAO.findPageOfAccount(accountId, last, JOURNAL_ENTRY_PAGE_SIZE);
+                for (JournalEntryWithDetails journalEntryWithDetails : page) {
+                    visitor.visit(journalEntryWithDetails.getJournalEntry(), journalEntryWithDetails.getJournalEntryDetails().get(0));
+                    last = journalEntryWithDetails;
+                }
+            } while (page.size() == JOURNAL_ENTRY_PAGE_SIZE);
+        });
+    }
+
+    /**
+     * Finds the formatted journal entries that match the criterion. The number of queries needed to find
+     * the journal entries does not depend on the number of journal entries.
+     * @param document the document
+     * @param criterion the criterion; null matches all journal entries
+     * @return the matching formatted journal entries
+     */
     public List<FormattedJournalEntry> findFormattedJournalEntries(Document document, Criterion criterion) throws ServiceException {
-        FormattedJournalEntryFinder formattedJournalEntryFinder = new FormattedJournalEntryFinder(this, invoiceService, partyService);
-        return ServiceTransaction.withResult(() -> new JournalEntryDAO(document).findAll("date")
-            .stream()
-            .map(journalEntry -> formattedJournalEntryFinder.format(document, journalEntry))
-            .filter(journalEntry -> formattedJournalEntryFinder.matches(criterion, journalEntry))
-            .collect(Collectors.toList()));
+        FormattedJournalEntryFinder formattedJournalEntryFinder = new FormattedJournalEntryFinder(invoiceService, partyService);
+        return ServiceTransaction.withResult(() -> formattedJournalEntryFinder.find(document, criterion));
+    }
+
+    /**
+     * Finds the formatted journal entries with the specified unique ids that match the criterion. Use this method
+     * to update a list of formatted journal entries after some of the journal entries have changed.
+     * @param document the document
+     * @param criterion the criterion; null matches all journal entries
+     * @param journalEntryUniqueIds the unique ids of the journal entries
+     * @return the matching formatted journal entries; journal entries that no longer exist are absent
+     */
+    public List<FormattedJournalEntry> findFormattedJournalEntries(Document document, Criterion criterion, List<Long> journalEntryUniqueIds)
+            throws ServiceException {
+        FormattedJournalEntryFinder formattedJournalEntryFinder = new FormattedJournalEntryFinder(invoiceService, partyService);
+        return ServiceTransaction.withResult(() -> formattedJournalEntryFinder.find(document, criterion, journalEntryUniqueIds));
     }
 
     /**
@@ -87,7 +172,25 @@ public class LedgerService {
      */
     public List<Invoice> createInvoiceAndJournalForParties(Document document, Account debtorOrCreditorAccount, InvoiceTemplate invoiceTemplate,
                                                   List<Party> parties) throws ServiceException {
+        return createInvoiceAndJournalForParties(document, debtorOrCreditorAccount, invoiceTemplate, parties, percentage -> {});
+    }
+
+    /**
+     * Creates invoices and journals for a number of parties. First the invoice definitions of all parties are
+     * evaluated and validated. Only if all are valid, the invoices, their details and the journal entries are
+     * stored with a number of statements that does not depend on the number of parties.
+     * @param document the database to which the invoices are to be added.
+     * @param debtorOrCreditorAccount a debtor account for a sales invoice, a creditor account for a purchase invoice
+     * @param invoiceTemplate the definition of the invoice
+     * @param parties the parties
+     * @param progressListener informed about the progress
+     * @throws ServiceException if a problem occurs while creating invoices for one or more of the parties
+     * @return the created invoices
+     */
+    public List<Invoice> createInvoiceAndJournalForParties(Document document, Account debtorOrCreditorAccount, InvoiceTemplate invoiceTemplate,
+                                                  List<Party> parties, TaskProgressListener progressListener) throws ServiceException {
         return ServiceTransaction.withResult(() -> {
+            progressListener.onProgressUpdate(0);
             document.ensureDocumentIsWriteable();
             validateDebtorOrCreditorAccount(debtorOrCreditorAccount, invoiceTemplate);
             validateInvoice(invoiceTemplate);
@@ -95,20 +198,20 @@ public class LedgerService {
             Bookkeeping bookkeeping = configurationService.getBookkeeping(document);
             List<Party> partiesForWhichCreationFailed = new LinkedList<>();
             Map<String, List<String>> partyIdToTags = partyService.findPartyIdToTags(document);
-            List<Invoice> createdInvoices = new ArrayList<>();
-            for (Party party : parties) {
+            List<InvoiceDefinition> invoiceDefinitions = new ArrayList<>(parties.size());
+            for (int i=0; i<parties.size(); i++) {
+                Party party = parties.get(i);
                 List<String> tags = partyIdToTags.getOrDefault(party.getId(), emptyList());
                 InvoiceDefinition invoiceDefinition = invoiceTemplate.getInvoiceDefinitionFor(party, tags);
-
                 try {
-                    Invoice invoice = invoiceService.create(document, bookkeeping.getInvoiceIdFormat(), invoiceDefinition);
-                    createdInvoices.add(invoice);
-                    JournalEntry journalEntry = buildJournalEntry(invoice);
-                    List<JournalEntryDetail> journalEntryDetails = buildJournalEntryDetails(debtorOrCreditorAccount, invoiceDefinition);
-                    addJournalEntry(document, journalEntry, journalEntryDetails);
+                    invoiceService.validateInvoice(invoiceDefinition);
+                    invoiceDefinitions.add(invoiceDefinition);
                 } catch (ServiceException e) {
                     partiesForWhichCreationFailed.add(party);
                 }
+                if (i % 100 == 99) {
+                    progressListener.onProgressUpdate(40 * (i + 1) / parties.size());
+                }
             }
 
             if (!partiesForWhichCreationFailed.isEmpty()) {
@@ -123,6 +226,19 @@ public class LedgerService {
                     throw new ServiceException("Failed to create journal for the parties:" + sb.toString());
                 }
             }
+            progressListener.onProgressUpdate(40);
+
+            List<Invoice> createdInvoices = invoiceService.createAll(document, bookkeeping.getInvoiceIdFormat(), invoiceDefinitions);
+            progressListener.onProgressUpdate(70);
+
+            List<JournalEntryWithDetails> journalEntries = new ArrayList<>(createdInvoices.size());
+            for (int i=0; i<createdInvoices.size(); i++) {
+                JournalEntry journalEntry = buildJournalEntry(createdInvoices.get(i));
+                List<JournalEntryDetail> journalEntryDetails = buildJournalEntryDetails(debtorOrCreditorAccount, invoiceDefinitions.get(i));
+                journalEntries.add(new JournalEntryWithDetails(journalEntry, journalEntryDetails));
+            }
+            addJournalEntries(document, journalEntries);
+            progressListener.onProgressUpdate(100);
             return createdInvoices;
         });
     }
@@ -237,11 +353,56 @@ public class LedgerService {
                 detail.setJournalEntryUniqueId(createdJournalEntry.getUniqueId());
                 new JournalEntryDetailDAO(document).create(detail);
             }
-            document.notifyChange();
+            updateAccountDailyMutations(document, createdJournalEntry.getDate(), journalEntryDetails, 1);
+            document.notifyChange(JOURNAL_ENTRY, Long.toString(createdJournalEntry.getUniqueId()));
             return createdJournalEntry;
         });
     }
 
+    /**
+     * Adds a number of entries to the journal. All journal entries are validated before any of them is stored.
+     * The journal entries and their details are stored with a number of statements that does not depend on the
+     * number of journal entries and the listeners of the document are notified once.
+     *
+     * <p>In contrast to {@link #addJournalEntry(Document, JournalEntry, List, boolean)} this method never creates
+     * payments for invoices that are referred to by the journal entry details.
+     *
+     * @param document the document
+     * @param journalEntriesWithDetails the journal entries and their details
+     * @return the created journal entries in the same order as the specified journal entries
+     */
+    public List<JournalEntry> addJournalEntries(Document document, List<JournalEntryWithDetails> journalEntriesWithDetails) throws ServiceException {
+        return ServiceTransaction.withResult(() -> {
+            document.ensureDocumentIsWriteable();
+            List<JournalEntry> journalEntries = new ArrayList<>(journalEntriesWithDetails.size());
+            for (JournalEntryWithDetails journalEntryWithDetails : journalEntriesWithDetails) {
+                validateDebetAndCreditSumsAreEqual(journalEntryWithDetails.getJournalEntry(), journalEntryWithDetails.getJournalEntryDetails());
+                journalEntries.add(journalEntryWithDetails.getJournalEntry());
+            }
+
+            List<JournalEntry> createdJournalEntries = new JournalEntryDAO(document).createAll(journalEntries);
+            List<JournalEntryDetail> journalEntryDetails = new ArrayList<>();
+            Map<Long, Date> journalEntryUniqueIdToDate = new HashMap<>();
+            for (int i=0; i<createdJournalEntries.size(); i++) {
+                JournalEntry createdJournalEntry = createdJournalEntries.get(i);
+                journalEntryUniqueIdToDate.put(createdJournalEntry.getUniqueId(), createdJournalEntry.getDate());
+                for (JournalEntryDetail detail : journalEntriesWithDetails.get(i).getJournalEntryDetails()) {
+                    detail.setJournalEntryUniqueId(createdJournalEntry.getUniqueId());
+                    journalEntryDetails.add(detail);
+                }
+            }
+
+            Map<Date, Map<String, Long>> dateToAccountIdToDebetAmount = new LinkedHashMap<>();
+            for (JournalEntryDetail createdDetail : new JournalEntryDetailDAO(document).createAll(journalEntryDetails)) {
+                Date date = journalEntryUniqueIdToDate.get(createdDetail.getJournalEntryUniqueId());
+                addDebetAmount(dateToAccountIdToDebetAmount.computeIfAbsent(date, d -> new LinkedHashMap<>()), createdDetail, 1);
+            }
+            new AccountDailyMutationDAO(document).addMutations(dateToAccountIdToDebetAmount);
+            document.notifyChange(JOURNAL_ENTRY, createdJournalEntries.stream().map(journalEntry -> Long.toString(journalEntry.getUniqueId())).toList());
+            return createdJournalEntries;
+        });
+    }
+
     private void validateDebetAndCreditSumsAreEqual(JournalEntry journalEntry, List<JournalEntryDetail> journalEntryDetails) throws DebetAndCreditAmountsDifferException {
         Amount totalDebet = null;
         Amount totalCredit = null;
@@ -296,9 +457,12 @@ public class LedgerService {
             validateDebetAndCreditSumsAreEqual(journalEntry, journalEntryDetails);
 
             // Update payments. Remove payments from old journal and add payments of the new journal.
+            JournalEntryDAO journalEntryDAO = new JournalEntryDAO(document);
+            JournalEntry oldJournalEntry = journalEntryDAO.get(journalEntry.getUniqueId());
             JournalEntryDetailDAO journalEntryDetailDAO = new JournalEntryDetailDAO(document);
             List<JournalEntryDetail> oldJournalEntryDetails = journalEntryDetailDAO.findByJournalEntry(journalEntry.getUniqueId());
             journalEntryDetailDAO.deleteByJournalEntry(journalEntry.getUniqueId());
+            updateAccountDailyMutations(document, oldJournalEntry.getDate(), oldJournalEntryDetails, -1);
             for (JournalEntryDetail oldJournalEntryDetail : oldJournalEntryDetails) {
                 if (oldJournalEntryDetail.getPaymentId() != null) {
                     invoiceService.removePayment(document, oldJournalEntryDetail.getPaymentId());
@@ -312,13 +476,14 @@ public class LedgerService {
             }
 
             // Update journal entry and details in database
-            new JournalEntryDAO(document).update(journalEntry);
+            journalEntryDAO.update(journalEntry);
             for (JournalEntryDetail journalEntryDetail : journalEntryDetails) {
                 journalEntryDetail.setJournalEntryUniqueId(journalEntry.getUniqueId());
                 journalEntryDetailDAO.create(journalEntryDetail);
             }
+            updateAccountDailyMutations(document, journalEntry.getDate(), journalEntryDetails, 1);
 
-            document.notifyChange();
+            document.notifyChange(JOURNAL_ENTRY, Long.toString(journalEntry.getUniqueId()));
         });
     }
 
@@ -328,6 +493,8 @@ public class LedgerService {
     public void removeJournalEntry(Document document, JournalEntry journalEntry) throws ServiceException {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
+            JournalEntryDAO journalEntryDAO = new JournalEntryDAO(document);
+            JournalEntry storedJournalEntry = journalEntryDAO.get(journalEntry.getUniqueId());
             JournalEntryDetailDAO journalEntryDetailDAO = new JournalEntryDetailDAO(document);
             List<JournalEntryDetail> journalEntryDetails = journalEntryDetailDAO.findByJournalEntry(journalEntry.getUniqueId());
             for (JournalEntryDetail journalEntryDetail : journalEntryDetails) {
@@ -336,11 +503,12 @@ public class LedgerService {
                     invoiceService.removePayment(document, journalEntryDetail.getPaymentId());
                 }
             }
-            new JournalEntryDAO(document).delete(journalEntry.getUniqueId());
+            updateAccountDailyMutations(document, storedJournalEntry.getDate(), journalEntryDetails, -1);
+            journalEntryDAO.delete(journalEntry.getUniqueId());
             if (journalEntry.getIdOfCreatedInvoice() != null) {
                 invoiceService.deleteInvoice(document, journalEntry.getIdOfCreatedInvoice());
             }
-            document.notifyChange();
+            document.notifyChange(JOURNAL_ENTRY, Long.toString(journalEntry.getUniqueId()));
         });
     }
 
@@ -356,35 +524,96 @@ public class LedgerService {
     }
 
     /**
-     * Gets the balance of the specified account at the specified date.
+     * Gets a read-only snapshot of all journal entry details of the document. The snapshot is built with a single
+     * query and reused until the document changes.
+     * @param document the document
+     * @return the snapshot for the current version of the document
+     */
+    public LedgerSnapshot getLedgerSnapshot(Document document) throws ServiceException {
+        LedgerSnapshot snapshot = LedgerSnapshotCache.get(document);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        long version = document.getVersion();
+        LedgerSnapshot newSnapshot = ServiceTransaction.withResult(() -> new LedgerSnapshotDAO(document).readSnapshot(version));
+        LedgerSnapshotCache.put(document, newSnapshot);
+        return newSnapshot;
+    }
+
+    /**
+     * Gets the balance of the specified account at the specified date. If a ledger snapshot of the current
+     * version of the document exists, the balance is taken from the snapshot. Otherwise a single indexed query
+     * sums the mutations per day, which is cheaper than building a snapshot for one account.
      * @param document the database from which to take the data
      * @param account the account
      * @param date the date
      * @return the balance of this account at the specified date
      */
     public Amount getAccountBalance(Document document, Account account, Date date) throws ServiceException {
-        return ServiceTransaction.withResult(() -> {
-            List<JournalEntry> journalEntries = new JournalEntryDAO(document).findAll();
-            Amount result = Amount.ZERO;
-            JournalEntryDetailDAO journalEntryDetailDAO = new JournalEntryDetailDAO(document);
-            for (JournalEntry journalEntry : journalEntries) {
-                if (DateUtil.compareDayOfYear(journalEntry.getDate(), date) <= 0) {
-                    List<JournalEntryDetail> journalEntryDetails = journalEntryDetailDAO.findByJournalEntry(journalEntry.getUniqueId());
-                    for (JournalEntryDetail detail : journalEntryDetails) {
-                        if (detail.getAccountId().equals(account.getId())) {
-                            if (account.isDebet() == detail.isDebet()) {
-                                result = result.add(detail.getAmount());
-                            } else {
-                                result = result.subtract(detail.getAmount());
-                            }
-                        }
-                    }
-                }
+        LedgerSnapshot snapshot = LedgerSnapshotCache.get(document);
+        long debetBalance = snapshot != null
+                ? snapshot.getDebetBalance(account.getId(), date)
+                : ServiceTransaction.withResult(() -> new AccountDailyMutationDAO(document).getDebetBalance(account.getId(), date));
+        return new Amount(account.isDebet() ? debetBalance : -debetBalance);
+    }
+
+    /**
+     * Gets the balances of all accounts at the specified date with a single pass over the ledger snapshot.
+     * @param document the document
+     * @param date the date
+     * @return the balances by account id; accounts without journal entry details up to the date are absent
+     */
+    public Map<String, Amount> getAccountBalances(Document document, Date date) throws ServiceException {
+        LedgerSnapshot snapshot = getLedgerSnapshot(document);
+        Map<String, Account> idToAccount = new HashMap<>();
+        for (Account account : configurationService.findAllAccounts(document)) {
+            idToAccount.put(account.getId(), account);
+        }
+        long[] debetBalances = snapshot.getDebetBalances(date);
+        int lastDay = toEpochDay(date);
+        Map<String, Amount> accountIdToBalance = new HashMap<>();
+        for (int accountIndex = 0; accountIndex < debetBalances.length; accountIndex++) {
+            if (snapshot.getFirstEpochDay(accountIndex) <= lastDay) {
+                String accountId = snapshot.getAccountId(accountIndex);
+                Account account = idToAccount.get(accountId);
+                long debetBalance = debetBalances[accountIndex];
+                accountIdToBalance.put(accountId, new Amount(account == null || account.isDebet() ? debetBalance : -debetBalance));
             }
-            return result;
+        }
+        return accountIdToBalance;
+    }
+
+    /**
+     * Recalculates the mutations per account per day from the journal entries. The mutations are kept up to date
+     * when journal entries are added, updated or removed, so this is only needed to repair the balances.
+     * @param document the document
+     */
+    public void rebuildAccountBalances(Document document) throws ServiceException {
+        ServiceTransaction.withoutResult(() -> {
+            document.ensureDocumentIsWriteable();
+            new AccountDailyMutationDAO(document).rebuild();
+            document.notifyChange();
         });
     }
 
+    /**
+     * Adds the amounts of the journal entry details to the mutations per account per day.
+     * @param sign 1 to add the amounts or -1 to subtract the amounts
+     */
+    private void updateAccountDailyMutations(Document document, Date date, List<JournalEntryDetail> journalEntryDetails, int sign)
+            throws SQLException {
+        Map<String, Long> accountIdToDebetAmount = new LinkedHashMap<>();
+        for (JournalEntryDetail detail : journalEntryDetails) {
+            addDebetAmount(accountIdToDebetAmount, detail, sign);
+        }
+        new AccountDailyMutationDAO(document).addMutations(singletonMap(date, accountIdToDebetAmount));
+    }
+
+    private void addDebetAmount(Map<String, Long> accountIdToDebetAmount, JournalEntryDetail detail, int sign) {
+        long amount = sign * detail.getAmount().toBigInteger().longValueExact();
+        accountIdToDebetAmount.merge(detail.getAccountId(), detail.isDebet() ? amount : -amount, Long::sum);
+    }
+
     /**
      * Gets the balance of the specified account at start of the bookkeeping.
      * @param document the database from which to take the data
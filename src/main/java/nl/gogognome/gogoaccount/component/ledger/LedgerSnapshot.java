@@ -0,0 +1,173 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.toEpochDay;
+
+/**
+ * Read-only snapshot of all journal entry details of a document, stored column by column in primitive arrays.
+ * Row i of the snapshot is the i-th journal entry detail, ordered by date of the journal entry.
+ * Aggregations over the snapshot are tight loops over arrays instead of walks over object graphs.
+ *
+ * <p>A snapshot belongs to a version of the document. Use {@link LedgerService#getLedgerSnapshot} to get
+ * a snapshot for the current version.
+ */
+public class LedgerSnapshot {
+
+    private final long documentVersion;
+
+    private final String[] accountIds;
+    private final Map<String, Integer> accountIdToIndex = new HashMap<>();
+    private final int[] firstEpochDay;
+    private final String[] invoiceIds;
+
+    private final int size;
+    private final int[] accountIndex;
+    private final int[] epochDay;
+    private final long[] cents;
+    private final boolean[] debet;
+    private final int[] invoiceIndex;
+
+    LedgerSnapshot(long documentVersion, List<String> accountIds, List<String> invoiceIds, int size, int[] accountIndex, int[] epochDay,
+                   long[] cents, boolean[] debet, int[] invoiceIndex) {
+        this.documentVersion = documentVersion;
+        this.accountIds = accountIds.toArray(new String[0]);
+        for (int i=0; i<this.accountIds.length; i++) {
+            accountIdToIndex.put(this.accountIds[i], i);
+        }
+        this.invoiceIds = invoiceIds.toArray(new String[0]);
+        this.size = size;
+        firstEpochDay = new int[this.accountIds.length];
+        Arrays.fill(firstEpochDay, Integer.MAX_VALUE);
+        for (int row = size - 1; row >= 0; row--) {
+            firstEpochDay[accountIndex[row]] = epochDay[row];
+        }
+        this.accountIndex = accountIndex;
+        this.epochDay = epochDay;
+        this.cents = cents;
+        this.debet = debet;
+        this.invoiceIndex = invoiceIndex;
+    }
+
+    public long getDocumentVersion() {
+        return documentVersion;
+    }
+
+    /**
+     * @return the number of journal entry details
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getNrAccounts() {
+        return accountIds.length;
+    }
+
+    public String getAccountId(int accountIndex) {
+        return accountIds[accountIndex];
+    }
+
+    /**
+     * @return the index of the account or -1 if no journal entry detail refers to the account
+     */
+    public int getAccountIndex(String accountId) {
+        Integer index = accountIdToIndex.get(accountId);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return the epoch day of the first journal entry detail of the account
+     */
+    public int getFirstEpochDay(int accountIndex) {
+        return firstEpochDay[accountIndex];
+    }
+
+    public int getAccountIndex(int row) {
+        return accountIndex[row];
+    }
+
+    public int getEpochDay(int row) {
+        return epochDay[row];
+    }
+
+    public long getCents(int row) {
+        return cents[row];
+    }
+
+    public boolean isDebet(int row) {
+        return debet[row];
+    }
+
+    /**
+     * @return the index of the invoice or -1 if the journal entry detail does not refer to an invoice
+     */
+    public int getInvoiceIndex(int row) {
+        return invoiceIndex[row];
+    }
+
+    public String getInvoiceId(int invoiceIndex) {
+        return invoiceIds[invoiceIndex];
+    }
+
+    /**
+     * Gets the sum of the debet amounts minus the sum of the credit amounts of an account up to and including a date.
+     * @param accountId the id of the account
+     * @param date the date
+     * @return the balance in cents
+     */
+    public long getDebetBalance(String accountId, Date date) {
+        int account = getAccountIndex(accountId);
+        int lastDay = toEpochDay(date);
+        long balance = 0;
+        for (int row = 0; row < size && epochDay[row] <= lastDay; row++) {
+            if (accountIndex[row] == account) {
+                balance += debet[row] ? cents[row] : -cents[row];
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Gets for each account the sum of the debet amounts minus the sum of the credit amounts up to and including a date.
+     * @param date the date
+     * @return the balances in cents indexed by account index
+     */
+    public long[] getDebetBalances(Date date) {
+        long[] balances = new long[accountIds.length];
+        int lastDay = toEpochDay(date);
+        for (int row = 0; row < size && epochDay[row] <= lastDay; row++) {
+            balances[accountIndex[row]] += debet[row] ? cents[row] : -cents[row];
+        }
+        return balances;
+    }
+
+    /**
+     * Gets the ids of the invoices that journal entry details of an account refer to, up to and including a date.
+     * @param accountId the id of the account
+     * @param date the date
+     * @return the invoice ids in order of date of the journal entries
+     */
+    public Set<String> getInvoiceIds(String accountId, Date date) {
+        int account = getAccountIndex(accountId);
+        int lastDay = toEpochDay(date);
+        Set<String> ids = new LinkedHashSet<>();
+        for (int row = 0; row < size && epochDay[row] <= lastDay; row++) {
+            if (accountIndex[row] == account && invoiceIndex[row] != -1) {
+                ids.add(invoiceIds[invoiceIndex[row]]);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerSnapshot(version " + documentVersion + ", " + size + " details, accounts " + Arrays.toString(accountIds) + ")";
+    }
+}
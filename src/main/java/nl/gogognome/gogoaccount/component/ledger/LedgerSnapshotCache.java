@@ -0,0 +1,36 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import nl.gogognome.gogoaccount.component.document.Document;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the most recent ledger snapshot per document. A snapshot is reused as long as the version of the
+ * document has not changed. Documents that are no longer used are removed from the cache by the garbage collector.
+ */
+class LedgerSnapshotCache {
+
+    private static final Map<Document, LedgerSnapshot> DOCUMENT_TO_SNAPSHOT = new WeakHashMap<>();
+
+    private LedgerSnapshotCache() {
+    }
+
+    /**
+     * @return the snapshot for the current version of the document or null if no such snapshot is cached
+     */
+    static synchronized LedgerSnapshot get(Document document) {
+        LedgerSnapshot snapshot = DOCUMENT_TO_SNAPSHOT.get(document);
+        if (snapshot != null && snapshot.getDocumentVersion() != document.getVersion()) {
+            DOCUMENT_TO_SNAPSHOT.remove(document);
+            snapshot = null;
+        }
+        return snapshot;
+    }
+
+    static synchronized void put(Document document, LedgerSnapshot snapshot) {
+        if (snapshot.getDocumentVersion() == document.getVersion()) {
+            DOCUMENT_TO_SNAPSHOT.put(document, snapshot);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package nl.gogognome.gogoaccount.component.ledger;
+
+import nl.gogognome.dataaccess.dao.AbstractDAO;
+import nl.gogognome.gogoaccount.component.document.Document;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nl.gogognome.gogoaccount.util.SqlDates.toEpochDay;
+
+class LedgerSnapshotDAO extends AbstractDAO {
+
+    public LedgerSnapshotDAO(Document document) {
+        super(document.getBookkeepingId());
+    }
+
+    /**
+     * Reads all journal entry details of the document with a single query. Each row of the result is stored
+     * in the columns of the snapshot directly; no object is created per journal entry detail.
+     * @param documentVersion the version of the document before the query is executed
+     * @return the snapshot
+     */
+    public LedgerSnapshot readSnapshot(long documentVersion) throws SQLException {
+        Columns columns = new Columns();
+        // The mapper fills the columns, so the list returned by toList only contains nulls.
+        execute("SELECT d.account_id, e.date, d.amount, d.debet, d.invoice_id FROM journal_entry_detail d "
+                + "JOIN journal_entry e ON e.id=d.journal_entry_id ORDER BY e.date, e.id, d.id")
+                .toList(r -> {
+                    columns.add(r.getString("account_id"), toEpochDay(r.getDate("date")), r.getLong("amount"),
+                            r.getBoolean("debet"), r.getString("invoice_id"));
+                    return null;
+                });
+        return columns.toSnapshot(documentVersion);
+    }
+
+    /**
+     * Growable primitive arrays for the columns of a snapshot.
+     */
+    private static class Columns {
+        private final List<String> accountIds = new ArrayList<>();
+        private final Map<String, Integer> accountIdToIndex = new HashMap<>();
+        private final List<String> invoiceIds = new ArrayList<>();
+        private final Map<String, Integer> invoiceIdToIndex = new HashMap<>();
+
+        private int size;
+        private int[] accountIndex = new int[1024];
+        private int[] epochDay = new int[1024];
+        private long[] cents = new long[1024];
+        private boolean[] debet = new boolean[1024];
+        private int[] invoiceIndex = new int[1024];
+
+        private void add(String accountId, int day, long amount, boolean isDebet, String invoiceId) {
+            if (size == accountIndex.length) {
+                int newCapacity = 2 * size;
+                accountIndex = Arrays.copyOf(accountIndex, newCapacity);
+                epochDay = Arrays.copyOf(epochDay, newCapacity);
+                cents = Arrays.copyOf(cents, newCapacity);
+                debet = Arrays.copyOf(debet, newCapacity);
+                invoiceIndex = Arrays.copyOf(invoiceIndex, newCapacity);
+            }
+            accountIndex[size] = indexOf(accountId, accountIds, accountIdToIndex);
+            epochDay[size] = day;
+            cents[size] = amount;
+            debet[size] = isDebet;
+            invoiceIndex[size] = invoiceId != null ? indexOf(invoiceId, invoiceIds, invoiceIdToIndex) : -1;
+            size++;
+        }
+
+        private int indexOf(String id, List<String> ids, Map<String, Integer> idToIndex) {
+            return idToIndex.computeIfAbsent(id, key -> {
+                ids.add(key);
+                return ids.size() - 1;
+            });
+        }
+
+        private LedgerSnapshot toSnapshot(long documentVersion) {
+            return new LedgerSnapshot(documentVersion, accountIds, invoiceIds, size, Arrays.copyOf(accountIndex, size),
+                    Arrays.copyOf(epochDay, size), Arrays.copyOf(cents, size), Arrays.copyOf(debet, size),
+                    Arrays.copyOf(invoiceIndex, size));
+        }
+    }
+}
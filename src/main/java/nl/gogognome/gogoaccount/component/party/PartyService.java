@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 
 import static java.util.stream.Collectors.toList;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PARTY;
 
 public class PartyService {
 
@@ -32,7 +33,7 @@ public class PartyService {
             String nextPartyId = settingsService.findNextId(document, "previousPartyId", partyIdFormat);
             Party createdParty = new PartyDAO(document).createWithNewId(nextPartyId, party);
             new TagDAO(document).saveTags(createdParty.getId(), tags);
-            document.notifyChange();
+            document.notifyChange(PARTY, createdParty.getId());
             return createdParty;
         });
     }
@@ -42,7 +43,7 @@ public class PartyService {
             document.ensureDocumentIsWriteable();
             Party createdParty = new PartyDAO(document).create(party);
             new TagDAO(document).saveTags(createdParty.getId(), tags);
-            document.notifyChange();
+            document.notifyChange(PARTY, createdParty.getId());
             return createdParty;
         });
     }
@@ -56,7 +57,7 @@ public class PartyService {
             document.ensureDocumentIsWriteable();
             new PartyDAO(document).update(party);
             new TagDAO(document).saveTags(party.getId(), tags);
-            document.notifyChange();
+            document.notifyChange(PARTY, party.getId());
         });
     }
 
@@ -64,7 +65,7 @@ public class PartyService {
         ServiceTransaction.withoutResult(() -> {
             document.ensureDocumentIsWriteable();
             new PartyDAO(document).delete(party.getId());
-            document.notifyChange();
+            document.notifyChange(PARTY, party.getId());
         });
     }
 
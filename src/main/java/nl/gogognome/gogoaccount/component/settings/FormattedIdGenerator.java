@@ -1,18 +1,24 @@
 package nl.gogognome.gogoaccount.component.settings;
 
-import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.lib.util.StringUtil;
 
-import java.sql.SQLException;
 import java.util.Calendar;
 
 import static nl.gogognome.lib.util.StringUtil.replace;
 
 class FormattedIdGenerator {
 
-    String findNextId(Document document, String previousId, String format) throws ServiceException, SQLException {
+    /**
+     * Determines a range of consecutive ids following the previous id.
+     * @param previousId the previous id; null if no id has been generated before
+     * @param format the format of the ids. The placeholders yyyy and mm are replaced by the current year and month.
+     *               The sequence number replaces the n characters.
+     * @param count the number of ids
+     * @return the ids
+     */
+    FormattedIdRange findNextIds(String previousId, String format, int count) throws ServiceException {
         format = fillInYearAndDate(format);
         int startIndex = format.indexOf('n');
         int endIndex = startIndex;
@@ -21,9 +27,7 @@ class FormattedIdGenerator {
         }
 
         long previousSequenceNumber = getPreviousSequenceNumber(previousId, format, startIndex, endIndex);
-
-        String formattedSequenceNumber = StringUtil.prependToSize(Long.toString(previousSequenceNumber + 1), endIndex - startIndex, '0');
-        return replace(format, startIndex, endIndex, formattedSequenceNumber);
+        return new FormattedIdRange(format, startIndex, endIndex, previousSequenceNumber + 1, count);
     }
 
     private long getPreviousSequenceNumber(String previousId, String format, int startIndex, int endIndex) throws ServiceException {
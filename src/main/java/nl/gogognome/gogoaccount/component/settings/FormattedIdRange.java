@@ -0,0 +1,61 @@
+package nl.gogognome.gogoaccount.component.settings;
+
+import nl.gogognome.lib.util.StringUtil;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static nl.gogognome.lib.util.StringUtil.replace;
+
+/**
+ * A range of consecutive ids that have been reserved. The ids are formatted when they are requested.
+ */
+class FormattedIdRange implements Iterator<String> {
+
+    private final String format;
+    private final int startIndex;
+    private final int endIndex;
+    private final long lastSequenceNumber;
+    private long nextSequenceNumber;
+
+    /**
+     * Constructor.
+     * @param format the format in which the year and month have been filled in
+     * @param startIndex the index of the first 'n' of the sequence number in the format
+     * @param endIndex the index after the last 'n' of the sequence number in the format
+     * @param firstSequenceNumber the sequence number of the first id
+     * @param count the number of ids
+     */
+    FormattedIdRange(String format, int startIndex, int endIndex, long firstSequenceNumber, int count) {
+        this.format = format;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.nextSequenceNumber = firstSequenceNumber;
+        this.lastSequenceNumber = firstSequenceNumber + count - 1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextSequenceNumber <= lastSequenceNumber;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("All reserved ids have been used");
+        }
+        return format(nextSequenceNumber++);
+    }
+
+    /**
+     * @return the last id of the range
+     */
+    String getLastId() {
+        return format(lastSequenceNumber);
+    }
+
+    private String format(long sequenceNumber) {
+        String formattedSequenceNumber = StringUtil.prependToSize(Long.toString(sequenceNumber), endIndex - startIndex, '0');
+        return replace(format, startIndex, endIndex, formattedSequenceNumber);
+    }
+}
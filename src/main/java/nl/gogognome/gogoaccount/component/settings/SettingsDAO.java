@@ -21,6 +21,27 @@ class SettingsDAO extends AbstractDomainClassDAO<Setting> {
         }
     }
 
+    /**
+     * Inserts a setting without value if the setting does not exist yet. An existing setting keeps its value.
+     * Unlike checking for existence and inserting, this cannot fail with a duplicate key when another transaction
+     * inserts the same setting at the same time.
+     * @param key the key of the setting
+     */
+    public void createIfMissing(String key) throws SQLException {
+        execute("MERGE INTO " + tableName + " (key, value) KEY (key) VALUES (?, (SELECT s.value FROM " + tableName + " s WHERE s.key=?))",
+                key, key).ignoreResult();
+    }
+
+    /**
+     * Finds a setting and locks it until the end of the transaction, so that other transactions that
+     * want to lock the same setting have to wait.
+     * @param key the key of the setting
+     * @return the setting or null if it does not exist
+     */
+    public Setting findForUpdate(String key) throws SQLException {
+        return execute("SELECT * FROM " + tableName + " WHERE key=? FOR UPDATE", key).findFirst(this::getObjectFromResultSet);
+    }
+
     @Override
     protected Setting getObjectFromResultSet(ResultSetWrapper result) throws SQLException {
         Setting setting = new Setting(result.getString("key"));
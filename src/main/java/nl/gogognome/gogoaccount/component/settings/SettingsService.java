@@ -4,6 +4,8 @@ import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.gogoaccount.services.ServiceTransaction;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 import static java.util.stream.Collectors.toMap;
@@ -39,12 +41,32 @@ public class SettingsService {
     }
 
     public String findNextId(Document document, String key, String format) throws ServiceException {
+        return reserveIds(document, key, format, 1).next();
+    }
+
+    /**
+     * Reserves a number of consecutive ids. The setting that holds the previous id is created if it is missing,
+     * and then locked, read and updated once, regardless of the number of ids. Transactions that reserve ids for the same key at the same time,
+     * from another thread or another connection, wait for each other and get different ranges of ids.
+     * @param document the document
+     * @param key the key of the setting that holds the previous id
+     * @param format the format of the ids. The placeholders yyyy and mm are replaced by the current year and month.
+     *               The sequence number replaces the n characters.
+     * @param count the number of ids
+     * @return an iterator over the reserved ids in ascending order
+     */
+    public Iterator<String> reserveIds(Document document, String key, String format, int count) throws ServiceException {
+        if (count == 0) {
+            return Collections.emptyIterator();
+        }
         return ServiceTransaction.withResult(() -> {
             SettingsDAO settingsDAO = new SettingsDAO(document);
-            Setting previousId = settingsDAO.find(key);
-            String nextId = new FormattedIdGenerator().findNextId(document, previousId != null ? previousId.getValue() : null, format);
-            settingsDAO.save(new Setting(key, nextId));
-            return nextId;
+            // The setting must exist before it can be locked, also for the very first reservation
+            settingsDAO.createIfMissing(key);
+            Setting previousId = settingsDAO.findForUpdate(key);
+            FormattedIdRange ids = new FormattedIdGenerator().findNextIds(previousId.getValue(), format, count);
+            settingsDAO.update(new Setting(key, ids.getLastId()));
+            return ids;
         });
     }
 }
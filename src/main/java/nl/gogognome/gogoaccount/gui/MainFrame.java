@@ -7,16 +7,22 @@ import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.component.document.DocumentListener;
 import nl.gogognome.gogoaccount.component.document.DocumentService;
+import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
+import nl.gogognome.gogoaccount.component.ledger.LedgerService;
+import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.gui.configuration.EmailConfigurationView;
 import nl.gogognome.gogoaccount.gui.controllers.GenerateReportController;
 import nl.gogognome.gogoaccount.gui.invoice.InvoiceGeneratorView;
 import nl.gogognome.gogoaccount.gui.invoice.InvoicesView;
 import nl.gogognome.gogoaccount.gui.views.*;
+import nl.gogognome.gogoaccount.reportgenerators.MultiYearComparisonTask;
+import nl.gogognome.gogoaccount.reportgenerators.SpreadsheetExportTask;
 import nl.gogognome.gogoaccount.services.BookkeepingService;
 import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.lib.swing.WidgetFactory;
 import nl.gogognome.lib.swing.dialogs.MessageDialog;
 import nl.gogognome.lib.swing.views.*;
+import nl.gogognome.lib.task.ui.TaskWithProgressDialog;
 import nl.gogognome.lib.text.AmountFormat;
 import nl.gogognome.lib.text.TextResource;
 import nl.gogognome.lib.util.Factory;
@@ -27,6 +33,7 @@ import org.springframework.core.io.ResourceLoader;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -59,6 +66,9 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
     private final BookkeepingService bookkeepingService;
     private final DocumentService documentService;
     private final ConfigurationService configurationService;
+    private final LedgerService ledgerService;
+    private final InvoiceService invoiceService;
+    private final PartyService partyService;
     private final ViewFactory viewFactory;
     private final ControllerFactory controllerFactory;
     private final DocumentRegistry documentRegistry;
@@ -71,6 +81,9 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
             BookkeepingService bookkeepingService,
             DocumentService documentService,
             ConfigurationService configurationService,
+            LedgerService ledgerService,
+            InvoiceService invoiceService,
+            PartyService partyService,
             ViewFactory viewFactory,
             ControllerFactory controllerFactory,
             DocumentRegistry documentRegistry,
@@ -79,6 +92,9 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         this.bookkeepingService = bookkeepingService;
         this.documentService = documentService;
         this.configurationService = configurationService;
+        this.ledgerService = ledgerService;
+        this.invoiceService = invoiceService;
+        this.partyService = partyService;
         this.viewFactory = viewFactory;
         this.controllerFactory = controllerFactory;
         this.documentRegistry = documentRegistry;
@@ -153,6 +169,7 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         JMenuItem miConfigureEmail = widgetFactory.createMenuItem("mi.configureEmail", e -> onConfigureEmail());
         JMenuItem miCloseBookkeeping = widgetFactory.createMenuItem("mi.closeBookkeeping", e -> handleCloseBookkeeping());
         JMenuItem miImportBankStatement = widgetFactory.createMenuItem("mi.importBankStatement", this);
+        JMenuItem miRebuildAccountBalances = widgetFactory.createMenuItem("mi.rebuildAccountBalances", e -> handleRebuildAccountBalances());
         JMenuItem miExit = widgetFactory.createMenuItem("mi.exit", this);
 
         // the edit menu
@@ -169,6 +186,10 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         // the reporting menu
         JMenuItem miGenerateInvoices = widgetFactory.createMenuItem("mi.generateInvoices", e -> handleGenerateInvoices());
         JMenuItem miGenerateReport = widgetFactory.createMenuItem("mi.generateReport", e -> handleGenerateReport());
+        JMenuItem miCompareYears = widgetFactory.createMenuItem("mi.compareYears", e -> handleCompareYears());
+        JMenuItem miExportJournals = widgetFactory.createMenuItem("mi.exportJournals", e -> handleExport(SpreadsheetExportTask.Content.JOURNALS));
+        JMenuItem miExportLedger = widgetFactory.createMenuItem("mi.exportLedger", e -> handleExport(SpreadsheetExportTask.Content.LEDGER));
+        JMenuItem miExportInvoices = widgetFactory.createMenuItem("mi.exportInvoices", e -> handleExport(SpreadsheetExportTask.Content.INVOICES));
 
         // the help menu
         JMenuItem miAbout = widgetFactory.createMenuItem("mi.about", this);
@@ -180,6 +201,7 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         fileMenu.add(miConfigureBookkeeping);
         fileMenu.add(miConfigureEmail);
         fileMenu.add(miImportBankStatement);
+        fileMenu.add(miRebuildAccountBalances);
         fileMenu.addSeparator();
         fileMenu.add(miExit);
 
@@ -194,6 +216,11 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
 
         reportingMenu.add(miGenerateInvoices);
         reportingMenu.add(miGenerateReport);
+        reportingMenu.add(miCompareYears);
+        reportingMenu.addSeparator();
+        reportingMenu.add(miExportJournals);
+        reportingMenu.add(miExportLedger);
+        reportingMenu.add(miExportInvoices);
 
         helpMenu.add(miAbout);
 
@@ -349,6 +376,17 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         });
     }
 
+    private void handleRebuildAccountBalances() {
+        handleException.of(() -> {
+            if (document == null) {
+                messageDialog.showInfoMessage("mf.noBookkeepingPresent");
+            } else {
+                ledgerService.rebuildAccountBalances(document);
+                messageDialog.showInfoMessage("mf.accountBalancesRebuilt");
+            }
+        });
+    }
+
     private void handleImportBankStatement() {
         ensureAccountsPresent(() -> openView(ImportBankStatementView.class));
     }
@@ -458,6 +496,57 @@ public class MainFrame extends JFrame implements ActionListener, DocumentListene
         });
     }
 
+    private void handleCompareYears() {
+        ensureAccountsPresent(() -> {
+            File directory = document.getDatabaseFile() != null ? document.getDatabaseFile().getParentFile() : null;
+            JFileChooser fc = new JFileChooser(directory);
+            fc.setMultiSelectionEnabled(true);
+            fc.setFileFilter(new FileFilter() {
+                @Override
+                public boolean accept(File f) {
+                    return f.isDirectory() || f.getName().toLowerCase().endsWith(".h2.db");
+                }
+
+                @Override
+                public String getDescription() {
+                    return textResource.getString("mf.fileSelection.description");
+                }
+            });
+            if (fc.showDialog(this, textResource.getString("mf.titleCompareYears")) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            java.util.List<File> bookkeepingFiles = Arrays.asList(fc.getSelectedFiles());
+
+            JFileChooser reportFileChooser = new JFileChooser(directory);
+            if (reportFileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File reportFile = reportFileChooser.getSelectedFile();
+
+            MultiYearComparisonTask task = new MultiYearComparisonTask(Factory.getInstance(AmountFormat.class), textResource,
+                    bookkeepingService, bookkeepingFiles, reportFile);
+            new TaskWithProgressDialog(new JFrameViewOwner(this), textResource, "genreport.progress", reportFile.getAbsolutePath())
+                    .execute(task);
+        });
+    }
+
+    private void handleExport(SpreadsheetExportTask.Content content) {
+        ensureAccountsPresent(() -> {
+            File directory = document.getDatabaseFile() != null ? document.getDatabaseFile().getParentFile() : null;
+            JFileChooser fc = new JFileChooser(directory);
+            fc.setFileFilter(new FileNameExtensionFilter(textResource.getString("partiesExport.fileType"), "xlsx"));
+            if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File file = fc.getSelectedFile();
+
+            SpreadsheetExportTask task = new SpreadsheetExportTask(document, textResource, configurationService, invoiceService,
+                    ledgerService, partyService, content, file);
+            new TaskWithProgressDialog(new JFrameViewOwner(this), textResource, "genreport.progress", file.getAbsolutePath())
+                    .execute(task);
+        });
+    }
+
     private void handleAddInvoices() throws ServiceException {
         ensureAccountsPresent(() -> openView(InvoiceGeneratorView.class));
     }
@@ -1,8 +1,10 @@
 package nl.gogognome.gogoaccount.gui.components;
 
 import nl.gogognome.gogoaccount.businessobjects.Report;
+import nl.gogognome.gogoaccount.businessobjects.ReportProfile;
 import nl.gogognome.gogoaccount.component.configuration.Account;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges;
 import nl.gogognome.gogoaccount.component.document.DocumentListener;
 import nl.gogognome.gogoaccount.gui.components.BalanceSheet.Row;
 import nl.gogognome.gogoaccount.services.BookkeepingService;
@@ -25,6 +27,11 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.ACCOUNT;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.INVOICE;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.JOURNAL_ENTRY;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PAYMENT;
+
 /**
  * This class implements a graphical component that shows a balance sheet.
  */
@@ -87,7 +94,7 @@ public class BalanceSheetComponent extends JScrollPane implements Closeable {
         }
 
         try {
-			report = bookkeepingService.createReport(document, date);
+			report = bookkeepingService.createReport(document, date, ReportProfile.TOTALS_DEBTORS_AND_CREDITORS);
 
             setBorder(Factory.getInstance(WidgetFactory.class)
                     .createTitleBorder("balanceSheetComponent.title", report.getEndDate()));
@@ -182,5 +189,13 @@ public class BalanceSheetComponent extends JScrollPane implements Closeable {
 		    initComponents();
 		    validate();
 		}
+
+		@Override
+		public void documentChanged(Document document, DocumentChanges changes) {
+			// The balance sheet shows accounts and the totals of debtors and creditors, but no parties
+			if (changes.affects(JOURNAL_ENTRY, ACCOUNT, INVOICE, PAYMENT)) {
+				documentChanged(document);
+			}
+		}
 	}
 }
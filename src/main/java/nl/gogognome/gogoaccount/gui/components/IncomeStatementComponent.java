@@ -1,8 +1,10 @@
 package nl.gogognome.gogoaccount.gui.components;
 
 import nl.gogognome.gogoaccount.businessobjects.Report;
+import nl.gogognome.gogoaccount.businessobjects.ReportProfile;
 import nl.gogognome.gogoaccount.component.configuration.Account;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges;
 import nl.gogognome.gogoaccount.component.document.DocumentListener;
 import nl.gogognome.gogoaccount.gui.components.BalanceSheet.Row;
 import nl.gogognome.gogoaccount.services.BookkeepingService;
@@ -23,6 +25,9 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.ACCOUNT;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.JOURNAL_ENTRY;
+
 /**
  * This class implements a graphical component that shows an income statement.
  */
@@ -83,7 +88,7 @@ public class IncomeStatementComponent extends JScrollPane implements Closeable {
         }
 
         try {
-			report = bookkeepingService.createReport(document, date);
+			report = bookkeepingService.createReport(document, date, ReportProfile.TOTALS);
 
             setBorder(widgetFactory.createTitleBorder("operationalResultComponent.title",
                     report.getEndDate()));
@@ -142,5 +147,12 @@ public class IncomeStatementComponent extends JScrollPane implements Closeable {
 		    initComponents();
 		    validate();
 		}
+
+		@Override
+		public void documentChanged(Document document, DocumentChanges changes) {
+			if (changes.affects(JOURNAL_ENTRY, ACCOUNT)) {
+				documentChanged(document);
+			}
+		}
 	}
 }
@@ -2,6 +2,7 @@ package nl.gogognome.gogoaccount.gui.controllers;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import nl.gogognome.gogoaccount.component.configuration.*;
 import nl.gogognome.gogoaccount.component.document.*;
 import nl.gogognome.gogoaccount.component.invoice.*;
@@ -29,6 +30,7 @@ public class GenerateReportController {
     private final PartyService partyService;
     private final ReportToModelConverter reportToModelConverter;
     private final ViewFactory viewFactory;
+    private final Executor executor;
     private HandleException handleException;
 
     private ViewOwner viewOwner;
@@ -36,7 +38,7 @@ public class GenerateReportController {
     public GenerateReportController(Document document, AmountFormat amountFormat, TextResource textResource,
                                     BookkeepingService bookkeepingService, ConfigurationService configurationService,
                                     InvoiceService invoiceService, LedgerService ledgerService, PartyService partyService,
-                                    ReportToModelConverter reportToModelConverter, ViewFactory viewFactory) {
+                                    ReportToModelConverter reportToModelConverter, ViewFactory viewFactory, Executor executor) {
         this.document = document;
         this.amountFormat = amountFormat;
         this.textResource = textResource;
@@ -47,6 +49,7 @@ public class GenerateReportController {
         this.partyService = partyService;
         this.reportToModelConverter = reportToModelConverter;
         this.viewFactory = viewFactory;
+        this.executor = executor;
     }
 
     public void setViewOwner(ViewOwner viewOwner) {
@@ -65,9 +68,11 @@ public class GenerateReportController {
             if (date != null && reportFile != null) {
                 Task task = switch (view.getReportType()) {
                     case PLAIN_TEXT ->
-                            new ReportTask(document, amountFormat, textResource, bookkeepingService, configurationService, invoiceService, ledgerService, partyService, date, reportFile, view.getReportType());
+                            new ReportTask(document, amountFormat, textResource, bookkeepingService, configurationService, invoiceService, ledgerService, partyService, executor, date, reportFile, view.getReportType());
                     case ODT_DOCUMENT ->
                             new OdtReportGeneratorTask(document, bookkeepingService, reportToModelConverter, date, reportFile, view.getTemplateFile());
+                    case CSV_SERIES ->
+                            new ReportSeriesTask(document, amountFormat, textResource, bookkeepingService, configurationService, date, reportFile);
                 };
 
                 startTask(task, reportFile);
@@ -2,6 +2,7 @@ package nl.gogognome.gogoaccount.gui.invoice;
 
 import nl.gogognome.gogoaccount.component.document.Document;
 import nl.gogognome.gogoaccount.component.email.EmailService;
+import nl.gogognome.gogoaccount.component.invoice.CompiledInvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
 import nl.gogognome.gogoaccount.component.invoice.InvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
@@ -38,12 +39,13 @@ public class EmailInvoicesView extends SendInvoicesView {
         }
 
         TaskWithProgressDialog progressDialog = new TaskWithProgressDialog(this, textResource, "SendInvoicesView.sendingEmails");
+        CompiledInvoicePreviewTemplate template = compileTemplate(templateModel.getString());
         progressDialog.execute(taskProgressListener -> {
             int progress = 0;
             for (Invoice invoice : invoicesToSend) {
                 progress += 100 / invoicesToSend.size();
                 taskProgressListener.onProgressUpdate(progress);
-                String xml = fillInParametersInTemplate(templateModel.getString(), invoice);
+                String xml = fillInParametersInTemplate(template, invoice);
                 emailService.sendEmail(document, invoiceIdToParty.get(invoice.getId()).getEmailAddress(), invoice.getDescription(), xml, "utf-8", "html");
                 invoiceService.createInvoiceSending(document, invoice, EMAIL);
             }
@@ -1,33 +1,46 @@
 package nl.gogognome.gogoaccount.gui.invoice;
 
-import com.itextpdf.text.DocumentException;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.invoice.CompiledInvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
 import nl.gogognome.gogoaccount.component.invoice.InvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
 import nl.gogognome.gogoaccount.component.settings.SettingsService;
+import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
 import nl.gogognome.lib.task.ui.TaskWithProgressDialog;
-import org.xml.sax.SAXException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import static nl.gogognome.gogoaccount.component.invoice.InvoiceSending.Type.PDF;
 
 public class ExportPdfsInvoicesView extends SendInvoicesView {
 
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExportPdfsInvoicesView.class);
+
     private final Document document;
     private final InvoiceService invoiceService;
     private final PdfGenerator pdfGenerator;
+    private final Executor executor;
 
     public ExportPdfsInvoicesView(Document document, InvoiceService invoiceService,
                                   InvoicePreviewTemplate invoicePreviewTemplate, SettingsService settingsService,
-                                  PdfGenerator pdfGenerator) {
+                                  PdfGenerator pdfGenerator, Executor executor) {
         super(document, invoicePreviewTemplate, settingsService);
         this.document = document;
         this.invoiceService = invoiceService;
         this.pdfGenerator = pdfGenerator;
+        this.executor = executor;
     }
 
     @Override
@@ -56,23 +69,131 @@ public class ExportPdfsInvoicesView extends SendInvoicesView {
         return null;
     }
 
-    private void exportInvoicesToPdf(File directory) throws ParserConfigurationException, SAXException, IOException, DocumentException {
+    /**
+     * Exports the invoices to PDF files. The invoices are rendered by the shared executor. If an invoice cannot be
+     * exported, the invoices that have not been started are skipped and the export waits for the invoices that are
+     * being rendered. Files of invoices that were not completed are deleted. The invoice sendings of the completed
+     * invoices are created in one transaction, also if the export failed.
+     */
+    private void exportInvoicesToPdf(File directory) {
         TaskWithProgressDialog progressDialog = new TaskWithProgressDialog(this, textResource, "SendInvoicesView.generatingPdfFiles");
         progressDialog.execute(taskProgressListener -> {
-            int progress = 0;
+            PdfExport pdfExport = new PdfExport(directory, compileTemplate(templateModel.getString()), templateFileModel.getFile().toURI().toString());
+            List<FutureTask<Void>> futures = new ArrayList<>(invoicesToSend.size());
             for (Invoice invoice : invoicesToSend) {
-                progress += 100 / invoicesToSend.size();
-                taskProgressListener.onProgressUpdate(progress);
-                String html = fillInParametersInTemplate(templateModel.getString(), invoice);
-                try (FileOutputStream outputStream = new FileOutputStream(new File(directory, invoice.getId() + "_" + invoiceIdToParty.get(invoice.getId()).getName() + ".pdf"))) {
-                    pdfGenerator.writePdfToStream(html, templateFileModel.getFile().toURI().toString(), outputStream);
+                futures.add(ParallelTasks.submit(executor, () -> pdfExport.export(invoice)));
+            }
+
+            Exception failure = null;
+            try {
+                int nrExportedInvoices = 0;
+                for (FutureTask<Void> future : futures) {
+                    ParallelTasks.getResult(future);
+                    nrExportedInvoices++;
+                    taskProgressListener.onProgressUpdate(nrExportedInvoices * 100 / invoicesToSend.size());
                 }
+            } catch (Exception e) {
+                failure = e;
+                pdfExport.skipInvoicesThatHaveNotStarted();
+                awaitInvoicesBeingExported(futures);
+            }
 
-                invoiceService.createInvoiceSending(document, invoice, PDF);
+            List<Invoice> exportedInvoices = pdfExport.finish();
+            try {
+                invoiceService.createInvoiceSendings(document, exportedInvoices, PDF);
+            } catch (ServiceException e) {
+                if (failure == null) {
+                    throw e;
+                }
+                failure.addSuppressed(e);
+            }
+            if (failure != null) {
+                throw failure;
             }
             taskProgressListener.onProgressUpdate(100);
             return null;
         });
     }
 
+    /**
+     * Waits until the invoices that are being exported have finished. Invoices that have not started yet
+     * are skipped, because the export has been stopped.
+     */
+    private void awaitInvoicesBeingExported(List<FutureTask<Void>> futures) {
+        for (FutureTask<Void> future : futures) {
+            try {
+                ParallelTasks.getResult(future);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Only the first failure is reported
+            }
+        }
+    }
+
+    /**
+     * Exports invoices to PDF files and keeps track of the invoices whose file has been completed.
+     */
+    private class PdfExport {
+
+        private final File directory;
+        private final CompiledInvoicePreviewTemplate template;
+        private final String url;
+        private final List<Invoice> exportedInvoices = new ArrayList<>();
+        private volatile boolean skipInvoicesThatHaveNotStarted;
+        private boolean finished;
+
+        private PdfExport(File directory, CompiledInvoicePreviewTemplate template, String url) {
+            this.directory = directory;
+            this.template = template;
+            this.url = url;
+        }
+
+        private Void export(Invoice invoice) throws Exception {
+            if (skipInvoicesThatHaveNotStarted) {
+                return null;
+            }
+            File file = new File(directory, invoice.getId() + "_" + invoiceIdToParty.get(invoice.getId()).getName() + ".pdf");
+            try {
+                ByteArrayOutputStream html = new ByteArrayOutputStream(16*1024);
+                writeFilledInTemplate(template, invoice, html);
+                try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                    pdfGenerator.writePdfToStream(new ByteArrayInputStream(html.toByteArray()), url, outputStream);
+                }
+            } catch (Exception e) {
+                deleteFile(file);
+                throw e;
+            }
+
+            synchronized (this) {
+                if (finished) {
+                    // The invoice sendings have already been determined, so this file will not be recorded as sent
+                    deleteFile(file);
+                } else {
+                    exportedInvoices.add(invoice);
+                }
+            }
+            return null;
+        }
+
+        private void skipInvoicesThatHaveNotStarted() {
+            skipInvoicesThatHaveNotStarted = true;
+        }
+
+        /**
+         * @return the invoices whose file has been completed; files completed after this call are deleted
+         */
+        private synchronized List<Invoice> finish() {
+            finished = true;
+            return new ArrayList<>(exportedInvoices);
+        }
+
+        private void deleteFile(File file) {
+            if (file.exists() && !file.delete()) {
+                LOGGER.warn("Failed to delete incomplete PDF file " + file.getAbsolutePath());
+            }
+        }
+    }
+
 }
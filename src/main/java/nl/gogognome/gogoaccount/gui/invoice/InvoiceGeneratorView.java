@@ -26,6 +26,7 @@ import nl.gogognome.lib.swing.models.ListModel;
 import nl.gogognome.lib.swing.models.StringModel;
 import nl.gogognome.lib.swing.views.View;
 import nl.gogognome.lib.swing.views.ViewDialog;
+import nl.gogognome.lib.task.ui.TaskWithProgressDialog;
 
 import javax.swing.*;
 import javax.swing.border.CompoundBorder;
@@ -35,6 +36,8 @@ import java.awt.*;
 import java.text.ParseException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.stream.Collectors.toList;
 import static nl.gogognome.gogoaccount.component.configuration.AccountType.CREDITOR;
@@ -377,16 +380,38 @@ public class InvoiceGeneratorView extends View {
                 return;
             }
 
-            generateInvoices(date, invoiceLines, parties);
-            messageDialog.showInfoMessage("invoiceGeneratorView.messageSuccess");
+            if (generateInvoices(date, invoiceLines, parties)) {
+                messageDialog.showInfoMessage("invoiceGeneratorView.messageSuccess");
+            }
         });
     }
 
-    private void generateInvoices(Date date, List<nl.gogognome.gogoaccount.component.invoice.InvoiceTemplateLine> invoiceLines, Party[] parties) throws ServiceException {
+    /**
+     * Generates the invoices in a task with a progress dialog. An exception of the task, like the ServiceException
+     * that lists the parties for which no invoice could be created, is rethrown so that it is handled by the caller.
+     * @return true if the invoices have been generated; false if the task did not finish
+     */
+    private boolean generateInvoices(Date date, List<nl.gogognome.gogoaccount.component.invoice.InvoiceTemplateLine> invoiceLines, Party[] parties) throws Exception {
         Account account = rbSalesInvoice.isSelected() ? debtorAccountModel.getSelectedItem() : creditorAccountModel.getSelectedItem();
         InvoiceTemplate.Type type = rbSalesInvoice.isSelected() ? SALE : PURCHASE;
         InvoiceTemplate template = new InvoiceTemplate(type, partyReferenceModel.getString(), date, descriptionModel.getString(), invoiceLines);
-        ledgerService.createInvoiceAndJournalForParties(document, account, template, Arrays.asList(parties));
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        TaskWithProgressDialog progressDialog = new TaskWithProgressDialog(this, textResource, "invoiceGeneratorView.progressDialogTitle");
+        progressDialog.execute(taskProgressListener -> {
+            try {
+                ledgerService.createInvoiceAndJournalForParties(document, account, template, Arrays.asList(parties), taskProgressListener);
+                finished.set(true);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+            return null;
+        });
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return finished.get();
     }
 
     private Party[] selectParties() {
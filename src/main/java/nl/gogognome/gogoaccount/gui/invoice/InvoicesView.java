@@ -39,6 +39,9 @@ import java.util.Map;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.INVOICE;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PARTY;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PAYMENT;
 import static nl.gogognome.lib.util.StringUtil.isNullOrEmpty;
 
 public class InvoicesView extends View {
@@ -105,7 +108,7 @@ public class InvoicesView extends View {
     }
 
     private void addListeners() {
-        documentListener = doc -> onSearch();
+        documentListener = DocumentListener.whenChanged(this::onSearch, INVOICE, PAYMENT, PARTY);
         document.addListener(documentListener);
     }
 
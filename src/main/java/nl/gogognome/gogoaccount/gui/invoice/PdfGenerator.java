@@ -1,23 +1,156 @@
 package nl.gogognome.gogoaccount.gui.invoice;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xhtmlrenderer.pdf.ITextFontResolver;
+import org.xhtmlrenderer.pdf.ITextOutputDevice;
 import org.xhtmlrenderer.pdf.ITextRenderer;
+import org.xhtmlrenderer.pdf.ITextUserAgent;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Generates PDF documents from XHTML. Each document gets its own renderer and document builder, because a renderer
+ * keeps the state of the last document it rendered. So multiple threads can generate PDF documents at the same time.
+ *
+ * <p>The parts of a renderer that are expensive to set up and do not depend on the document are shared:
+ * <ul>
+ *     <li>Images, style sheets and other resources are read once and kept in a small cache that is shared by all
+ *     renderers. A resource file is read again as soon as it has been modified.</li>
+ *     <li>The font resolver is set up once per thread and reused by the renderers of that thread. A font resolver
+ *     cannot be shared by threads, because it caches the fonts it has resolved without synchronization.</li>
+ * </ul></p>
+ */
 public class PdfGenerator {
 
+    private final static Logger LOGGER = LoggerFactory.getLogger(PdfGenerator.class);
+
+    // render at 300 dpi (see http://stackoverflow.com/questions/20495092/flying-saucer-set-custom-dpi-for-output-pdf)
+    private final static float DOTS_PER_POINT = 4.1666f;
+    private final static int DOTS_PER_PIXEL = 1;
+
+    private final static int MAX_CACHED_RESOURCES = 20;
+
+    private final Map<ResourceKey, byte[]> keyToResource =
+            new LinkedHashMap<ResourceKey, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ResourceKey, byte[]> eldest) {
+                    return size() > MAX_CACHED_RESOURCES;
+                }
+            };
+
+    private final ThreadLocal<ITextFontResolver> fontResolvers = new ThreadLocal<>();
+
     public void writePdfToStream(String xhtml, String url, OutputStream outputStream) throws Exception {
-        // render at 300 dpi (see http://stackoverflow.com/questions/20495092/flying-saucer-set-custom-dpi-for-output-pdf)
-        ITextRenderer renderer = new ITextRenderer(4.1666f, 1);
+        writePdfToStream(new ByteArrayInputStream(xhtml.getBytes(Charset.forName("UTF-8"))), url, outputStream);
+    }
+
+    /**
+     * Writes a PDF document to a stream.
+     * @param xhtml the stream from which the XHTML of the document is read
+     * @param url the URL against which relative URLs in the XHTML are resolved
+     * @param outputStream the stream to which the PDF document is written
+     */
+    public void writePdfToStream(InputStream xhtml, String url, OutputStream outputStream) throws Exception {
         DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        org.w3c.dom.Document doc = builder.parse(new ByteArrayInputStream(xhtml.getBytes(Charset.forName("UTF-8"))));
+        org.w3c.dom.Document doc = builder.parse(xhtml);
+
+        ITextRenderer renderer = createRenderer();
         renderer.setDocument(doc, url);
         renderer.layout();
         renderer.createPDF(outputStream);
     }
 
+    private ITextRenderer createRenderer() {
+        ITextOutputDevice outputDevice = new ITextOutputDevice(DOTS_PER_POINT);
+        ITextRenderer renderer = new ITextRenderer(DOTS_PER_POINT, DOTS_PER_PIXEL, outputDevice,
+                new CachingUserAgent(outputDevice));
+        ITextFontResolver fontResolver = fontResolvers.get();
+        if (fontResolver == null) {
+            fontResolver = renderer.getFontResolver();
+            fontResolvers.set(fontResolver);
+        } else {
+            renderer.getSharedContext().setFontResolver(fontResolver);
+        }
+        return renderer;
+    }
+
+    private byte[] getCachedResource(ResourceKey key) {
+        synchronized (keyToResource) {
+            return keyToResource.get(key);
+        }
+    }
+
+    private void putCachedResource(ResourceKey key, byte[] resource) {
+        synchronized (keyToResource) {
+            keyToResource.put(key, resource);
+        }
+    }
+
+    /**
+     * User agent that reads resources from the cache of the generator. Only the bytes of a resource are cached;
+     * the images and style sheets created from them belong to the renderer of a single document.
+     */
+    private class CachingUserAgent extends ITextUserAgent {
+
+        private CachingUserAgent(ITextOutputDevice outputDevice) {
+            super(outputDevice);
+        }
+
+        @Override
+        protected InputStream resolveAndOpenStream(String uri) {
+            String resolvedUri = resolveURI(uri);
+            if (resolvedUri == null) {
+                return null;
+            }
+
+            ResourceKey key = new ResourceKey(resolvedUri);
+            byte[] resource = getCachedResource(key);
+            if (resource == null) {
+                try (InputStream inputStream = super.resolveAndOpenStream(resolvedUri)) {
+                    if (inputStream == null) {
+                        return null;
+                    }
+                    resource = inputStream.readAllBytes();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to read resource " + resolvedUri, e);
+                    return null;
+                }
+                putCachedResource(key, resource);
+            }
+            return new ByteArrayInputStream(resource);
+        }
+    }
+
+    /**
+     * Identifies a version of a resource. For a file the last modification time is part of the key.
+     */
+    private record ResourceKey(String uri, long lastModified) {
+
+        private ResourceKey(String uri) {
+            this(uri, determineLastModified(uri));
+        }
+
+        private static long determineLastModified(String uri) {
+            if (!uri.startsWith("file:")) {
+                return 0;
+            }
+            try {
+                return new File(URI.create(uri)).lastModified();
+            } catch (IllegalArgumentException e) {
+                return 0;
+            }
+        }
+    }
+
 }
@@ -1,6 +1,7 @@
 package nl.gogognome.gogoaccount.gui.invoice;
 
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.invoice.CompiledInvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
 import nl.gogognome.gogoaccount.component.invoice.InvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
@@ -40,7 +41,7 @@ public class PrintInvoicesView extends SendInvoicesView {
     protected boolean send() throws Exception {
         PrinterJob printerJob = PrinterJob.getPrinterJob();
         if (printerJob.printDialog()) {
-            PDDocument pdDocument = PDDocument.load(getMergedPdfsBytes());
+            PDDocument pdDocument = PDDocument.load(getMergedPdfsBytes(compileTemplate(templateModel.getString())));
             printerJob.setPageable(new PDFPageable(pdDocument));
             printerJob.print();
 
@@ -53,19 +54,20 @@ public class PrintInvoicesView extends SendInvoicesView {
         }
     }
 
-    private byte[] getPdfBytes(Invoice invoice) throws Exception {
-        String html = fillInParametersInTemplate(templateModel.getString(), invoice);
+    private byte[] getPdfBytes(CompiledInvoicePreviewTemplate template, Invoice invoice) throws Exception {
+        ByteArrayOutputStream html = new ByteArrayOutputStream(16*1024);
+        writeFilledInTemplate(template, invoice, html);
         ByteArrayOutputStream baos = new ByteArrayOutputStream(16*1024);
-        pdfGenerator.writePdfToStream(html, templateFileModel.getFile().toURI().toString(), baos);
+        pdfGenerator.writePdfToStream(new ByteArrayInputStream(html.toByteArray()), templateFileModel.getFile().toURI().toString(), baos);
         return baos.toByteArray();
     }
 
-    private byte[] getMergedPdfsBytes() throws Exception {
+    private byte[] getMergedPdfsBytes(CompiledInvoicePreviewTemplate template) throws Exception {
         ByteArrayOutputStream mergedPdfsStream = new ByteArrayOutputStream(invoicesToSend.size() * 16 * 1024);
         PDFMergerUtility pdfMerger = new PDFMergerUtility();
         pdfMerger.setDestinationStream(mergedPdfsStream);
         for (Invoice invoice : invoicesToSend) {
-            pdfMerger.addSource(new ByteArrayInputStream(getPdfBytes(invoice)));
+            pdfMerger.addSource(new ByteArrayInputStream(getPdfBytes(template, invoice)));
         }
         pdfMerger.mergeDocuments(MemoryUsageSetting.setupMixed(Runtime.getRuntime().freeMemory() * 3 / 4));
         return mergedPdfsStream.toByteArray();
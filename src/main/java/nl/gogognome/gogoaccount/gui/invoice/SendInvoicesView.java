@@ -1,6 +1,7 @@
 package nl.gogognome.gogoaccount.gui.invoice;
 
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.invoice.CompiledInvoicePreviewTemplate;
 import nl.gogognome.gogoaccount.component.invoice.Invoice;
 import nl.gogognome.gogoaccount.component.invoice.InvoiceDetail;
 import nl.gogognome.gogoaccount.component.invoice.InvoicePreviewTemplate;
@@ -30,8 +31,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -218,7 +222,7 @@ public abstract class SendInvoicesView extends View {
     protected abstract boolean send() throws Exception;
 
     private void onUpdatePreview() {
-        updatePreview(templateModel.getString(), 0, xhtmlPanel);
+        handleException.of(() -> updatePreview(templateModel.getString(), 0, xhtmlPanel));
     }
 
     private void onSave() {
@@ -241,16 +245,48 @@ public abstract class SendInvoicesView extends View {
         Files.write(file.toPath(), templateModel.getString().getBytes(Charset.forName("UTF-8")));
     }
 
-    protected void updatePreview(String fileContents, int invoiceIndex, XHTMLPanel xhtmlPanel) {
+    protected void updatePreview(String fileContents, int invoiceIndex, XHTMLPanel xhtmlPanel) throws IOException {
         Invoice invoice = invoicesToSend.get(invoiceIndex);
-        String fileContentsWithValuesFilledIn = fillInParametersInTemplate(fileContents, invoice);
+        String fileContentsWithValuesFilledIn = fillInParametersInTemplate(compileTemplate(fileContents), invoice);
         xhtmlPanel.setDocumentFromString(fileContentsWithValuesFilledIn, templateFileModel.getFile().toURI().toString(), new XhtmlNamespaceHandler());
     }
 
-    protected String fillInParametersInTemplate(String fileContents, Invoice invoice) {
-        return invoicePreviewTemplate.fillInParametersInTemplate(fileContents, invoice,
-                    invoiceIdToDetails.get(invoice.getId()), invoiceIdToPayments.get(invoice.getId()),
-                    invoiceIdToParty.get(invoice.getId()), DateUtil.addMonths(invoice.getIssueDate(), 1));
+    /**
+     * Parses a template. Compile the template once per action and render the compiled template for each invoice.
+     * @param fileContents the contents of the template
+     * @return the compiled template; it can be shared by multiple threads
+     */
+    protected CompiledInvoicePreviewTemplate compileTemplate(String fileContents) {
+        return invoicePreviewTemplate.compile(fileContents);
+    }
+
+    /**
+     * Fills in the parameters of a compiled template for an invoice.
+     * @param template the compiled template
+     * @param invoice the invoice
+     * @return the template with the values of the invoice filled in
+     */
+    protected String fillInParametersInTemplate(CompiledInvoicePreviewTemplate template, Invoice invoice) throws IOException {
+        StringWriter writer = new StringWriter();
+        template.render(writer, invoice, invoiceIdToDetails.get(invoice.getId()), invoiceIdToPayments.get(invoice.getId()),
+                invoiceIdToParty.get(invoice.getId()), getDueDate(invoice));
+        return writer.toString();
+    }
+
+    /**
+     * Writes a compiled template with the parameters of an invoice filled in as UTF-8 encoded text to a stream.
+     * @param template the compiled template
+     * @param invoice the invoice
+     * @param outputStream the stream; it is flushed, but not closed
+     */
+    protected void writeFilledInTemplate(CompiledInvoicePreviewTemplate template, Invoice invoice, OutputStream outputStream)
+            throws IOException {
+        template.render(outputStream, invoice, invoiceIdToDetails.get(invoice.getId()), invoiceIdToPayments.get(invoice.getId()),
+                invoiceIdToParty.get(invoice.getId()), getDueDate(invoice));
+    }
+
+    private Date getDueDate(Invoice invoice) {
+        return DateUtil.addMonths(invoice.getIssueDate(), 1);
     }
 
     @Override
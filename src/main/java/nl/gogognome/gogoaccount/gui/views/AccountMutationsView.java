@@ -4,6 +4,7 @@ import nl.gogognome.gogoaccount.businessobjects.Report;
 import nl.gogognome.gogoaccount.component.configuration.Account;
 import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges;
 import nl.gogognome.gogoaccount.component.document.DocumentListener;
 import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.gui.components.AccountFormatter;
@@ -21,6 +22,11 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.Date;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.ACCOUNT;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.INVOICE;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.JOURNAL_ENTRY;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PARTY;
+
 /**
  * This view shows all mutations for an account.
  */
@@ -128,8 +134,9 @@ public class AccountMutationsView extends View {
 
     private void updateReportAndTableModel() throws ServiceException {
         Date date = dateModel.getDate();
-        if (date != null) {
-            updateReport(date);
+        Account account = accountListModel.getSelectedItem();
+        if (date != null && account != null) {
+            updateReport(account, date);
         } else {
             report = null;
         }
@@ -137,9 +144,9 @@ public class AccountMutationsView extends View {
         updateTableModel();
     }
 
-    private void updateReport(Date date) {
+    private void updateReport(Account account, Date date) {
         try {
-            report = bookkeepingService.createReport(document, date);
+            report = bookkeepingService.createReportWithLedgerOfAccount(document, account, date);
         } catch (ServiceException e) {
             report = null;
             MessageDialog.showErrorMessage(this, e, "gen.internalError");
@@ -172,11 +179,7 @@ public class AccountMutationsView extends View {
         @Override
         public void modelChanged(AbstractModel model) {
             try {
-                if (model == accountListModel && report != null) {
-                    updateTableModel();
-                } else {
-                    updateReportAndTableModel();
-                }
+                updateReportAndTableModel();
             } catch (ServiceException e ) {
                 logger.warn("ignored exception: " + e.getMessage(), e);
             }
@@ -193,5 +196,12 @@ public class AccountMutationsView extends View {
                 logger.warn("ignored exception: " + e.getMessage(), e);
             }
         }
+
+        @Override
+        public void documentChanged(Document document, DocumentChanges changes) {
+            if (changes.affects(JOURNAL_ENTRY, ACCOUNT, INVOICE, PARTY)) {
+                documentChanged(document);
+            }
+        }
     }
 }
@@ -2,6 +2,7 @@ package nl.gogognome.gogoaccount.gui.views;
 
 import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentChanges;
 import nl.gogognome.gogoaccount.component.document.DocumentListener;
 import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
 import nl.gogognome.gogoaccount.component.ledger.FormattedJournalEntry;
@@ -35,6 +36,10 @@ import java.io.*;
 import java.util.*;
 import java.util.List;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.INVOICE;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.JOURNAL_ENTRY;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PARTY;
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.PAYMENT;
 import static nl.gogognome.lib.util.StringUtil.isNullOrEmpty;
 
 /**
@@ -109,7 +114,7 @@ public class EditJournalsView extends View {
 
             Tables.selectFirstRow(journalEntriesTable);
 
-            documentListener = doc -> onSearch();
+            documentListener = new DocumentListenerImpl();
             document.addListener(documentListener);
         } catch (ServiceException e) {
             logger.warn("Ignored exception: " + e.getMessage(), e);
@@ -160,6 +165,20 @@ public class EditJournalsView extends View {
         handleException.of(() -> journalEntriesTableModel.setRows(getFilteredRows()));
     }
 
+    /**
+     * Replaces the rows of the changed journal entries without reloading the other journal entries.
+     * @param changedUniqueIds the unique ids of the added, updated and removed journal entries
+     */
+    private void onJournalEntriesChanged(Set<String> changedUniqueIds) {
+        handleException.of(() -> {
+            List<Long> uniqueIds = changedUniqueIds.stream().map(Long::valueOf).toList();
+            List<FormattedJournalEntry> rows = new ArrayList<>(journalEntriesTableModel.getRows());
+            rows.removeIf(row -> uniqueIds.contains(row.journalEntry.getUniqueId()));
+            rows.addAll(ledgerService.findFormattedJournalEntries(document, getCriterion(), uniqueIds));
+            journalEntriesTableModel.setRows(sortByDateDescending(rows));
+        });
+    }
+
     private ButtonPanel createButtonPanel() {
         ButtonPanel buttonPanel = new ButtonPanel(SwingConstants.CENTER);
         buttonPanel.setOpaque(false);
@@ -238,10 +257,32 @@ public class EditJournalsView extends View {
     }
 
     public List<FormattedJournalEntry> getFilteredRows() throws ServiceException {
-        Criterion criterion = isNullOrEmpty(searchCriterionModel.getString()) ? null : new Parser().parse(searchCriterionModel.getString());
-        return ledgerService.findFormattedJournalEntries(document, criterion).
-                stream()
+        return sortByDateDescending(ledgerService.findFormattedJournalEntries(document, getCriterion()));
+    }
+
+    private Criterion getCriterion() {
+        return isNullOrEmpty(searchCriterionModel.getString()) ? null : new Parser().parse(searchCriterionModel.getString());
+    }
+
+    private List<FormattedJournalEntry> sortByDateDescending(List<FormattedJournalEntry> rows) {
+        return rows.stream()
                 .sorted(Comparator.comparing((FormattedJournalEntry entry) -> entry.date).reversed())
                 .toList();
     }
+
+    private final class DocumentListenerImpl implements DocumentListener {
+        @Override
+        public void documentChanged(Document document) {
+            onSearch();
+        }
+
+        @Override
+        public void documentChanged(Document document, DocumentChanges changes) {
+            if (changes.affectsOnly(JOURNAL_ENTRY, PAYMENT)) {
+                onJournalEntriesChanged(changes.getChangedIds(JOURNAL_ENTRY));
+            } else if (changes.affects(JOURNAL_ENTRY, INVOICE, PARTY)) {
+                onSearch();
+            }
+        }
+    }
 }
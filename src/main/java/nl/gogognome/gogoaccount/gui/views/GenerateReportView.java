@@ -41,6 +41,7 @@ public class GenerateReportView extends OkCancelView {
     private FileModel templateFileModel;
     private BooleanModel txtModel;
     private BooleanModel odtModel;
+    private BooleanModel csvSeriesModel;
 
     private Date selectedDate;
     private File selectedReportFile;
@@ -81,6 +82,7 @@ public class GenerateReportView extends OkCancelView {
         txtModel = new BooleanModel();
         txtModel.setBoolean(true);
         odtModel = new BooleanModel();
+        csvSeriesModel = new BooleanModel();
     }
 
     @Override
@@ -106,6 +108,7 @@ public class GenerateReportView extends OkCancelView {
         RadioButtonPanel panel = new RadioButtonPanel();
         panel.addRadioButton("genreport.txt", txtModel);
         panel.addRadioButton("genreport.odt", odtModel);
+        panel.addRadioButton("genreport.csvSeries", csvSeriesModel);
         panel.setBorder(widgetFactory.createTitleBorder("genreport.fileType"));
         return panel;
     }
@@ -138,7 +141,13 @@ public class GenerateReportView extends OkCancelView {
         selectedDate = date;
         selectedReportFile = reportFile;
         selectedTemplateFile = templateFile;
-        reportType = txtModel.getBoolean() ? ReportType.PLAIN_TEXT : ReportType.ODT_DOCUMENT;
+        if (txtModel.getBoolean()) {
+            reportType = ReportType.PLAIN_TEXT;
+        } else if (odtModel.getBoolean()) {
+            reportType = ReportType.ODT_DOCUMENT;
+        } else {
+            reportType = ReportType.CSV_SERIES;
+        }
 
         requestClose();
     }
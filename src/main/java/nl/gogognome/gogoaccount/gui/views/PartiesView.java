@@ -10,13 +10,14 @@ import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.event.*;
 import javax.swing.filechooser.*;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.*;
 import org.slf4j.*;
+import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.directdebit.*;
 import nl.gogognome.gogoaccount.component.document.*;
 import nl.gogognome.gogoaccount.component.party.*;
 import nl.gogognome.gogoaccount.gui.*;
+import nl.gogognome.gogoaccount.reportgenerators.SpreadsheetWriter;
+import nl.gogognome.gogoaccount.services.ServiceException;
 import nl.gogognome.lib.gui.beans.*;
 import nl.gogognome.lib.swing.*;
 import nl.gogognome.lib.swing.dialogs.MessageDialog;
@@ -34,6 +35,7 @@ public class PartiesView extends View {
     private final static Logger logger = LoggerFactory.getLogger(PartiesView.class);
 
     private final Document document;
+    private final ConfigurationService configurationService;
     private final DirectDebitService directDebitService;
     private final PartyService partyService;
     private final ViewFactory viewFactory;
@@ -57,7 +59,9 @@ public class PartiesView extends View {
 
     private Party[] selectedParties;
 
-    public PartiesView(Document document, DirectDebitService directDebitService, PartyService partyService, ViewFactory viewFactory) {
+    public PartiesView(Document document, ConfigurationService configurationService, DirectDebitService directDebitService,
+                       PartyService partyService, ViewFactory viewFactory) {
+        this.configurationService = configurationService;
         this.directDebitService = directDebitService;
         this.partyService = partyService;
         this.document = document;
@@ -291,28 +295,23 @@ public class PartiesView extends View {
         return choice == JFileChooser.APPROVE_OPTION ? fc.getSelectedFile() : null;
     }
 
-    private void exportParties(File file) throws IOException {
-        Workbook wb = new XSSFWorkbook();
-        Sheet sheet = wb.createSheet(textResource.getString("partiesExport.sheet"));
-        Row row = sheet.createRow(0);
-        for (int columnIndex=0; columnIndex < partiesTableModel.getColumnCount(); columnIndex++) {
-            Cell cell = row.createCell(columnIndex);
-            cell.setCellValue(partiesTableModel.getColumnName(columnIndex));
-        }
+    private void exportParties(File file) throws IOException, ServiceException {
+        try (SpreadsheetWriter writer = new SpreadsheetWriter(configurationService.getBookkeeping(document).getCurrency())) {
+            String[] columnNames = new String[partiesTableModel.getColumnCount()];
+            for (int columnIndex=0; columnIndex < columnNames.length; columnIndex++) {
+                columnNames[columnIndex] = partiesTableModel.getColumnName(columnIndex);
+            }
+            writer.startSheet(textResource.getString("partiesExport.sheet"), columnNames);
 
-        for (int rowIndex = 0; rowIndex < partiesTableModel.getRowCount(); rowIndex++) {
-            row = sheet.createRow(rowIndex+1);
-            for (int columnIndex=0; columnIndex < partiesTableModel.getColumnCount(); columnIndex++) {
-                Cell cell = row.createCell(columnIndex);
-                Object value = partiesTableModel.getValueAt(rowIndex, columnIndex);
-                if (value != null) {
-                    cell.setCellValue(value.toString());
+            for (int rowIndex = 0; rowIndex < partiesTableModel.getRowCount(); rowIndex++) {
+                Object[] values = new Object[columnNames.length];
+                for (int columnIndex=0; columnIndex < columnNames.length; columnIndex++) {
+                    values[columnIndex] = partiesTableModel.getValueAt(rowIndex, columnIndex);
                 }
+                writer.addRow(values);
             }
-        }
 
-        try (OutputStream fileOut = new FileOutputStream(file)) {
-            wb.write(fileOut);
+            writer.write(file);
         }
     }
 
@@ -0,0 +1,185 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import nl.gogognome.gogoaccount.businessobjects.ReportType;
+import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
+import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.document.DocumentService;
+import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
+import nl.gogognome.gogoaccount.component.ledger.LedgerService;
+import nl.gogognome.gogoaccount.component.party.PartyService;
+import nl.gogognome.gogoaccount.services.BookkeepingService;
+import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
+import nl.gogognome.lib.task.Task;
+import nl.gogognome.lib.text.AmountFormat;
+import nl.gogognome.lib.text.TextResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates reports for many bookkeeping files without user interface. The files are processed by the shared
+ * executor of the application. A failure for one file is logged and does not stop the other files.
+ * The files are not changed: a file with an older schema is reported from a migrated temporary copy.
+ */
+public class BatchReportRunner {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(BatchReportRunner.class);
+
+    private final TextResource textResource;
+    private final DocumentService documentService;
+    private final BookkeepingService bookkeepingService;
+    private final ConfigurationService configurationService;
+    private final InvoiceService invoiceService;
+    private final LedgerService ledgerService;
+    private final PartyService partyService;
+    private final Executor executor;
+
+    private final Object openDocumentLock = new Object();
+
+    public static class Summary {
+        private final int nrFiles;
+        private final int nrReports;
+        private final int nrFailures;
+        private final long durationInMillis;
+
+        private Summary(int nrFiles, int nrReports, int nrFailures, long durationInMillis) {
+            this.nrFiles = nrFiles;
+            this.nrReports = nrReports;
+            this.nrFailures = nrFailures;
+            this.durationInMillis = durationInMillis;
+        }
+
+        public int getNrFailures() {
+            return nrFailures;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(1, durationInMillis) / 1000.0;
+            return String.format(Locale.US, "Generated %d reports for %d files in %.1f s (%.1f files/min, %.1f reports/min); %d failures",
+                    nrReports, nrFiles, seconds, nrFiles * 60 / seconds, nrReports * 60 / seconds, nrFailures);
+        }
+    }
+
+    public BatchReportRunner(TextResource textResource, DocumentService documentService, BookkeepingService bookkeepingService,
+                             ConfigurationService configurationService, InvoiceService invoiceService, LedgerService ledgerService,
+                             PartyService partyService, Executor executor) {
+        this.textResource = textResource;
+        this.documentService = documentService;
+        this.bookkeepingService = bookkeepingService;
+        this.configurationService = configurationService;
+        this.invoiceService = invoiceService;
+        this.ledgerService = ledgerService;
+        this.partyService = partyService;
+        this.executor = executor;
+    }
+
+    /**
+     * Generates the reports for all bookkeeping files. For each file and report type a file is created in the
+     * output directory. Its name consists of the name of the bookkeeping file and the date.
+     * @param bookkeepingFiles the bookkeeping files
+     * @param reportTypes the types of the reports to generate for each bookkeeping file
+     * @param date the date of the reports
+     * @param templateFile the template for ODT reports; may be null if no ODT reports are generated
+     * @param outputDirectory the directory in which the reports are written
+     * @return a summary of the run
+     */
+    public Summary run(List<File> bookkeepingFiles, List<ReportType> reportTypes, Date date, File templateFile,
+                       File outputDirectory) {
+        long startTime = System.currentTimeMillis();
+        AtomicInteger nrReports = new AtomicInteger();
+        AtomicInteger nrFailures = new AtomicInteger();
+
+        List<FutureTask<Void>> tasks = new ArrayList<>();
+        try {
+            for (File bookkeepingFile : bookkeepingFiles) {
+                tasks.add(ParallelTasks.submit(executor, () -> {
+                    generateReports(bookkeepingFile, reportTypes, date, templateFile, outputDirectory, nrReports, nrFailures);
+                    return null;
+                }));
+            }
+            for (FutureTask<Void> task : tasks) {
+                try {
+                    ParallelTasks.getResult(task);
+                } catch (Exception e) {
+                    LOGGER.error("Unexpected failure while generating reports", e);
+                    nrFailures.incrementAndGet();
+                }
+            }
+        } finally {
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        return new Summary(bookkeepingFiles.size(), nrReports.get(), nrFailures.get(), System.currentTimeMillis() - startTime);
+    }
+
+    private void generateReports(File bookkeepingFile, List<ReportType> reportTypes, Date date, File templateFile, File outputDirectory,
+                                 AtomicInteger nrReports, AtomicInteger nrFailures) {
+        Document document;
+        try {
+            // Opening a document registers its data source, which is not done concurrently
+            synchronized (openDocumentLock) {
+                document = documentService.openDocumentReadOnly(bookkeepingFile);
+            }
+        } catch (ServiceException e) {
+            LOGGER.error("Failed to open " + bookkeepingFile.getAbsolutePath(), e);
+            nrFailures.addAndGet(reportTypes.size());
+            return;
+        }
+
+        try {
+            // Each worker formats amounts with its own amount format, because formatting is not thread safe
+            AmountFormat amountFormat = new AmountFormat(document.getLocale(), configurationService.getBookkeeping(document).getCurrency());
+            for (ReportType reportType : reportTypes) {
+                File reportFile = getReportFile(bookkeepingFile, reportType, date, outputDirectory);
+                try {
+                    createTask(document, amountFormat, reportType, date, reportFile, templateFile).execute(percentage -> {});
+                    nrReports.incrementAndGet();
+                } catch (Exception e) {
+                    LOGGER.error("Failed to generate " + reportFile.getAbsolutePath(), e);
+                    nrFailures.incrementAndGet();
+                }
+            }
+        } catch (ServiceException e) {
+            LOGGER.error("Failed to read the bookkeeping of " + bookkeepingFile.getAbsolutePath(), e);
+            nrFailures.addAndGet(reportTypes.size());
+        } finally {
+            document.close();
+        }
+    }
+
+    private File getReportFile(File bookkeepingFile, ReportType reportType, Date date, File outputDirectory) {
+        String name = bookkeepingFile.getName();
+        if (name.toLowerCase().endsWith(".h2.db")) {
+            name = name.substring(0, name.length() - ".h2.db".length());
+        }
+        String extension = switch (reportType) {
+            case PLAIN_TEXT -> ".txt";
+            case ODT_DOCUMENT -> ".odt";
+            case CSV_SERIES -> ".csv";
+        };
+        return new File(outputDirectory, name + '-' + new SimpleDateFormat("yyyyMMdd").format(date) + extension);
+    }
+
+    private Task createTask(Document document, AmountFormat amountFormat, ReportType reportType, Date date, File reportFile, File templateFile) {
+        return switch (reportType) {
+            case PLAIN_TEXT -> new ReportTask(document, amountFormat, textResource, bookkeepingService, configurationService,
+                    invoiceService, ledgerService, partyService, executor, date, reportFile, reportType);
+            case ODT_DOCUMENT -> new OdtReportGeneratorTask(document, bookkeepingService,
+                    new ReportToModelConverter(document, amountFormat, textResource, configurationService, partyService),
+                    date, reportFile, templateFile);
+            case CSV_SERIES -> new ReportSeriesTask(document, amountFormat, textResource, bookkeepingService, configurationService,
+                    date, reportFile);
+        };
+    }
+}
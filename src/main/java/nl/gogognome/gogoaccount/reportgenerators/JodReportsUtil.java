@@ -4,19 +4,45 @@ import net.sf.jooreports.templates.DocumentTemplate;
 import net.sf.jooreports.templates.DocumentTemplateException;
 import net.sf.jooreports.templates.UnzippedDocumentTemplate;
 import net.sf.jooreports.templates.ZippedDocumentTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper class for the JodReports library.
  *
+ * <p>A template is unzipped, preprocessed and compiled the first time it is used to create a document. The
+ * prepared templates are kept in a small cache, so that creating a report or invoices again with the same
+ * template skips the preparation. A template is prepared again as soon as its file has been modified.
+ * Only one thread at a time prepares a given template; other threads that need it wait.</p>
+ *
  * @author Sander Kooijmans
  */
 public class JodReportsUtil {
 
+    private final static Logger LOGGER = LoggerFactory.getLogger(JodReportsUtil.class);
+
+    private final static int MAX_CACHED_TEMPLATES = 10;
+
+    private final static Map<TemplateKey, DocumentTemplate> keyToTemplate =
+            new LinkedHashMap<TemplateKey, DocumentTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TemplateKey, DocumentTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            };
+
+    /** Locks per canonical path of a template, used while a template is prepared. */
+    private final static Map<String, Object> templateLocks = new ConcurrentHashMap<>();
+
     private JodReportsUtil() {
     }
 
@@ -31,16 +57,94 @@ public class JodReportsUtil {
      */
     public static void createDocument(File templateFile, File outputFile, Object model)
             throws FileNotFoundException, IOException, DocumentTemplateException {
-        DocumentTemplate template = null;
-        if (templateFile.isDirectory()) {
-            template = new UnzippedDocumentTemplate(templateFile);
+        TemplateKey key = new TemplateKey(templateFile);
+        long startTime = System.currentTimeMillis();
+        DocumentTemplate template = getCachedTemplate(key);
+        boolean prepared = template != null;
+        if (prepared) {
+            writeDocument(template, outputFile, model);
         } else {
-            template = new ZippedDocumentTemplate(templateFile);
+            // The template is preprocessed during the first call to createDocument(). That call is made while
+            // holding the lock of the template, so that a template is prepared only once and threads never
+            // preprocess it concurrently. Prepared templates are shared without locking.
+            synchronized (getTemplateLock(key)) {
+                template = getCachedTemplate(key);
+                prepared = template != null;
+                if (!prepared) {
+                    template = templateFile.isDirectory() ? new UnzippedDocumentTemplate(templateFile) : new ZippedDocumentTemplate(templateFile);
+                }
+                writeDocument(template, outputFile, model);
+                if (!prepared) {
+                    putCachedTemplate(key, template);
+                }
+            }
         }
+        long duration = System.currentTimeMillis() - startTime;
+        LOGGER.debug("Created " + outputFile.getAbsolutePath() + " in " + duration + " ms using "
+                + (prepared ? "cached" : "newly prepared") + " template " + key.canonicalPath);
+    }
 
+    private static void writeDocument(DocumentTemplate template, File outputFile, Object model)
+            throws IOException, DocumentTemplateException {
         try (FileOutputStream outputStream = new FileOutputStream(outputFile)) {
             template.createDocument(model, outputStream);
         }
     }
 
+    private static Object getTemplateLock(TemplateKey key) {
+        return templateLocks.computeIfAbsent(key.canonicalPath, path -> new Object());
+    }
+
+    private static DocumentTemplate getCachedTemplate(TemplateKey key) {
+        synchronized (keyToTemplate) {
+            return keyToTemplate.get(key);
+        }
+    }
+
+    private static void putCachedTemplate(TemplateKey key, DocumentTemplate template) {
+        synchronized (keyToTemplate) {
+            keyToTemplate.keySet().removeIf(k -> k.canonicalPath.equals(key.canonicalPath));
+            keyToTemplate.put(key, template);
+        }
+    }
+
+    /**
+     * Identifies a version of a template file. For a template directory the last modification time is the
+     * most recent modification time of the files in the directory.
+     */
+    private static class TemplateKey {
+
+        private final String canonicalPath;
+        private final long lastModified;
+
+        private TemplateKey(File templateFile) throws IOException {
+            this.canonicalPath = templateFile.getCanonicalPath();
+            this.lastModified = determineLastModified(templateFile);
+        }
+
+        private static long determineLastModified(File file) {
+            long lastModified = file.lastModified();
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    lastModified = Math.max(lastModified, determineLastModified(child));
+                }
+            }
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) obj;
+            return canonicalPath.equals(that.canonicalPath) && lastModified == that.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(canonicalPath, lastModified);
+        }
+    }
 }
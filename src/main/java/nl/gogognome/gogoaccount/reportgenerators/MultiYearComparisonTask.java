@@ -0,0 +1,95 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import nl.gogognome.gogoaccount.businessobjects.MultiYearComparison;
+import nl.gogognome.gogoaccount.businessobjects.MultiYearComparison.Row;
+import nl.gogognome.gogoaccount.services.BookkeepingService;
+import nl.gogognome.lib.task.Task;
+import nl.gogognome.lib.task.TaskProgressListener;
+import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.AmountFormat;
+import nl.gogognome.lib.text.TextResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the balance sheets and income statements of a number of bookkeepings side by side to a CSV file.
+ * Each bookkeeping is a column.
+ */
+public class MultiYearComparisonTask implements Task {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MultiYearComparisonTask.class);
+
+    private final AmountFormat amountFormat;
+    private final TextResource textResource;
+    private final BookkeepingService bookkeepingService;
+    private final List<File> bookkeepingFiles;
+    private final File file;
+
+    public MultiYearComparisonTask(AmountFormat amountFormat, TextResource textResource, BookkeepingService bookkeepingService,
+                                   List<File> bookkeepingFiles, File file) {
+        this.amountFormat = amountFormat;
+        this.textResource = textResource;
+        this.bookkeepingService = bookkeepingService;
+        this.bookkeepingFiles = bookkeepingFiles;
+        this.file = file;
+    }
+
+    @Override
+    public Object execute(TaskProgressListener progressListener) throws Exception {
+        progressListener.onProgressUpdate(0);
+        MultiYearComparison comparison = bookkeepingService.createMultiYearComparison(bookkeepingFiles);
+        progressListener.onProgressUpdate(90);
+
+        try (CSVWriter writer = new CSVWriter(new FileWriter(file), ';')) {
+            printComparison(writer, comparison);
+        }
+
+        progressListener.onProgressUpdate(100);
+        LOGGER.info("Created multi-year comparison at " + file.getAbsolutePath());
+        return null;
+    }
+
+    private void printComparison(CSVWriter writer, MultiYearComparison comparison) {
+        List<String> header = new ArrayList<>();
+        header.add(textResource.getString("gen.account"));
+        header.addAll(comparison.getDescriptions());
+        writer.writeNext(header.toArray(new String[0]));
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        List<String> endDates = new ArrayList<>();
+        endDates.add("");
+        comparison.getEndDates().forEach(date -> endDates.add(dateFormat.format(date)));
+        writer.writeNext(endDates.toArray(new String[0]));
+
+        printRows(writer, "gen.assets", comparison.getAssets());
+        printRows(writer, "gen.liabilities", comparison.getLiabilities());
+        printRows(writer, "gen.expenses", comparison.getExpenses());
+        printRows(writer, "gen.revenues", comparison.getRevenues());
+
+        List<String> values = new ArrayList<>();
+        values.add(textResource.getString("rep.resultOfOperations"));
+        comparison.getResultsOfOperations().forEach(amount -> values.add(formatAmount(amount)));
+        writer.writeNext(values.toArray(new String[0]));
+    }
+
+    private void printRows(CSVWriter writer, String titleId, List<Row> rows) {
+        writer.writeNext(new String[] { textResource.getString(titleId) });
+        for (Row row : rows) {
+            List<String> values = new ArrayList<>();
+            values.add(row.getAccount().getId() + " " + row.getAccount().getName());
+            row.getAmounts().forEach(amount -> values.add(formatAmount(amount)));
+            writer.writeNext(values.toArray(new String[0]));
+        }
+    }
+
+    private String formatAmount(Amount amount) {
+        return amount != null ? amountFormat.formatAmountWithoutCurrency(amount.toBigInteger()) : "";
+    }
+}
@@ -0,0 +1,111 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import au.com.bytecode.opencsv.CSVWriter;
+import nl.gogognome.gogoaccount.businessobjects.Report;
+import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
+import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.services.BookkeepingService;
+import nl.gogognome.lib.task.Task;
+import nl.gogognome.lib.task.TaskProgressListener;
+import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.AmountFormat;
+import nl.gogognome.lib.text.TextResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes the balance and result of all accounts at the end of each month of the bookkeeping up to a date
+ * to a CSV file. The reports for all months are created in a single pass over the ledger.
+ */
+public class ReportSeriesTask implements Task {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ReportSeriesTask.class);
+
+    private final Document document;
+    private final AmountFormat amountFormat;
+    private final TextResource textResource;
+    private final BookkeepingService bookkeepingService;
+    private final ConfigurationService configurationService;
+    private final Date endDate;
+    private final File file;
+
+    public ReportSeriesTask(Document document, AmountFormat amountFormat, TextResource textResource, BookkeepingService bookkeepingService,
+                            ConfigurationService configurationService, Date endDate, File file) {
+        this.document = document;
+        this.amountFormat = amountFormat;
+        this.textResource = textResource;
+        this.bookkeepingService = bookkeepingService;
+        this.configurationService = configurationService;
+        this.endDate = endDate;
+        this.file = file;
+    }
+
+    @Override
+    public Object execute(TaskProgressListener progressListener) throws Exception {
+        progressListener.onProgressUpdate(0);
+        List<Date> dates = getEndsOfMonths(configurationService.getBookkeeping(document).getStartOfPeriod(), endDate);
+        List<Report> reports = bookkeepingService.createReportSeries(document, dates);
+        progressListener.onProgressUpdate(50);
+
+        try (CSVWriter writer = new CSVWriter(new FileWriter(file), ';')) {
+            printSeries(writer, dates, reports);
+        }
+
+        progressListener.onProgressUpdate(100);
+        LOGGER.info("Created report series at " + file.getAbsolutePath());
+        return null;
+    }
+
+    /**
+     * Gets the last day of each month starting at the start date up to the end date. The end date itself
+     * is always the last date.
+     */
+    static List<Date> getEndsOfMonths(Date startDate, Date endDate) {
+        List<Date> dates = new ArrayList<>();
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(startDate);
+        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        while (calendar.getTime().before(endDate)) {
+            dates.add(calendar.getTime());
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.add(Calendar.MONTH, 1);
+            calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        }
+        dates.add(endDate);
+        return dates;
+    }
+
+    private void printSeries(CSVWriter writer, List<Date> dates, List<Report> reports) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        List<String> header = new ArrayList<>();
+        header.add(textResource.getString("gen.account"));
+        dates.forEach(date -> header.add(dateFormat.format(date)));
+        writer.writeNext(header.toArray(new String[0]));
+
+        Report lastReport = reports.get(reports.size() - 1);
+        for (Account account : lastReport.getAllAccounts()) {
+            List<String> values = new ArrayList<>();
+            values.add(account.getId() + " " + account.getName());
+            reports.forEach(report -> values.add(formatAmount(report.getAmount(account))));
+            writer.writeNext(values.toArray(new String[0]));
+        }
+
+        List<String> values = new ArrayList<>();
+        values.add(textResource.getString("rep.resultOfOperations"));
+        reports.forEach(report -> values.add(formatAmount(report.getResultOfOperations())));
+        writer.writeNext(values.toArray(new String[0]));
+    }
+
+    private String formatAmount(Amount amount) {
+        return amountFormat.formatAmountWithoutCurrency(amount.toBigInteger());
+    }
+}
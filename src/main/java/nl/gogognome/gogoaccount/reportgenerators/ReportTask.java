@@ -1,7 +1,7 @@
 package nl.gogognome.gogoaccount.reportgenerators;
 
 import nl.gogognome.gogoaccount.businessobjects.Report;
-import nl.gogognome.gogoaccount.businessobjects.Report.LedgerLine;
+import nl.gogognome.gogoaccount.businessobjects.ReportProfile;
 import nl.gogognome.gogoaccount.businessobjects.ReportType;
 import nl.gogognome.gogoaccount.component.configuration.Account;
 import nl.gogognome.gogoaccount.component.configuration.Bookkeeping;
@@ -16,6 +16,7 @@ import nl.gogognome.gogoaccount.component.party.Party;
 import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.services.BookkeepingService;
 import nl.gogognome.gogoaccount.services.ServiceException;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
 import nl.gogognome.lib.task.Task;
 import nl.gogognome.lib.task.TaskProgressListener;
 import nl.gogognome.lib.text.Amount;
@@ -24,10 +25,11 @@ import nl.gogognome.lib.text.TextResource;
 import nl.gogognome.lib.util.DateUtil;
 import nl.gogognome.lib.util.Factory;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.stream.Collectors.toMap;
 import org.slf4j.*;
@@ -42,6 +44,10 @@ public class ReportTask implements Task {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(ReportTask.class);
 
+    private final static int WRITE_BUFFER_SIZE = 64 * 1024;
+    private final static int ROWS_PER_CHUNK = 1000;
+    private final static int PROGRESS_BEFORE_ROWS = 30;
+
     private final Document document;
     private final AmountFormat amountFormat;
     private final TextResource textResource;
@@ -50,6 +56,7 @@ public class ReportTask implements Task {
     private final InvoiceService invoiceService;
     private final LedgerService ledgerService;
     private final PartyService partyService;
+    private final Executor executor;
 
     private Bookkeeping bookkeeping;
     private final Date date;
@@ -62,10 +69,14 @@ public class ReportTask implements Task {
     private final ReportType fileType;
 
     private TaskProgressListener progressListener;
+    private long expectedNrRowsToPrint;
+    private final AtomicLong nrRowsPrinted = new AtomicLong();
+
+    private Map<String, Account> idToAccount;
 
     public ReportTask(Document document, AmountFormat amountFormat, TextResource textResource, BookkeepingService bookkeepingService,
                       ConfigurationService configurationService, InvoiceService invoiceService, LedgerService ledgerService,
-                      PartyService partyService, Date endDate, File file, ReportType fileType) {
+                      PartyService partyService, Executor executor, Date endDate, File file, ReportType fileType) {
         this.document = document;
         this.amountFormat = amountFormat;
         this.textResource = textResource;
@@ -74,6 +85,7 @@ public class ReportTask implements Task {
         this.invoiceService = invoiceService;
         this.ledgerService = ledgerService;
         this.partyService = partyService;
+        this.executor = executor;
         this.date = endDate;
         this.file = file;
         this.fileType = fileType;
@@ -95,10 +107,15 @@ public class ReportTask implements Task {
             throw new IllegalArgumentException("Illegal file type: " + fileType);
         }
 
-        report = bookkeepingService.createReport(document, date);
+        report = bookkeepingService.createReport(document, date, ReportProfile.TOTALS_DEBTORS_AND_CREDITORS);
         progressListener.onProgressUpdate(10);
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(file))){
+        idToAccount = configurationService.findAllAccounts(document).stream().collect(toMap(Account::getId, a -> a));
+        expectedNrRowsToPrint = determineExpectedNrRowsToPrint();
+        nrRowsPrinted.set(0);
+        progressListener.onProgressUpdate(20);
+
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file), WRITE_BUFFER_SIZE))) {
             this.writer = writer;
             printReport();
         }
@@ -109,27 +126,76 @@ public class ReportTask implements Task {
     }
 
     /**
-     * Writes a report to the specified writer.
+     * Each detail of a journal entry in the period results in a row in the journals and a line in the ledger.
+     * So the number of rows of the journals is about the number of ledger lines.
+     * @return the expected number of rows of the journals and the ledger
      */
-    private void printReport() throws ServiceException {
-        writer.println(textFormat.getStartOfDocument());
-        progressListener.onProgressUpdate(20);
-        printBalance();
-        progressListener.onProgressUpdate(30);
-        printOperationalResult();
-        progressListener.onProgressUpdate(40);
-        printDebtors();
-        progressListener.onProgressUpdate(50);
-        printCreditors();
-        progressListener.onProgressUpdate(60);
-
-        List<JournalEntry> journalEntries = ledgerService.findJournalEntries(document);
-        progressListener.onProgressUpdate(70);
-        printJournals(journalEntries, bookkeeping.getStartOfPeriod(), date);
-        progressListener.onProgressUpdate(80);
-        printLedger();
-
-        writer.println(textFormat.getEndOfDocument());
+    private long determineExpectedNrRowsToPrint() throws ServiceException {
+        return 2L * ledgerService.getLedgerSnapshot(document).size();
+    }
+
+    /**
+     * Writes a report to the specified writer. The journals and the ledger are printed to temporary files by
+     * the shared executor while the other sections are printed. Next the temporary files are appended in order.
+     */
+    private void printReport() throws Exception {
+        File journalsFile = File.createTempFile("gogoaccount-journals", ".txt");
+        File ledgerFile = File.createTempFile("gogoaccount-ledger", ".txt");
+        FutureTask<Void> journals = null;
+        FutureTask<Void> ledger = null;
+        try {
+            journals = ParallelTasks.submit(executor, () -> printToFile(journalsFile,
+                    printer -> printer.printJournals(bookkeeping.getStartOfPeriod(), date)));
+            ledger = ParallelTasks.submit(executor, () -> printToFile(ledgerFile, RowSectionPrinter::printLedger));
+
+            writer.println(textFormat.getStartOfDocument());
+            printBalance();
+            printOperationalResult();
+            printDebtors();
+            printCreditors();
+            progressListener.onProgressUpdate(PROGRESS_BEFORE_ROWS);
+
+            appendFile(journals, journalsFile);
+            appendFile(ledger, ledgerFile);
+
+            writer.println(textFormat.getEndOfDocument());
+        } finally {
+            cancel(journals);
+            cancel(ledger);
+            deleteTempFile(journalsFile);
+            deleteTempFile(ledgerFile);
+        }
+    }
+
+    private Void printToFile(File file, RowSection rowSection) throws Exception {
+        try (PrintWriter sectionWriter = new PrintWriter(new BufferedWriter(new FileWriter(file), WRITE_BUFFER_SIZE))) {
+            rowSection.print(new RowSectionPrinter(sectionWriter));
+        }
+        return null;
+    }
+
+    private void appendFile(FutureTask<Void> section, File file) throws Exception {
+        ParallelTasks.getResult(section);
+        try (Reader reader = new BufferedReader(new FileReader(file), WRITE_BUFFER_SIZE)) {
+            reader.transferTo(writer);
+        }
+    }
+
+    private void cancel(FutureTask<Void> section) {
+        if (section != null) {
+            section.cancel(true);
+        }
+    }
+
+    private void deleteTempFile(File file) {
+        if (!file.delete()) {
+            LOGGER.warn("Failed to delete temporary file " + file.getAbsolutePath());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSection {
+        void print(RowSectionPrinter printer) throws Exception;
     }
 
     private void printBalance() {
@@ -347,101 +413,154 @@ public class ReportTask implements Task {
 		return party.getId() + " - " + party.getName();
 	}
 
-	private void printJournals(List<JournalEntry> journalEntries, Date startDate, Date endDate) throws ServiceException {
-        int startIndex = 0;
-        int endIndex = 0;
-        for (int i=0; i< journalEntries.size(); i++) {
-            if (DateUtil.compareDayOfYear(journalEntries.get(i).getDate(), endDate) <= 0) {
-                endIndex = i+1;
-            }
-            if (DateUtil.compareDayOfYear(journalEntries.get(i).getDate(), startDate) < 0) {
-                startIndex = i+1;
-            }
-        }
-
-        StringBuilder result = new StringBuilder(10000);
+    /**
+     * Prints the rows of the journals or the ledger to its own writer with its own text and amount format,
+     * so that sections can be printed by different threads. Rows are buffered in chunks, so that the invoices
+     * and parties of a chunk are read with a few queries and only the invoices and parties of one chunk
+     * are kept in memory.
+     */
+    private class RowSectionPrinter {
 
-        result.append(textFormat.getNewParagraph());
+        private final PrintWriter writer;
+        private final TextFormat textFormat;
+        private final AmountFormat amountFormat;
+        private final String[] values = new String[9];
+        private final List<PendingRow> pendingRows = new ArrayList<>();
 
-        result.append(textResource.getString("rep.journalEntries"));
-        result.append(textFormat.getNewLine());
+        private RowSectionPrinter(PrintWriter writer) {
+            this.writer = writer;
+            this.textFormat = new PlainTextFormat(textResource);
+            // Same locale and currency as the injected amount format, which is created from the document and
+            // its bookkeeping too. AmountFormat is not thread safe, so each section gets its own instance.
+            this.amountFormat = new AmountFormat(document.getLocale(), bookkeeping.getCurrency());
+        }
 
-        if (endIndex - startIndex <= 0) {
-            result.append(textResource.getString("rep.noJournalEntries"));
-            result.append(textFormat.getNewLine());
-        } else {
-            result.append(textFormat.getStartOfTable(("l|l|r|r|l"),
-                    new int[] { 10, 1, 45, 1, 10, 1, 10, 1, 40 }));
+        private void printJournals(Date startDate, Date endDate) throws ServiceException {
+            print(textFormat.getNewParagraph());
+            print(textResource.getString("rep.journalEntries"));
+            print(textFormat.getNewLine());
 
-            String[] values = new String[9];
-            values[0] = textResource.getString("gen.date");
-            values[1] = "";
-            values[2] = textResource.getString("gen.description");
-            values[3] = "";
-            values[4] = textResource.getString("gen.debit");
-            values[5] = "";
-            values[6] = textResource.getString("gen.credit");
-            values[7] = "";
-            values[8] = textResource.getString("gen.invoice");
-            result.append(textFormat.getHeaderRow(values));
+            boolean[] headerPrinted = new boolean[1];
+            ledgerService.forEachJournalEntry(document, startDate, endDate, (journalEntry, journalEntryDetails) -> {
+                if (!headerPrinted[0]) {
+                    printHeader();
+                    headerPrinted[0] = true;
+                }
+                printJournal(journalEntry, journalEntryDetails);
+            });
 
-            result.append(textFormat.getHorizontalSeparator());
+            if (!headerPrinted[0]) {
+                print(textResource.getString("rep.noJournalEntries"));
+                print(textFormat.getNewLine());
+            }
+            print(System.lineSeparator());
+        }
 
-            Map<String, Account> idToAccount = configurationService.findAllAccounts(document).stream().collect(toMap(Account::getId, a -> a));
+        private void printJournal(JournalEntry journalEntry, List<JournalEntryDetail> journalEntryDetails) throws ServiceException {
+            values[0] = textResource.formatDate("gen.dateFormat", journalEntry.getDate());
+            values[2] = journalEntry.getId() + " - " + journalEntry.getDescription();
+            values[4] = "";
+            values[6] = "";
+            values[8] = "";
+            printRow(journalEntry.getIdOfCreatedInvoice(), true);
 
-            for (int i=startIndex; i<endIndex; i++) {
-                values[0] = textResource.formatDate("gen.dateFormat", journalEntries.get(i).getDate());
-                values[2] = journalEntries.get(i).getId() + " - " + journalEntries.get(i).getDescription();
+            for (JournalEntryDetail item : journalEntryDetails) {
+                values[0] = "";
+                values[2] = item.getAccountId() + " - " + idToAccount.get(item.getAccountId()).getName();
                 values[4] = "";
                 values[6] = "";
-                String idOfCreatedInvoice = journalEntries.get(i).getIdOfCreatedInvoice();
-                if (idOfCreatedInvoice != null) {
-                    Invoice invoice = invoiceService.getInvoice(document, idOfCreatedInvoice);
-                    values[8] = amountFormat.formatAmountWithoutCurrency(invoice.getAmountToBePaid().toBigInteger())
-                        + " " + invoice.getId() + " (" + partyService.getParty(document, invoice.getPartyId()).getName() + ')';
-                } else {
-                    values[8] = "";
-                }
-                result.append(textFormat.getRow(values));
+                values[item.isDebet() ? 4 : 6] =
+                        amountFormat.formatAmountWithoutCurrency(item.getAmount().toBigInteger());
+                values[8] = "";
+                printRow(item.getInvoiceId(), false);
+            }
 
-                List<JournalEntryDetail> journalEntryDetails = ledgerService.findJournalEntryDetails(document, journalEntries.get(i));
-                for (JournalEntryDetail item : journalEntryDetails) {
-                    values[0] = "";
-                    values[2] = item.getAccountId() + " - " + idToAccount.get(item.getAccountId()).getName();
-                    values[4] = "";
-                    values[6] = "";
-                    values[item.isDebet() ? 4 : 6] =
-                            amountFormat.formatAmountWithoutCurrency(item.getAmount().toBigInteger());
-                    if (item.getInvoiceId() != null) {
-                        Invoice invoice = invoiceService.getInvoice(document, item.getInvoiceId());
-                        values[8] = invoice.getId() + " (" + partyService.getParty(document, invoice.getPartyId()).getName() + ")";
-                    } else {
-                        values[8] = "";
+            print(textFormat.getHorizontalSeparator());
+        }
+
+        /**
+         * Prints the ledger of all accounts. The journal entry details are streamed per account, so the memory
+         * needed does not depend on the size of the ledger.
+         */
+        private void printLedger() throws ServiceException {
+            print(textFormat.getNewParagraph());
+
+            print(textResource.getString("rep.ledger"));
+
+            for (Account account : report.getAllAccounts()) {
+                print(textFormat.getNewParagraph());
+                print(formatAccount(account));
+                print(textFormat.getNewLine());
+                printHeader();
+                printLedgerOfAccount(account);
+                print(textFormat.getHorizontalSeparator());
+            }
+            print(System.lineSeparator());
+        }
+
+        private void printLedgerOfAccount(Account account) throws ServiceException {
+            Amount[] totalDebet = { Amount.ZERO };
+            Amount[] totalCredit = { Amount.ZERO };
+            Amount[] startDebet = { null };
+            Amount[] startCredit = { null };
+            ledgerService.forEachJournalEntryDetailOfAccount(document, account.getId(), (journalEntry, detail) -> {
+                if (DateUtil.compareDayOfYear(journalEntry.getDate(), date) > 0) {
+                    return;
+                }
+                if (DateUtil.compareDayOfYear(journalEntry.getDate(), bookkeeping.getStartOfPeriod()) >= 0) {
+                    if (startDebet[0] == null) {
+                        startDebet[0] = totalDebet[0];
+                        startCredit[0] = totalCredit[0];
+                        printBalanceRow(account, "rep.startBalance", startDebet[0], startCredit[0]);
                     }
-                    result.append(textFormat.getRow(values));
+                    values[0] = textResource.formatDate("gen.dateFormat", journalEntry.getDate());
+                    values[2] = journalEntry.getDescription();
+                    values[4] = formatAmount(detail.isDebet() ? detail.getAmount() : null);
+                    values[6] = formatAmount(detail.isCredit() ? detail.getAmount() : null);
+                    values[8] = "";
+                    printRow(detail.getInvoiceId() != null ? detail.getInvoiceId() : journalEntry.getIdOfCreatedInvoice(), false);
+                }
+                if (detail.isDebet()) {
+                    totalDebet[0] = totalDebet[0].add(detail.getAmount());
+                } else {
+                    totalCredit[0] = totalCredit[0].add(detail.getAmount());
                 }
+            });
 
-                result.append(textFormat.getHorizontalSeparator());
+            if (startDebet[0] == null) {
+                startDebet[0] = totalDebet[0];
+                startCredit[0] = totalCredit[0];
+                printBalanceRow(account, "rep.startBalance", startDebet[0], startCredit[0]);
             }
-        }
-        writer.println(result);
-    }
 
-    private void printLedger() throws ServiceException {
-        StringBuilder result = new StringBuilder(10000);
+            values[0] = textResource.formatDate("gen.dateFormat", null);
+            values[2] = textResource.getString("rep.totalMutations");
+            values[4] = formatAmount(totalDebet[0].subtract(startDebet[0]));
+            values[6] = formatAmount(totalCredit[0].subtract(startCredit[0]));
+            values[8] = "";
+            printRow(null, false);
 
-        result.append(textFormat.getNewParagraph());
+            printBalanceRow(account, "rep.endBalance", totalDebet[0], totalCredit[0]);
+        }
 
-        result.append(textResource.getString("rep.ledger"));
+        private void printBalanceRow(Account account, String descriptionId, Amount debetAmount, Amount creditAmount) throws ServiceException {
+            Amount balance = debetAmount.subtract(creditAmount);
+            values[0] = textResource.formatDate("gen.dateFormat", null);
+            values[2] = textResource.getString(descriptionId);
+            values[4] = formatAmount(balance.isPositive() || (balance.isZero() && account.isDebet()) ? balance : null);
+            values[6] = formatAmount(balance.isNegative() || (balance.isZero() && account.isCredit()) ? balance.negate() : null);
+            values[8] = "";
+            printRow(null, false);
+        }
 
-        for (Account account : report.getAllAccounts()) {
-            result.append(textFormat.getNewParagraph());
-            result.append(formatAccount(account));
-            result.append(textFormat.getNewLine());
-            result.append(textFormat.getStartOfTable(("l|l|r|r|l"),
+        private String formatAmount(Amount amount) {
+            return amountFormat.formatAmountWithoutCurrency(amount != null ? amount.toBigInteger() : null);
+        }
+
+        private void printHeader() throws ServiceException {
+            print(textFormat.getStartOfTable(("l|l|r|r|l"),
                     new int[] { 10, 1, 45, 1, 10, 1, 10, 1, 40 }));
 
-            String[] values = new String[9];
             values[0] = textResource.getString("gen.date");
             values[1] = "";
             values[2] = textResource.getString("gen.description");
@@ -451,27 +570,67 @@ public class ReportTask implements Task {
             values[6] = textResource.getString("gen.credit");
             values[7] = "";
             values[8] = textResource.getString("gen.invoice");
-            result.append(textFormat.getHeaderRow(values));
+            print(textFormat.getHeaderRow(values));
 
-            result.append(textFormat.getHorizontalSeparator());
+            print(textFormat.getHorizontalSeparator());
+        }
 
-            // Append the items of 'account'.
-            for (LedgerLine line : report.getLedgerLinesForAccount(account)) {
-                values[0] = textResource.formatDate("gen.dateFormat", line.date);
-                values[2] = line.description;
-                values[4] = amountFormat.formatAmountWithoutCurrency(line.debetAmount != null ? line.debetAmount.toBigInteger() : null);
-                values[6] = amountFormat.formatAmountWithoutCurrency(line.creditAmount != null ? line.creditAmount.toBigInteger() : null);
-                values[8] = "";
+        /**
+         * Buffers a row of the journals or ledger. The invoice column is filled in when the buffer is flushed.
+         * @param invoiceId the id of the invoice shown in the row; null if the row shows no invoice
+         * @param withAmountToBePaid true if the amount to be paid of the invoice precedes the invoice
+         */
+        private void printRow(String invoiceId, boolean withAmountToBePaid) throws ServiceException {
+            pendingRows.add(new PendingRow(values.clone(), invoiceId, withAmountToBePaid));
+            if (pendingRows.size() == ROWS_PER_CHUNK) {
+                flushPendingRows();
+            }
+        }
 
-                Invoice invoice = line.invoice;
-                values[8] = invoice != null ? invoice.getId() + " (" + partyService.getParty(document, invoice.getPartyId()).getName() + ")" : "";
+        /**
+         * Prints text that is not a row. Buffered rows are printed first.
+         */
+        private void print(String text) throws ServiceException {
+            flushPendingRows();
+            writer.print(text);
+        }
 
-                result.append(textFormat.getRow(values));
+        private void flushPendingRows() throws ServiceException {
+            if (pendingRows.isEmpty()) {
+                return;
             }
+            List<String> invoiceIds = pendingRows.stream().map(PendingRow::invoiceId).filter(Objects::nonNull).distinct().toList();
+            Map<String, Invoice> idToInvoice = invoiceIds.isEmpty() ? Collections.emptyMap() : invoiceService.getIdToInvoice(document, invoiceIds);
+            List<String> partyIds = idToInvoice.values().stream().map(Invoice::getPartyId).distinct().toList();
+            Map<String, Party> idToParty = partyIds.isEmpty() ? Collections.emptyMap() : partyService.getIdToParty(document, partyIds);
+
+            for (PendingRow row : pendingRows) {
+                if (row.invoiceId() != null) {
+                    Invoice invoice = idToInvoice.get(row.invoiceId());
+                    String formattedInvoice = formatInvoice(invoice, idToParty.get(invoice.getPartyId()));
+                    row.values()[8] = row.withAmountToBePaid()
+                            ? formatAmount(invoice.getAmountToBePaid()) + " " + formattedInvoice
+                            : formattedInvoice;
+                }
+                writer.print(textFormat.getRow(row.values()));
+            }
+            nrRowsPrinted.addAndGet(pendingRows.size());
+            updateProgressForRows();
+            pendingRows.clear();
+        }
 
-            result.append(textFormat.getHorizontalSeparator());
+        private String formatInvoice(Invoice invoice, Party party) {
+            return invoice.getId() + " (" + (party != null ? party.getName() : "???") + ')';
         }
-        writer.println(result);
+    }
+
+    private record PendingRow(String[] values, String invoiceId, boolean withAmountToBePaid) {
+    }
+
+    private synchronized void updateProgressForRows() {
+        long expectedNrRows = Math.max(1, expectedNrRowsToPrint);
+        int percentage = (int) (PROGRESS_BEFORE_ROWS + (100 - PROGRESS_BEFORE_ROWS) * Math.min(nrRowsPrinted.get(), expectedNrRows) / expectedNrRows);
+        progressListener.onProgressUpdate(Math.min(99, percentage));
     }
 
 }
@@ -0,0 +1,143 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
+import nl.gogognome.gogoaccount.component.document.Document;
+import nl.gogognome.gogoaccount.component.invoice.Invoice;
+import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
+import nl.gogognome.gogoaccount.component.invoice.Payment;
+import nl.gogognome.gogoaccount.component.ledger.JournalEntryDetail;
+import nl.gogognome.gogoaccount.component.ledger.LedgerService;
+import nl.gogognome.gogoaccount.component.party.Party;
+import nl.gogognome.gogoaccount.component.party.PartyService;
+import nl.gogognome.lib.collections.DefaultValueMap;
+import nl.gogognome.lib.task.Task;
+import nl.gogognome.lib.task.TaskProgressListener;
+import nl.gogognome.lib.text.Amount;
+import nl.gogognome.lib.text.TextResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Exports the journals, the ledger or the invoices of a bookkeeping to an XLSX file. The rows are written
+ * to the spreadsheet while they are read from the database, so exporting a large bookkeeping does not need
+ * much memory.
+ */
+public class SpreadsheetExportTask implements Task {
+
+    public enum Content {
+        JOURNALS,
+        LEDGER,
+        INVOICES
+    }
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SpreadsheetExportTask.class);
+
+    private final Document document;
+    private final TextResource textResource;
+    private final ConfigurationService configurationService;
+    private final InvoiceService invoiceService;
+    private final LedgerService ledgerService;
+    private final PartyService partyService;
+    private final Content content;
+    private final File file;
+
+    public SpreadsheetExportTask(Document document, TextResource textResource, ConfigurationService configurationService,
+                                 InvoiceService invoiceService, LedgerService ledgerService, PartyService partyService,
+                                 Content content, File file) {
+        this.document = document;
+        this.textResource = textResource;
+        this.configurationService = configurationService;
+        this.invoiceService = invoiceService;
+        this.ledgerService = ledgerService;
+        this.partyService = partyService;
+        this.content = content;
+        this.file = file;
+    }
+
+    @Override
+    public Object execute(TaskProgressListener progressListener) throws Exception {
+        progressListener.onProgressUpdate(0);
+        try (SpreadsheetWriter writer = new SpreadsheetWriter(configurationService.getBookkeeping(document).getCurrency())) {
+            switch (content) {
+                case JOURNALS -> exportJournals(writer);
+                case LEDGER -> exportLedger(writer, progressListener);
+                case INVOICES -> exportInvoices(writer);
+            }
+            progressListener.onProgressUpdate(90);
+            writer.write(file);
+        }
+        progressListener.onProgressUpdate(100);
+        LOGGER.info("Exported " + content + " to " + file.getAbsolutePath());
+        return null;
+    }
+
+    private void exportJournals(SpreadsheetWriter writer) throws Exception {
+        Map<String, Account> idToAccount = getIdToAccount();
+        writer.startSheet(textResource.getString("spreadsheetExport.sheet.journals"),
+                textResource.getString("gen.date"), textResource.getString("gen.id"), textResource.getString("spreadsheetExport.description"),
+                textResource.getString("gen.account"), textResource.getString("gen.debit"), textResource.getString("gen.credit"),
+                textResource.getString("gen.invoice"));
+        ledgerService.forEachJournalEntry(document, null, null, (journalEntry, journalEntryDetails) -> {
+            writer.addRow(journalEntry.getDate(), journalEntry.getId(), journalEntry.getDescription());
+            for (JournalEntryDetail detail : journalEntryDetails) {
+                writer.addRow(null, null, null, formatAccount(idToAccount.get(detail.getAccountId())),
+                        detail.isDebet() ? detail.getAmount() : null, detail.isCredit() ? detail.getAmount() : null,
+                        detail.getInvoiceId());
+            }
+        });
+    }
+
+    private void exportLedger(SpreadsheetWriter writer, TaskProgressListener progressListener) throws Exception {
+        List<Account> accounts = configurationService.findAllAccounts(document);
+        writer.startSheet(textResource.getString("spreadsheetExport.sheet.ledger"),
+                textResource.getString("gen.account"), textResource.getString("gen.date"), textResource.getString("gen.id"),
+                textResource.getString("spreadsheetExport.description"), textResource.getString("gen.debit"),
+                textResource.getString("gen.credit"), textResource.getString("gen.balance"), textResource.getString("gen.invoice"));
+        for (int i = 0; i < accounts.size(); i++) {
+            Account account = accounts.get(i);
+            String formattedAccount = formatAccount(account);
+            Amount[] balance = { Amount.ZERO };
+            ledgerService.forEachJournalEntryDetailOfAccount(document, account.getId(), (journalEntry, detail) -> {
+                balance[0] = detail.isDebet() == account.isDebet() ? balance[0].add(detail.getAmount()) : balance[0].subtract(detail.getAmount());
+                writer.addRow(formattedAccount, journalEntry.getDate(), journalEntry.getId(), journalEntry.getDescription(),
+                        detail.isDebet() ? detail.getAmount() : null, detail.isCredit() ? detail.getAmount() : null,
+                        balance[0], detail.getInvoiceId());
+            });
+            progressListener.onProgressUpdate(90 * (i + 1) / accounts.size());
+        }
+    }
+
+    private void exportInvoices(SpreadsheetWriter writer) throws Exception {
+        List<Invoice> invoices = invoiceService.findAllInvoices(document);
+        DefaultValueMap<String, List<Payment>> invoiceIdToPayments = invoiceService.getInvoiceIdToPaymentsMap(document);
+        Map<String, Party> idToParty = partyService.findAllParties(document).stream().collect(toMap(Party::getId, p -> p));
+        writer.startSheet(textResource.getString("spreadsheetExport.sheet.invoices"),
+                textResource.getString("gen.id"), textResource.getString("gen.issueDate"), textResource.getString("spreadsheetExport.description"),
+                textResource.getString("gen.party"), textResource.getString("gen.amountToBePaid"), textResource.getString("gen.amountPaid"));
+        for (Invoice invoice : invoices) {
+            Amount amountPaid = Amount.ZERO;
+            for (Payment payment : invoiceIdToPayments.get(invoice.getId())) {
+                amountPaid = amountPaid.add(payment.getAmount());
+            }
+            Party party = idToParty.get(invoice.getPartyId());
+            writer.addRow(invoice.getId(), invoice.getIssueDate(), invoice.getDescription(),
+                    party != null ? party.getId() + " - " + party.getName() : invoice.getPartyId(),
+                    invoice.getAmountToBePaid(), amountPaid);
+        }
+    }
+
+    private Map<String, Account> getIdToAccount() throws Exception {
+        return configurationService.findAllAccounts(document).stream().collect(toMap(Account::getId, a -> a));
+    }
+
+    private String formatAccount(Account account) {
+        return account.getId() + " - " + account.getName();
+    }
+}
@@ -0,0 +1,110 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import nl.gogognome.lib.text.Amount;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Date;
+
+/**
+ * Writes rows to an XLSX file. Only a fixed number of rows is kept in memory; older rows are flushed to a
+ * temporary file. Therefore the memory needed does not depend on the number of rows.
+ *
+ * <p>Amounts are written as numeric cells in the currency unit, so that they can be used in calculations.
+ * Dates are written as date cells.</p>
+ */
+public class SpreadsheetWriter implements Closeable {
+
+    private final static int ROWS_IN_MEMORY = 100;
+
+    private final SXSSFWorkbook workbook;
+    private final int nrFractionDigits;
+    private final CellStyle amountStyle;
+    private final CellStyle dateStyle;
+
+    private Sheet sheet;
+    private int nextRowIndex;
+
+    /**
+     * @param currency the currency of the amounts that are written
+     */
+    public SpreadsheetWriter(Currency currency) {
+        workbook = new SXSSFWorkbook(ROWS_IN_MEMORY);
+        workbook.setCompressTempFiles(true);
+        nrFractionDigits = Math.max(0, currency.getDefaultFractionDigits());
+
+        amountStyle = workbook.createCellStyle();
+        amountStyle.setDataFormat(workbook.createDataFormat().getFormat(nrFractionDigits > 0 ? "#,##0." + "0".repeat(nrFractionDigits) : "#,##0"));
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+    }
+
+    /**
+     * Starts a new sheet. Subsequent rows are added to this sheet.
+     * @param name the name of the sheet
+     * @param columnNames the names of the columns, which are written in the first row
+     */
+    public void startSheet(String name, String... columnNames) {
+        sheet = workbook.createSheet(name);
+        nextRowIndex = 0;
+        addRow((Object[]) columnNames);
+    }
+
+    /**
+     * Adds a row to the current sheet.
+     * @param values the values of the cells. A value can be a string, an amount, a date or null for an empty cell.
+     *               Other values are written as text.
+     */
+    public void addRow(Object... values) {
+        Row row = sheet.createRow(nextRowIndex++);
+        for (int columnIndex = 0; columnIndex < values.length; columnIndex++) {
+            Object value = values[columnIndex];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(columnIndex);
+            if (value instanceof Amount amount) {
+                cell.setCellValue(toDouble(amount));
+                cell.setCellStyle(amountStyle);
+            } else if (value instanceof Date date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    /**
+     * Converts an amount in the smallest unit of the currency, like cents, to a value in the currency unit.
+     * The conversion goes via a BigDecimal so that the double is the nearest representation of the exact amount.
+     */
+    private double toDouble(Amount amount) {
+        return new BigDecimal(amount.toBigInteger()).movePointLeft(nrFractionDigits).doubleValue();
+    }
+
+    public void write(File file) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            workbook.write(outputStream);
+        }
+    }
+
+    /**
+     * Removes the temporary files that hold the flushed rows.
+     */
+    @Override
+    public void close() throws IOException {
+        workbook.dispose();
+        workbook.close();
+    }
+}
@@ -1,11 +1,15 @@
 package nl.gogognome.gogoaccount.services;
 
+import nl.gogognome.gogoaccount.businessobjects.MultiYearComparison;
 import nl.gogognome.gogoaccount.businessobjects.Report;
 import nl.gogognome.gogoaccount.businessobjects.ReportBuilder;
+import nl.gogognome.gogoaccount.businessobjects.ReportProfile;
+import nl.gogognome.gogoaccount.businessobjects.ReportSeriesBuilder;
 import nl.gogognome.gogoaccount.component.directdebit.DirectDebitService;
 import nl.gogognome.gogoaccount.component.directdebit.DirectDebitSettings;
 import nl.gogognome.gogoaccount.component.directdebit.PartyDirectDebitSettings;
 import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.gogoaccount.component.configuration.AccountType;
 import nl.gogognome.gogoaccount.component.configuration.Bookkeeping;
 import nl.gogognome.gogoaccount.component.configuration.ConfigurationService;
 import nl.gogognome.gogoaccount.component.document.Document;
@@ -16,19 +20,29 @@ import nl.gogognome.gogoaccount.component.invoice.InvoiceService;
 import nl.gogognome.gogoaccount.component.invoice.Payment;
 import nl.gogognome.gogoaccount.component.ledger.JournalEntry;
 import nl.gogognome.gogoaccount.component.ledger.JournalEntryDetail;
+import nl.gogognome.gogoaccount.component.ledger.JournalEntryWithDetails;
 import nl.gogognome.gogoaccount.component.ledger.LedgerService;
+import nl.gogognome.gogoaccount.component.ledger.LedgerSnapshot;
 import nl.gogognome.gogoaccount.component.party.Party;
 import nl.gogognome.gogoaccount.component.party.PartyService;
 import nl.gogognome.gogoaccount.component.settings.SettingsService;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
 import nl.gogognome.lib.collections.DefaultValueMap;
 import nl.gogognome.lib.text.Amount;
 import nl.gogognome.lib.util.DateUtil;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import static java.util.Collections.singletonList;
 
 public class BookkeepingService {
 
@@ -38,16 +52,21 @@ public class BookkeepingService {
     private final LedgerService ledgerService;
     private final InvoiceService invoiceService;
     private final PartyService partyService;
+    private final ReportCache reportCache;
+    private final Executor executor;
 
     public BookkeepingService(DirectDebitService directDebitService, LedgerService ledgerService,
 							  ConfigurationService configurationService, DocumentService documentService,
-							  InvoiceService invoiceService, PartyService partyService) {
+							  InvoiceService invoiceService, PartyService partyService, ReportCache reportCache,
+							  Executor executor) {
         this.directDebitService = directDebitService;
         this.ledgerService = ledgerService;
         this.configurationService = configurationService;
         this.documentService = documentService;
         this.invoiceService = invoiceService;
         this.partyService = partyService;
+        this.reportCache = reportCache;
+        this.executor = executor;
     }
 
     public Document closeBookkeeping(Document document, File newBookkeepingFile, String description, Date date, Account equity) throws ServiceException {
@@ -121,9 +140,10 @@ public class BookkeepingService {
 
     private void createStartBalance(Document document, Document newDocument, Date dayBeforeStart, Account equity) throws ServiceException {
         List<JournalEntryDetail> journalEntryDetails = new ArrayList<>(20);
+        Map<String, Amount> accountIdToBalance = ledgerService.getAccountBalances(document, dayBeforeStart);
         for (Account account : configurationService.findAssets(document)) {
             JournalEntryDetail journalEntryDetail = new JournalEntryDetail();
-            journalEntryDetail.setAmount(ledgerService.getAccountBalance(document, account, dayBeforeStart));
+            journalEntryDetail.setAmount(accountIdToBalance.getOrDefault(account.getId(), Amount.ZERO));
             journalEntryDetail.setAccountId(account.getId());
             journalEntryDetail.setDebet(true);
             if (!journalEntryDetail.getAmount().isZero()) {
@@ -132,7 +152,7 @@ public class BookkeepingService {
         }
         for (Account account : configurationService.findLiabilities(document)) {
             JournalEntryDetail journalEntryDetail = new JournalEntryDetail();
-            journalEntryDetail.setAmount(ledgerService.getAccountBalance(document, account, dayBeforeStart));
+            journalEntryDetail.setAmount(accountIdToBalance.getOrDefault(account.getId(), Amount.ZERO));
             journalEntryDetail.setAccountId(account.getId());
             if (!journalEntryDetail.getAmount().isZero()) {
                 journalEntryDetails.add(journalEntryDetail);
@@ -140,7 +160,7 @@ public class BookkeepingService {
         }
 
         // Add the result of operations to the specified account.
-        Report report = createReport(document, dayBeforeStart);
+        Report report = createReport(document, dayBeforeStart, ReportProfile.TOTALS);
         Amount resultOfOperations = report.getResultOfOperations();
         if (resultOfOperations.isPositive()) {
             JournalEntryDetail profit = new JournalEntryDetail();
@@ -167,62 +187,243 @@ public class BookkeepingService {
     }
 
     private void copyRemainingJournalEntries(Document document, Document newDocument, Date date) throws ServiceException {
-        for (JournalEntry journalEntry : ledgerService.findJournalEntries(document)) {
-            if (DateUtil.compareDayOfYear(date, journalEntry.getDate()) <= 0) {
-                ledgerService.addJournalEntry(newDocument, journalEntry, ledgerService.findJournalEntryDetails(document, journalEntry));
-            }
-        }
+        List<JournalEntryWithDetails> remainingJournalEntries = new ArrayList<>();
+        ledgerService.forEachJournalEntry(document, date, null,
+                (journalEntry, journalEntryDetails) -> remainingJournalEntries.add(new JournalEntryWithDetails(journalEntry, journalEntryDetails)));
+        ledgerService.addJournalEntries(newDocument, remainingJournalEntries);
     }
 
     private void copyOpenInvoices(Document document, Document newDocument, Date dayBeforeStart) throws ServiceException {
         List<InvoiceSending> invoiceSendings = invoiceService.findAllInvoiceSendings(document);
-        for (Invoice invoice : invoiceService.findAllInvoices(document)) {
-            if (!invoiceService.isPaid(document, invoice.getId(), dayBeforeStart)) {
-                invoiceService.createInvoice(newDocument, invoice);
-                invoiceService.createDetails(newDocument, invoice,
-                        invoiceService.findDescriptions(document, invoice), invoiceService.findAmounts(document, invoice));
-                invoiceService.createPayments(newDocument, invoiceService.findPayments(document, invoice));
-
-                List<InvoiceSending> invoiceSendingsForInvoice = invoiceSendings.stream()
-                        .filter(invoiceSending -> invoiceSending.getInvoiceId().equals(invoice.getId()))
-                        .toList();
-                for (InvoiceSending invoiceSending : invoiceSendingsForInvoice) {
-                    invoiceService.createInvoiceSending(newDocument, invoiceSending);
-                }
+        for (Invoice invoice : invoiceService.findOpenInvoices(document, dayBeforeStart)) {
+            invoiceService.createInvoice(newDocument, invoice);
+            invoiceService.createDetails(newDocument, invoice,
+                    invoiceService.findDescriptions(document, invoice), invoiceService.findAmounts(document, invoice));
+            invoiceService.createPayments(newDocument, invoiceService.findPayments(document, invoice));
+
+            List<InvoiceSending> invoiceSendingsForInvoice = invoiceSendings.stream()
+                    .filter(invoiceSending -> invoiceSending.getInvoiceId().equals(invoice.getId()))
+                    .toList();
+            for (InvoiceSending invoiceSending : invoiceSendingsForInvoice) {
+                invoiceService.createInvoiceSending(newDocument, invoiceSending);
             }
         }
     }
 
     // TODO: move to new report component
+    /**
+     * Creates a report for the specified date. Reports are cached until the document changes, so views that ask
+     * for the same date share a single report. Callers must not modify the report.
+     * @param document the document
+     * @param date the end date of the report
+     * @return the report
+     */
     public Report createReport(Document document, Date date) throws ServiceException {
+        return createReport(document, date, ReportProfile.FULL);
+    }
+
+    /**
+     * Creates a report for the specified date that contains at least the parts of the specified profile.
+     * Callers that do not need the ledger lines or the debtors and creditors should pass a smaller profile,
+     * because building those parts takes most of the time and memory. Reports are cached until the document
+     * changes. Callers must not modify the report.
+     * @param document the document
+     * @param date the end date of the report
+     * @param profile specifies the parts of the report that the caller needs
+     * @return the report
+     */
+    public Report createReport(Document document, Date date, ReportProfile profile) throws ServiceException {
+        long version = document.getVersion();
+        Report report = reportCache.get(document, version, date, profile);
+        if (report == null) {
+            report = buildReport(document, date, profile);
+            reportCache.put(document, version, date, profile, report);
+        }
+        return report;
+    }
+
+    private Report buildReport(Document document, Date date, ReportProfile profile) throws ServiceException {
         return ServiceTransaction.withResult(() -> {
-            ReportBuilder reportBuilder = new ReportBuilder(document, configurationService, invoiceService, partyService);
-            reportBuilder.init();
-            reportBuilder.setEndDate(date);
-            reportBuilder.setAssets(configurationService.findAssets(document));
-            reportBuilder.setLiabilities(configurationService.findLiabilities(document));
-            reportBuilder.setExpenses(configurationService.findExpenses(document));
-            reportBuilder.setRevenues(configurationService.findRevenues(document));
-
-            List<JournalEntry> journalEntries = ledgerService.findJournalEntries(document);
-            DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetailsMap = ledgerService.getJournalEntryIdToDetailsMap(document);
-            for (JournalEntry journalEntry : journalEntries) {
-                if (DateUtil.compareDayOfYear(journalEntry.getDate(), date) <= 0) {
-                    reportBuilder.addJournal(journalEntry, journalEntryIdToDetailsMap.get(journalEntry.getUniqueId()));
+            List<Invoice> invoices = profile.includesDebtorsAndCreditors() ? invoiceService.findAllInvoices(document) : new ArrayList<>();
+            List<Party> parties = profile.includesDebtorsAndCreditors() ? partyService.findAllParties(document) : new ArrayList<>();
+            ReportBuilder reportBuilder = createReportBuilder(document, date, profile, invoices, parties);
+
+            if (profile.includesLedger()) {
+                ledgerService.forEachJournalEntry(document, null, date, reportBuilder::addJournal);
+            } else {
+                reportBuilder.addLedgerSnapshot(ledgerService.getLedgerSnapshot(document));
+            }
+
+            if (profile.includesDebtorsAndCreditors()) {
+                Map<String, Amount> invoiceIdToRemainingAmount = invoiceService.getRemainingAmounts(document, date);
+                for (Invoice invoice : invoices) {
+                    if (DateUtil.compareDayOfYear(invoice.getIssueDate(), date) <= 0) {
+                        reportBuilder.addInvoice(invoice, invoiceIdToRemainingAmount.get(invoice.getId()));
+                    }
                 }
             }
 
-            DefaultValueMap<String, List<Payment>> invoiceIdToPaymentsMap = invoiceService.getInvoiceIdToPaymentsMap(document);
-            for (Invoice invoice : invoiceService.findAllInvoices(document)) {
-                if (DateUtil.compareDayOfYear(invoice.getIssueDate(), date) <= 0) {
-                    reportBuilder.addInvoice(invoice, invoiceIdToPaymentsMap.get(invoice.getId()));
+            return reportBuilder.build();
+        });
+    }
+
+    /**
+     * Creates a report with the totals of all accounts and the ledger lines of a single account. The totals are
+     * taken from the ledger snapshot and only the journal entry details of the account are read, so this is much
+     * cheaper than a full report when the ledger of one account is shown.
+     * @param document the document
+     * @param account the account whose ledger lines are added to the report
+     * @param date the end date of the report
+     * @return the report
+     */
+    public Report createReportWithLedgerOfAccount(Document document, Account account, Date date) throws ServiceException {
+        LedgerSnapshot snapshot = ledgerService.getLedgerSnapshot(document);
+        return ServiceTransaction.withResult(() -> {
+            List<JournalEntry> journalEntries = new ArrayList<>();
+            List<JournalEntryDetail> journalEntryDetails = new ArrayList<>();
+            ledgerService.forEachJournalEntryDetailOfAccount(document, account.getId(), (journalEntry, journalEntryDetail) -> {
+                if (DateUtil.compareDayOfYear(journalEntry.getDate(), date) <= 0) {
+                    journalEntries.add(journalEntry);
+                    journalEntryDetails.add(journalEntryDetail);
+                }
+            });
+
+            Set<String> invoiceIds = snapshot.getInvoiceIds(account.getId(), date);
+            for (JournalEntry journalEntry : journalEntries) {
+                if (journalEntry.getIdOfCreatedInvoice() != null) {
+                    invoiceIds.add(journalEntry.getIdOfCreatedInvoice());
                 }
             }
+            List<Invoice> invoices = invoiceIds.isEmpty() ? new ArrayList<>()
+                    : new ArrayList<>(invoiceService.getIdToInvoice(document, new ArrayList<>(invoiceIds)).values());
 
+            ReportBuilder reportBuilder = createReportBuilder(document, date, ReportProfile.TOTALS, invoices, new ArrayList<>());
+            reportBuilder.addLedgerSnapshot(snapshot);
+            reportBuilder.setLedgerAccount(account);
+            for (int i=0; i<journalEntries.size(); i++) {
+                reportBuilder.addJournal(journalEntries.get(i), singletonList(journalEntryDetails.get(i)));
+            }
             return reportBuilder.build();
         });
     }
 
+    private ReportBuilder createReportBuilder(Document document, Date date, ReportProfile profile, List<Invoice> invoices,
+                                              List<Party> parties) throws ServiceException {
+        List<Account> accounts = configurationService.findAllAccounts(document);
+        ReportBuilder reportBuilder = new ReportBuilder(configurationService.getBookkeeping(document), profile, accounts, invoices, parties);
+        reportBuilder.init();
+        reportBuilder.setEndDate(date);
+        reportBuilder.setAssets(filterAccounts(accounts, AccountType.get(true, true)));
+        reportBuilder.setLiabilities(filterAccounts(accounts, AccountType.get(false, true)));
+        reportBuilder.setExpenses(filterAccounts(accounts, AccountType.get(true, false)));
+        reportBuilder.setRevenues(filterAccounts(accounts, AccountType.get(false, false)));
+        return reportBuilder;
+    }
+
+    /**
+     * Creates reports for a number of dates. The journal entries, invoices and payments are read once and
+     * swept in order of date; a report is taken each time a date is reached. The reports contain the balance sheet,
+     * the operational result and the debtors and creditors, but no ledger lines.
+     * @param document the document
+     * @param dates the end dates of the reports
+     * @return the reports in the order of the specified dates
+     */
+    public List<Report> createReportSeries(Document document, List<Date> dates) throws ServiceException {
+        if (dates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Date> sortedDates = dates.stream().sorted().toList();
+        List<Report> sortedReports = ServiceTransaction.withResult(() -> {
+            List<Invoice> invoices = invoiceService.findAllInvoices(document);
+            DefaultValueMap<String, List<Payment>> invoiceIdToPaymentsMap = invoiceService.getInvoiceIdToPaymentsMap(document);
+            List<Payment> payments = new ArrayList<>();
+            for (Invoice invoice : invoices) {
+                payments.addAll(invoiceIdToPaymentsMap.get(invoice.getId()));
+            }
+            ReportSeriesBuilder reportSeriesBuilder = new ReportSeriesBuilder(configurationService.findAllAccounts(document), invoices,
+                    payments, partyService.findAllParties(document), sortedDates);
+            ledgerService.forEachJournalEntry(document, null, sortedDates.get(sortedDates.size() - 1), reportSeriesBuilder::addJournal);
+            return reportSeriesBuilder.build();
+        });
+
+        Map<Date, Report> dateToReport = new HashMap<>();
+        for (int i=0; i<sortedDates.size(); i++) {
+            dateToReport.put(sortedDates.get(i), sortedReports.get(i));
+        }
+        return dates.stream().map(dateToReport::get).toList();
+    }
+
+    /**
+     * Compares the balance sheets and income statements of a number of bookkeepings, typically the bookkeepings
+     * of consecutive years created by closing the bookkeeping. The files are opened read-only and closed afterwards.
+     * @param bookkeepingFiles the database files of the bookkeepings
+     * @return the comparison, ordered by start of period
+     */
+    public MultiYearComparison createMultiYearComparison(List<File> bookkeepingFiles) throws ServiceException {
+        List<Document> documents = new ArrayList<>();
+        try {
+            for (File bookkeepingFile : bookkeepingFiles) {
+                documents.add(documentService.openDocumentReadOnly(bookkeepingFile));
+            }
+            return createMultiYearComparisonOfDocuments(documents);
+        } finally {
+            documents.forEach(Document::close);
+        }
+    }
+
+    /**
+     * Compares the balance sheets and income statements of a number of bookkeepings at the end of their year.
+     * The reports of the bookkeepings are created in parallel, so the time needed is close to the time needed
+     * for the largest bookkeeping.
+     * @param documents the documents of the bookkeepings
+     * @return the comparison, ordered by start of period
+     */
+    public MultiYearComparison createMultiYearComparisonOfDocuments(List<Document> documents) throws ServiceException {
+        Map<Document, Bookkeeping> documentToBookkeeping = new HashMap<>();
+        for (Document document : documents) {
+            documentToBookkeeping.put(document, configurationService.getBookkeeping(document));
+        }
+        List<Document> sortedDocuments = documents.stream()
+                .sorted(Comparator.comparing(document -> documentToBookkeeping.get(document).getStartOfPeriod()))
+                .toList();
+
+        List<FutureTask<Report>> futureReports = new ArrayList<>();
+        try {
+            for (Document document : sortedDocuments) {
+                Date endOfYear = DateUtil.addDays(DateUtil.addYears(documentToBookkeeping.get(document).getStartOfPeriod(), 1), -1);
+                futureReports.add(ParallelTasks.submit(executor, () -> createReport(document, endOfYear, ReportProfile.TOTALS)));
+            }
+
+            List<Report> reports = new ArrayList<>();
+            for (FutureTask<Report> futureReport : futureReports) {
+                reports.add(getResult(futureReport));
+            }
+            List<String> descriptions = sortedDocuments.stream()
+                    .map(document -> documentToBookkeeping.get(document).getDescription())
+                    .toList();
+            return new MultiYearComparison(descriptions, reports);
+        } finally {
+            futureReports.forEach(futureReport -> futureReport.cancel(true));
+        }
+    }
+
+    private <T> T getResult(FutureTask<T> futureTask) throws ServiceException {
+        try {
+            return ParallelTasks.getResult(futureTask);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while waiting for a report", e);
+        } catch (ServiceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServiceException("Failed to create a report", e);
+        }
+    }
+
+    private List<Account> filterAccounts(List<Account> accounts, List<AccountType> accountTypes) {
+        return accounts.stream().filter(account -> accountTypes.contains(account.getType())).toList();
+    }
+
     private void copySettings(Document document, Document newDocument) throws ServiceException {
         SettingsService settingsService = new SettingsService();
         Map<String, String> keyToValue = settingsService.findAllSettings(document);
@@ -0,0 +1,151 @@
+package nl.gogognome.gogoaccount.services;
+
+import nl.gogognome.gogoaccount.businessobjects.Report;
+import nl.gogognome.gogoaccount.businessobjects.ReportProfile;
+import nl.gogognome.gogoaccount.component.configuration.Account;
+import nl.gogognome.gogoaccount.component.document.Document;
+
+import java.util.*;
+
+/**
+ * Caches reports by document version and end date, so that views that show a report for the same date after the
+ * same change share a single report. A report built with a larger profile is also used for requests with a smaller
+ * profile. The least recently used reports are evicted when the cache holds too many
+ * reports or too many ledger lines. The reports of a document are removed when the document changes.
+ *
+ * <p>The cached reports are shared by all callers. Their lists are read-only; the ledger lines must not be modified.</p>
+ */
+public class ReportCache {
+
+    private static final int MAX_NR_REPORTS = 20;
+    private static final long MAX_NR_LEDGER_LINES = 500_000;
+
+    private final LinkedHashMap<Key, CachedReport> keyToReport = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Document> documentsWithListener = Collections.newSetFromMap(new WeakHashMap<>());
+    private long nrLedgerLines;
+
+    /**
+     * Gets a cached report.
+     * @param document the document
+     * @param version the version of the document
+     * @param date the end date of the report
+     * @param profile the parts that the report must contain
+     * @return the report or null if no report is cached for the version of the document, the date and a profile
+     *         that includes the specified profile
+     */
+    synchronized Report get(Document document, long version, Date date, ReportProfile profile) {
+        for (ReportProfile cachedProfile : ReportProfile.values()) {
+            if (cachedProfile.includes(profile)) {
+                CachedReport cachedReport = keyToReport.get(new Key(document, version, date, cachedProfile));
+                if (cachedReport != null) {
+                    return cachedReport.report;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a report to the cache. The report is not added if the document has changed since the version
+     * for which the report was created.
+     * @param document the document
+     * @param version the version of the document for which the report was created
+     * @param date the end date of the report
+     * @param profile the profile with which the report was built
+     * @param report the report
+     */
+    synchronized void put(Document document, long version, Date date, ReportProfile profile, Report report) {
+        if (version != document.getVersion()) {
+            return;
+        }
+        // The listener is registered once per document. Document allows listeners to be added from any thread.
+        if (documentsWithListener.add(document)) {
+            document.addListener(this::invalidate);
+        }
+        CachedReport cachedReport = new CachedReport(report, countLedgerLines(report));
+        CachedReport previousReport = keyToReport.put(new Key(document, version, date, profile), cachedReport);
+        if (previousReport != null) {
+            nrLedgerLines -= previousReport.nrLedgerLines;
+        }
+        nrLedgerLines += cachedReport.nrLedgerLines;
+        evictLeastRecentlyUsedReports();
+    }
+
+    /**
+     * Removes all reports of the document from the cache.
+     * @param document the document
+     */
+    synchronized void invalidate(Document document) {
+        Iterator<Map.Entry<Key, CachedReport>> iterator = keyToReport.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, CachedReport> entry = iterator.next();
+            if (entry.getKey().bookkeepingId.equals(document.getBookkeepingId())) {
+                nrLedgerLines -= entry.getValue().nrLedgerLines;
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+        return keyToReport.size();
+    }
+
+    private void evictLeastRecentlyUsedReports() {
+        Iterator<CachedReport> iterator = keyToReport.values().iterator();
+        while (iterator.hasNext() && (keyToReport.size() > MAX_NR_REPORTS || nrLedgerLines > MAX_NR_LEDGER_LINES)) {
+            nrLedgerLines -= iterator.next().nrLedgerLines;
+            iterator.remove();
+        }
+    }
+
+    private static long countLedgerLines(Report report) {
+        long count = 1;
+        for (Account account : report.getAllAccounts()) {
+            count += report.getLedgerLinesForAccount(account).size();
+        }
+        return count;
+    }
+
+    private static class CachedReport {
+        private final Report report;
+        private final long nrLedgerLines;
+
+        private CachedReport(Report report, long nrLedgerLines) {
+            this.report = report;
+            this.nrLedgerLines = nrLedgerLines;
+        }
+    }
+
+    private static class Key {
+        private final String bookkeepingId;
+        private final long version;
+        private final int year;
+        private final int dayOfYear;
+        private final ReportProfile profile;
+
+        private Key(Document document, long version, Date date, ReportProfile profile) {
+            this.bookkeepingId = document.getBookkeepingId();
+            this.version = version;
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(date);
+            this.year = calendar.get(Calendar.YEAR);
+            this.dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+            this.profile = profile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return bookkeepingId.equals(that.bookkeepingId) && version == that.version && year == that.year && dayOfYear == that.dayOfYear
+                    && profile == that.profile;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bookkeepingId, version, year, dayOfYear, profile);
+        }
+    }
+}
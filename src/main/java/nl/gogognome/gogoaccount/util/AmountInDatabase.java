@@ -11,6 +11,10 @@ import java.util.Locale;
 
 public class AmountInDatabase {
 
+    /**
+     * Parses an amount that was stored as text before amounts were stored in cents. Only the conversion
+     * of old documents needs this; amounts in cents are read with {@link #fromCents(Long)}.
+     */
     public static Amount parse(String value) throws SQLException {
         if (value == null) {
             return null;
@@ -56,4 +60,12 @@ public class AmountInDatabase {
     public static String format(Amount amount) {
         return amount != null ? amount.toBigInteger().toString() : null;
     }
+
+    public static Amount fromCents(Long cents) {
+        return cents != null ? new Amount(cents) : null;
+    }
+
+    public static Long toCents(Amount amount) {
+        return amount != null ? amount.toBigInteger().longValueExact() : null;
+    }
 }
@@ -0,0 +1,72 @@
+package nl.gogognome.gogoaccount.util;
+
+import nl.gogognome.dataaccess.dao.AbstractDAO;
+import nl.gogognome.gogoaccount.component.document.Document;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.nCopies;
+
+/**
+ * Inserts many rows in a table with a few multi-row INSERT statements instead of one statement per row.
+ */
+public class MultiRowInsertDAO extends AbstractDAO {
+
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    public MultiRowInsertDAO(Document document) {
+        super(document.getBookkeepingId());
+    }
+
+    /**
+     * Gets a block of values from a sequence with a single query.
+     * @param sequenceName the name of the sequence
+     * @param nrValues the number of values
+     * @return the values
+     */
+    public List<Long> getNextLongsFromSequence(String sequenceName, int nrValues) throws SQLException {
+        if (nrValues == 0) {
+            return new ArrayList<>();
+        }
+        return execute("SELECT NEXT VALUE FOR " + sequenceName + " FROM SYSTEM_RANGE(1, ?)", nrValues)
+                .toList(r -> r.getLong(1));
+    }
+
+    /**
+     * Inserts rows in a table.
+     * @param tableName the name of the table
+     * @param columnNames the names of the columns
+     * @param rows the rows; each row contains a value for each column in the order of the column names
+     */
+    public void insertRows(String tableName, String[] columnNames, List<Object[]> rows) throws SQLException {
+        for (int start = 0; start < rows.size(); start += MAX_ROWS_PER_STATEMENT) {
+            List<Object[]> chunk = rows.subList(start, Math.min(rows.size(), start + MAX_ROWS_PER_STATEMENT));
+            execute(buildInsertStatement(tableName, columnNames, chunk.size()), flatten(chunk, columnNames.length)).ignoreResult();
+        }
+    }
+
+    private String buildInsertStatement(String tableName, String[] columnNames, int nrRows) {
+        String placeholders = "(" + String.join(",", nCopies(columnNames.length, "?")) + ")";
+        StringBuilder sb = new StringBuilder(100 + nrRows * (placeholders.length() + 1));
+        sb.append("INSERT INTO ").append(tableName).append(" (").append(String.join(",", columnNames)).append(") VALUES ");
+        for (int i = 0; i < nrRows; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(placeholders);
+        }
+        return sb.toString();
+    }
+
+    private Object[] flatten(List<Object[]> rows, int nrColumns) {
+        Object[] parameters = new Object[rows.size() * nrColumns];
+        int index = 0;
+        for (Object[] row : rows) {
+            System.arraycopy(row, 0, parameters, index, nrColumns);
+            index += nrColumns;
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,63 @@
+package nl.gogognome.gogoaccount.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks in parallel on the shared executor of the application. A task whose result is needed before a thread
+ * of the executor has started it, is run by the thread that needs the result. So tasks running on the executor
+ * can submit tasks themselves and wait for them, even if all threads of the executor are busy.
+ */
+public class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Creates an executor with a fixed number of daemon threads.
+     * @param nrThreads the number of threads
+     * @return the executor
+     */
+    public static ExecutorService newExecutorService(int nrThreads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "gogoaccount-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(nrThreads, threadFactory);
+    }
+
+    /**
+     * Submits a task to an executor.
+     * @param executor the executor
+     * @param callable the task
+     * @return the submitted task; pass it to {@link #getResult(FutureTask)} to get its result
+     */
+    public static <T> FutureTask<T> submit(Executor executor, Callable<T> callable) {
+        FutureTask<T> task = new FutureTask<>(callable);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Gets the result of a task. If no thread has started the task yet, the task is run by the current thread.
+     * @param task the task
+     * @return the result of the task
+     * @throws Exception the exception thrown by the task
+     */
+    public static <T> T getResult(FutureTask<T> task) throws Exception {
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package nl.gogognome.gogoaccount.util;
+
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Converts dates to values for DATE columns and builds conditions on DATE columns.
+ */
+public class SqlDates {
+
+    private SqlDates() {
+    }
+
+    /**
+     * Converts a date to the start of its day.
+     * @param date the date; may be null
+     * @return the start of the day or null if date is null
+     */
+    public static java.sql.Date toDay(Date date) {
+        if (date == null) {
+            return null;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return new java.sql.Date(calendar.getTimeInMillis());
+    }
+
+    /**
+     * Converts a date to the number of days since 1970-01-01.
+     * @param date the date
+     * @return the epoch day of the date in the default time zone
+     */
+    public static int toEpochDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return (int) LocalDate.of(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)).toEpochDay();
+    }
+
+    /**
+     * Builds a condition that restricts a DATE column to a range of days.
+     * @param columnName the name of the column
+     * @param startDate the first day of the range; null means the range has no lower bound
+     * @param endDate the last day of the range; null means the range has no upper bound
+     * @param parameters the parameters of the condition are added to this list
+     * @return the condition
+     */
+    public static String dateRangeCondition(String columnName, Date startDate, Date endDate, List<Object> parameters) {
+        StringBuilder condition = new StringBuilder("1=1");
+        if (startDate != null) {
+            condition.append(" AND ").append(columnName).append(">=?");
+            parameters.add(toDay(startDate));
+        }
+        if (endDate != null) {
+            condition.append(" AND ").append(columnName).append("<=?");
+            parameters.add(toDay(endDate));
+        }
+        return condition.toString();
+    }
+}
@@ -6,20 +6,42 @@ import java.math.BigInteger;
  * This class represents amounts. It should be used instead of floats, doubles,
  * ints or longs, since floats and doubles suffer from rounding differences
  * and all of them lack checks for overflows.
+ *
+ * <p>The amount is stored in a <code>long</code>. Only amounts that do not fit in a
+ * <code>long</code> are stored in a <code>BigInteger</code>. Arithmetic is checked
+ * for overflow and falls back to <code>BigInteger</code> when needed.
  */
 public class Amount implements Comparable<Amount>
 {
-    public static final Amount ZERO = new Amount("0");
+    public static final Amount ZERO = new Amount(0);
 
-    /** Represents the amount in cents. */
-    private final BigInteger amount;
+    /** Represents the amount in cents if {@link #bigAmount} is null. */
+    private final long amount;
+
+    /** Represents the amount in cents if it does not fit in a long; null otherwise. */
+    private final BigInteger bigAmount;
 
     /**
      * Constructs an amount.
      * @param amount the amount in cents
      */
-    public Amount(BigInteger amount) {
+    public Amount(long amount) {
         this.amount = amount;
+        this.bigAmount = null;
+    }
+
+    /**
+     * Constructs an amount.
+     * @param amount the amount in cents
+     */
+    public Amount(BigInteger amount) {
+        if (amount.bitLength() < Long.SIZE) {
+            this.amount = amount.longValue();
+            this.bigAmount = null;
+        } else {
+            this.amount = 0;
+            this.bigAmount = amount;
+        }
     }
 
     /**
@@ -27,33 +49,62 @@ public class Amount implements Comparable<Amount>
      * @param amount a string representation of the amount in cents
      */
     public Amount(String amount) {
-        this.amount = new BigInteger(amount);
+        this(new BigInteger(amount));
     }
 
     public Amount add(Amount that) {
-        return new Amount(this.amount.add(that.amount));
+        if (this.bigAmount == null && that.bigAmount == null) {
+            try {
+                return new Amount(Math.addExact(this.amount, that.amount));
+            } catch (ArithmeticException e) {
+                // fall back to BigInteger
+            }
+        }
+        return new Amount(this.toBigInteger().add(that.toBigInteger()));
     }
 
     public Amount subtract(Amount that) {
-
-        return new Amount(this.amount.subtract(that.amount));
+        if (this.bigAmount == null && that.bigAmount == null) {
+            try {
+                return new Amount(Math.subtractExact(this.amount, that.amount));
+            } catch (ArithmeticException e) {
+                // fall back to BigInteger
+            }
+        }
+        return new Amount(this.toBigInteger().subtract(that.toBigInteger()));
     }
 
     public Amount divide(int val) {
-        return new Amount(this.amount.divide(new BigInteger(Integer.toString(val))));
+        if (bigAmount == null && !(amount == Long.MIN_VALUE && val == -1)) {
+            return new Amount(amount / val);
+        }
+        return new Amount(toBigInteger().divide(BigInteger.valueOf(val)));
     }
 
     public Amount multiply(int val) {
-        return new Amount(this.amount.multiply(new BigInteger(Integer.toString(val))));
+        if (bigAmount == null) {
+            try {
+                return new Amount(Math.multiplyExact(amount, val));
+            } catch (ArithmeticException e) {
+                // fall back to BigInteger
+            }
+        }
+        return new Amount(toBigInteger().multiply(BigInteger.valueOf(val)));
     }
 
     public Amount negate() {
-        return new Amount(amount.negate());
+        if (bigAmount == null && amount != Long.MIN_VALUE) {
+            return new Amount(-amount);
+        }
+        return new Amount(toBigInteger().negate());
     }
 
     public int compareTo(Amount that)
     {
-        return amount.compareTo(that.amount);
+        if (this.bigAmount == null && that.bigAmount == null) {
+            return Long.compare(this.amount, that.amount);
+        }
+        return toBigInteger().compareTo(that.toBigInteger());
     }
 
     /**
@@ -61,7 +112,7 @@ public class Amount implements Comparable<Amount>
      * @return <code>true</code> if this amount is positive; <code>false</code> otherwise.
      */
     public boolean isPositive() {
-        return amount.signum() == 1;
+        return signum() == 1;
     }
 
     /**
@@ -69,7 +120,7 @@ public class Amount implements Comparable<Amount>
      * @return <code>true</code> if this amount is negative; <code>false</code> otherwise.
      */
     public boolean isNegative() {
-        return amount.signum() == -1;
+        return signum() == -1;
     }
 
     /**
@@ -77,10 +128,28 @@ public class Amount implements Comparable<Amount>
      * @return <code>true</code> if this amount is zero; <code>false</code> otherwise
      */
     public boolean isZero() {
-        return amount.signum() == 0;
+        return signum() == 0;
+    }
+
+    private int signum() {
+        return bigAmount != null ? bigAmount.signum() : Long.signum(amount);
     }
 
     public BigInteger toBigInteger() {
+        return bigAmount != null ? bigAmount : BigInteger.valueOf(amount);
+    }
+
+    /**
+     * @return <code>true</code> if this amount fits in a long; <code>false</code> otherwise
+     */
+    boolean fitsInLong() {
+        return bigAmount == null;
+    }
+
+    /**
+     * @return the amount in cents; only valid if {@link #fitsInLong()} returns <code>true</code>
+     */
+    long longValue() {
         return amount;
     }
 
@@ -92,7 +161,7 @@ public class Amount implements Comparable<Amount>
      */
     @Override
 	public String toString() {
-        return amount.toString();
+        return bigAmount != null ? bigAmount.toString() : Long.toString(amount);
     }
 
     /**
@@ -105,7 +174,10 @@ public class Amount implements Comparable<Amount>
 	public boolean equals(Object o) {
         if (o instanceof Amount) {
             Amount that = (Amount) o;
-            return this.amount.equals(that.amount);
+            if (this.bigAmount == null && that.bigAmount == null) {
+                return this.amount == that.amount;
+            }
+            return this.toBigInteger().equals(that.toBigInteger());
         } else {
             return false;
         }
@@ -113,7 +185,7 @@ public class Amount implements Comparable<Amount>
 
     @Override
 	public int hashCode() {
-        return amount.hashCode();
+        return bigAmount != null ? bigAmount.hashCode() : Long.hashCode(amount);
     }
 
     /**
@@ -0,0 +1,73 @@
+package nl.gogognome.lib.text;
+
+import java.math.BigInteger;
+
+/**
+ * Mutable sum of amounts. Use this class instead of repeatedly adding {@link Amount}s in loops,
+ * because adding an amount to an accumulator does not create new objects as long as the sum
+ * fits in a <code>long</code>.
+ */
+public class AmountAccumulator {
+
+    /** The sum in cents if {@link #bigSum} is null. */
+    private long sum;
+
+    /** The sum in cents once it no longer fits in a long; null otherwise. */
+    private BigInteger bigSum;
+
+    public AmountAccumulator add(Amount amount) {
+        if (amount.fitsInLong()) {
+            return addCents(amount.longValue());
+        }
+        bigSum = toBigInteger().add(amount.toBigInteger());
+        return this;
+    }
+
+    public AmountAccumulator subtract(Amount amount) {
+        if (amount.fitsInLong() && amount.longValue() != Long.MIN_VALUE) {
+            return addCents(-amount.longValue());
+        }
+        bigSum = toBigInteger().subtract(amount.toBigInteger());
+        return this;
+    }
+
+    /**
+     * Adds an amount in cents.
+     * @param cents the amount in cents
+     * @return this accumulator
+     */
+    public AmountAccumulator addCents(long cents) {
+        if (bigSum == null) {
+            try {
+                sum = Math.addExact(sum, cents);
+                return this;
+            } catch (ArithmeticException e) {
+                // fall back to BigInteger
+            }
+        }
+        bigSum = toBigInteger().add(BigInteger.valueOf(cents));
+        return this;
+    }
+
+    public boolean isZero() {
+        return bigSum != null ? bigSum.signum() == 0 : sum == 0;
+    }
+
+    public void reset() {
+        sum = 0;
+        bigSum = null;
+    }
+
+    public Amount toAmount() {
+        return bigSum != null ? new Amount(bigSum) : new Amount(sum);
+    }
+
+    private BigInteger toBigInteger() {
+        return bigSum != null ? bigSum : BigInteger.valueOf(sum);
+    }
+
+    @Override
+    public String toString() {
+        return bigSum != null ? bigSum.toString() : Long.toString(sum);
+    }
+}
@@ -0,0 +1,11 @@
+ALTER TABLE invoice ADD amount_to_be_paid_in_cents BIGINT;
+UPDATE invoice SET amount_to_be_paid_in_cents=CAST(amount_to_be_paid AS BIGINT) WHERE amount_to_be_paid NOT LIKE '% %';
+
+ALTER TABLE invoice_detail ADD amount_in_cents BIGINT;
+UPDATE invoice_detail SET amount_in_cents=CAST(amount AS BIGINT) WHERE amount NOT LIKE '% %';
+
+ALTER TABLE payment ADD amount_in_cents BIGINT;
+UPDATE payment SET amount_in_cents=CAST(amount AS BIGINT) WHERE amount NOT LIKE '% %';
+
+ALTER TABLE journal_entry_detail ADD amount_in_cents BIGINT;
+UPDATE journal_entry_detail SET amount_in_cents=CAST(amount AS BIGINT) WHERE amount NOT LIKE '% %';
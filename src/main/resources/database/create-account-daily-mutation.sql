@@ -0,0 +1,12 @@
+CREATE TABLE account_daily_mutation (
+  account_id VARCHAR2(100) NOT NULL,
+  date DATE NOT NULL,
+  mutation BIGINT NOT NULL,
+  PRIMARY KEY (account_id, date),
+  CONSTRAINT fk_account_daily_mutation_account_id FOREIGN KEY (account_id) REFERENCES account(id) ON DELETE CASCADE
+);
+
+INSERT INTO account_daily_mutation (account_id, date, mutation)
+  SELECT d.account_id, e.date, SUM(CASE WHEN d.debet THEN d.amount ELSE -d.amount END)
+  FROM journal_entry_detail d JOIN journal_entry e ON e.id=d.journal_entry_id
+  GROUP BY d.account_id, e.date;
@@ -0,0 +1,11 @@
+ALTER TABLE invoice DROP COLUMN amount_to_be_paid;
+ALTER TABLE invoice ALTER COLUMN amount_to_be_paid_in_cents RENAME TO amount_to_be_paid;
+
+ALTER TABLE invoice_detail DROP COLUMN amount;
+ALTER TABLE invoice_detail ALTER COLUMN amount_in_cents RENAME TO amount;
+
+ALTER TABLE payment DROP COLUMN amount;
+ALTER TABLE payment ALTER COLUMN amount_in_cents RENAME TO amount;
+
+ALTER TABLE journal_entry_detail DROP COLUMN amount;
+ALTER TABLE journal_entry_detail ALTER COLUMN amount_in_cents RENAME TO amount;
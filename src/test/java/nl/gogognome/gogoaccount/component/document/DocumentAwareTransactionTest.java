@@ -1,5 +1,6 @@
 package nl.gogognome.gogoaccount.component.document;
 
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import org.junit.jupiter.api.*;
 
@@ -10,12 +11,13 @@ public class DocumentAwareTransactionTest {
         Document document1 = mock(Document.class);
         Document document2 = mock(Document.class);
         DocumentAwareTransaction transaction = new DocumentAwareTransaction();
-        transaction.notifyListenersWhenTransactionCloses(document1);
-        transaction.notifyListenersWhenTransactionCloses(document2);
+        transaction.notifyListenersWhenTransactionCloses(document1, DocumentChanges.unspecified());
+        transaction.notifyListenersWhenTransactionCloses(document2, DocumentChanges.unspecified());
+        transaction.notifyListenersWhenTransactionCloses(document1, DocumentChanges.unspecified());
 
         transaction.close();
 
-        verify(document1).notifyListeners();
-        verify(document2).notifyListeners();
+        verify(document1, times(1)).notifyListeners(any(DocumentChanges.class));
+        verify(document2, times(1)).notifyListeners(any(DocumentChanges.class));
     }
-}
\ No newline at end of file
+}
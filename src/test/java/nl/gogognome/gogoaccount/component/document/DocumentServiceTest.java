@@ -0,0 +1,111 @@
+package nl.gogognome.gogoaccount.component.document;
+
+import static nl.gogognome.gogoaccount.test.builders.LegacyDatabaseBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import nl.gogognome.dataaccess.transaction.*;
+import nl.gogognome.gogoaccount.component.configuration.*;
+import nl.gogognome.gogoaccount.services.*;
+
+public class DocumentServiceTest {
+
+    private final ConfigurationService configurationService = new ConfigurationService();
+    private final DocumentService documentService = new DocumentService(configurationService);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void initTransactionCreator() {
+        CurrentTransaction.transactionCreator = DocumentAwareTransaction::new;
+    }
+
+    @Test
+    public void openDocument_amountsInLegacyFormat_amountsAreConvertedToCentsAndNullAmountsStayNull() throws Exception {
+        File file = tempDir.resolve("legacy.h2.db").toFile();
+        try (Connection connection = createDatabaseWithLegacyAmounts(file)) {
+            execute(connection, "INSERT INTO party (id, name) VALUES ('p1', 'Pietje Puk')");
+            execute(connection, "INSERT INTO invoice (id, party_id, amount_to_be_paid, issue_date) VALUES ('i1', 'p1', 'EUR 12.34', DATE '2011-03-15')");
+            execute(connection, "INSERT INTO invoice (id, party_id, amount_to_be_paid, issue_date) VALUES ('i2', 'p1', '-/- EUR 0.05', DATE '2011-03-15')");
+            execute(connection, "INSERT INTO invoice (id, party_id, amount_to_be_paid, issue_date) VALUES ('i3', 'p1', NULL, DATE '2011-03-15')");
+            execute(connection, "INSERT INTO invoice (id, party_id, amount_to_be_paid, issue_date) VALUES ('i4', 'p1', '1234', DATE '2011-03-15')");
+            execute(connection, "INSERT INTO invoice_detail (id, invoice_id, description, amount) VALUES ('d1', 'i1', 'Subscription', 'EUR 12.34')");
+            execute(connection, "INSERT INTO invoice_detail (id, invoice_id, description, amount) VALUES ('d2', 'i3', 'Unknown', NULL)");
+            for (int i=0; i<600; i++) {
+                execute(connection, "INSERT INTO payment (id, invoice_id, date, amount, description) VALUES ('pay" + i + "', 'i1', DATE '2011-03-25', 'EUR 0."
+                        + (10 + i % 90) + "', 'Payment')");
+            }
+        }
+
+        Document document = documentService.openDocument(file);
+        try (Connection connection = DriverManager.getConnection(getJdbcUrl(file))) {
+            assertEquals(Arrays.asList(1234L, -5L, null, 1234L), findLongs(connection, "SELECT amount_to_be_paid FROM invoice ORDER BY id"));
+            assertEquals(Arrays.asList(1234L, null), findLongs(connection, "SELECT amount FROM invoice_detail ORDER BY id"));
+            List<Long> paymentAmounts = findLongs(connection, "SELECT amount FROM payment ORDER BY id");
+            assertEquals(600, paymentAmounts.size());
+            assertTrue(paymentAmounts.stream().allMatch(amount -> amount != null && amount >= 10 && amount < 100));
+        } finally {
+            document.close();
+        }
+    }
+
+    @Test
+    public void openDocumentReadOnly_upToDateFile_bookkeepingCanBeReadAndFileIsNotChanged() throws Exception {
+        File file = tempDir.resolve("bookkeeping.h2.db").toFile();
+        documentService.createNewDocument(file, "Bookkeeping 2011").close();
+        byte[] contentsBeforeOpening = Files.readAllBytes(file.toPath());
+
+        Document document = documentService.openDocumentReadOnly(file);
+        try {
+            assertTrue(document.isReadonly());
+            assertEquals("Bookkeeping 2011", configurationService.getBookkeeping(document).getDescription());
+        } finally {
+            document.close();
+        }
+        assertArrayEquals(contentsBeforeOpening, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void openDocumentReadOnly_fileWithOlderSchema_migratedCopyIsOpenedAndFileIsNotChanged() throws Exception {
+        File file = tempDir.resolve("old.h2.db").toFile();
+        try (Connection connection = createDatabaseWithLegacyAmounts(file)) {
+            execute(connection, "INSERT INTO party (id, name) VALUES ('p1', 'Pietje Puk')");
+            execute(connection, "INSERT INTO invoice (id, party_id, amount_to_be_paid, issue_date) VALUES ('i1', 'p1', 'EUR 12.34', DATE '2011-03-15')");
+        }
+        byte[] contentsBeforeOpening = Files.readAllBytes(file.toPath());
+
+        Document document = documentService.openDocumentReadOnly(file);
+        try {
+            assertTrue(document.isReadonly());
+            assertEquals(file, document.getDatabaseFile());
+            Long latestAppliedMigrationId = ServiceTransaction.withResult(() -> new AppliedMigrationsDAO(document).getLatestAppliedMigrationId());
+            assertTrue(latestAppliedMigrationId > 140);
+            assertNotNull(configurationService.getBookkeeping(document));
+        } finally {
+            document.close();
+        }
+        assertArrayEquals(contentsBeforeOpening, Files.readAllBytes(file.toPath()));
+    }
+
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<Long> findLongs(Connection connection, String sql) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                long value = resultSet.getLong(1);
+                values.add(resultSet.wasNull() ? null : value);
+            }
+        }
+        return values;
+    }
+}
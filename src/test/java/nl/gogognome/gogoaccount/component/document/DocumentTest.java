@@ -1,8 +1,12 @@
 package nl.gogognome.gogoaccount.component.document;
 
+import static nl.gogognome.gogoaccount.component.document.DocumentChanges.EntityType.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import java.util.Set;
 import org.junit.jupiter.api.*;
+import org.mockito.ArgumentCaptor;
 import nl.gogognome.dataaccess.transaction.*;
 
 public class DocumentTest {
@@ -22,7 +26,7 @@ public class DocumentTest {
 
         document.notifyChange();
 
-        verify(listener).documentChanged(document);
+        verify(listener).documentChanged(eq(document), any(DocumentChanges.class));
     }
 
     @Test
@@ -30,7 +34,7 @@ public class DocumentTest {
         CurrentTransaction.create();
         document.notifyChange();
 
-        verify(listener, never()).documentChanged(document);
+        verify(listener, never()).documentChanged(eq(document), any(DocumentChanges.class));
         CurrentTransaction.close(true);
     }
 
@@ -41,7 +45,7 @@ public class DocumentTest {
 
         CurrentTransaction.close(true);
 
-        verify(listener).documentChanged(document);
+        verify(listener).documentChanged(eq(document), any(DocumentChanges.class));
     }
 
     @Test
@@ -51,7 +55,58 @@ public class DocumentTest {
 
         CurrentTransaction.close(false);
 
-        verify(listener).documentChanged(document);
+        verify(listener).documentChanged(eq(document), any(DocumentChanges.class));
     }
 
+    @Test
+    public void whenTrasnsactionPresentChangedEntitiesAreDeliveredOnceWhenTransactionCloses() {
+        CurrentTransaction.create();
+        document.notifyChange(JOURNAL_ENTRY, "1");
+        document.notifyChange(PAYMENT, "p1", "p2");
+        document.notifyChange(JOURNAL_ENTRY, "2");
+
+        CurrentTransaction.close(true);
+
+        ArgumentCaptor<DocumentChanges> changesCaptor = ArgumentCaptor.forClass(DocumentChanges.class);
+        verify(listener, times(1)).documentChanged(eq(document), changesCaptor.capture());
+        DocumentChanges changes = changesCaptor.getValue();
+        assertEquals(Set.of("1", "2"), changes.getChangedIds(JOURNAL_ENTRY));
+        assertEquals(Set.of("p1", "p2"), changes.getChangedIds(PAYMENT));
+        assertTrue(changes.getChangedIds(INVOICE).isEmpty());
+        assertFalse(changes.hasUnspecifiedChanges());
+        assertTrue(changes.affectsOnly(JOURNAL_ENTRY, PAYMENT));
+        assertFalse(changes.affects(PARTY, ACCOUNT));
+    }
+
+    @Test
+    public void notifyChangeWithoutEntitiesAffectsAllKindsOfEntities() {
+        document.notifyChange();
+
+        ArgumentCaptor<DocumentChanges> changesCaptor = ArgumentCaptor.forClass(DocumentChanges.class);
+        verify(listener).documentChanged(eq(document), changesCaptor.capture());
+        assertTrue(changesCaptor.getValue().hasUnspecifiedChanges());
+        assertTrue(changesCaptor.getValue().affects(PARTY));
+        assertFalse(changesCaptor.getValue().affectsOnly(JOURNAL_ENTRY));
+    }
+
+    @Test
+    public void listenerCreatedWithWhenChangedIgnoresChangesOfOtherEntities() {
+        Runnable action = mock(Runnable.class);
+        document.addListener(DocumentListener.whenChanged(action, INVOICE, PARTY));
+
+        document.notifyChange(JOURNAL_ENTRY, "1");
+        verify(action, never()).run();
+
+        document.notifyChange(PARTY, "1101");
+        verify(action).run();
+    }
+
+    @Test
+    public void notifyChangeIncreasesVersion() {
+        long version = document.getVersion();
+
+        document.notifyChange(ACCOUNT, "100");
+
+        assertTrue(document.getVersion() > version);
+    }
 }
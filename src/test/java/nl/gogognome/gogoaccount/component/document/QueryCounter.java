@@ -0,0 +1,69 @@
+package nl.gogognome.gogoaccount.component.document;
+
+import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the number of statements that are executed against the database of an in-memory document.
+ * A batch counts as a single statement.
+ */
+public class QueryCounter {
+
+    private final AtomicInteger nrQueries = new AtomicInteger();
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Replaces the data source of the document by a data source that counts the executed statements.
+     * @param document an in-memory document
+     * @return the query counter
+     */
+    public static QueryCounter install(Document document) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(document.connectionToKeepInMemoryDatabaseAlive.getMetaData().getURL());
+        QueryCounter queryCounter = new QueryCounter();
+        CompositeDatasourceTransaction.registerDataSource(document.getBookkeepingId(), queryCounter.wrap(dataSource, DataSource.class));
+        return queryCounter;
+    }
+
+    public int getNrQueries() {
+        return nrQueries.get();
+    }
+
+    public void reset() {
+        nrQueries.set(0);
+    }
+
+    private <T> T wrap(Object target, Class<T> interfaceClass) {
+        Object proxy = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { interfaceClass },
+                (p, method, args) -> invoke(target, method, args));
+        return interfaceClass.cast(proxy);
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        if (target instanceof Statement && method.getName().startsWith("execute")) {
+            nrQueries.incrementAndGet();
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        Class<?> returnType = method.getReturnType();
+        if (result != null && returnType.isInterface() && returnType.getName().startsWith("java.sql.")
+                && !returnType.getSimpleName().equals("ResultSet")) {
+            return wrap(result, returnType);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,92 @@
+package nl.gogognome.gogoaccount.component.invoice;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.io.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import nl.gogognome.gogoaccount.component.party.*;
+import nl.gogognome.gogoaccount.test.builders.*;
+import nl.gogognome.lib.text.*;
+
+public class InvoicePreviewTemplateTest {
+
+    private final AmountFormat amountFormat = new AmountFormat(Locale.US, Currency.getInstance("EUR"));
+    private final TextResource textResource = mock(TextResource.class);
+    private final InvoicePreviewTemplate invoicePreviewTemplate = new InvoicePreviewTemplate(amountFormat, textResource);
+
+    private final Invoice invoice = new Invoice("2011001");
+    private final Party party = new Party();
+
+    @BeforeEach
+    public void initInvoiceAndParty() {
+        when(textResource.formatDate(ArgumentMatchers.anyString(), ArgumentMatchers.any())).thenReturn("some date");
+        invoice.setDescription("Contribution");
+        invoice.setAmountToBePaid(AmountBuilder.build(30));
+        party.setName("Pietje Puk");
+    }
+
+    @Test
+    public void placeholdersAreReplacedByEscapedValues() {
+        party.setName("Puk & <Co>");
+
+        String result = invoicePreviewTemplate.fillInParametersInTemplate("<p>${invoice.id} ${party.name} ${party.address}</p>",
+                invoice, emptyList(), emptyList(), party, new Date());
+
+        assertEquals("<p>2011001 Puk &#38; &#60;Co&#62; </p>", result);
+    }
+
+    @Test
+    public void unknownPlaceholdersAndLinePlaceholdersOutsideLinesAreKept() {
+        String result = invoicePreviewTemplate.fillInParametersInTemplate("${unknown} ${line.description} ${party.name}",
+                invoice, emptyList(), emptyList(), party, new Date());
+
+        assertEquals("${unknown} ${line.description} Pietje Puk", result);
+    }
+
+    @Test
+    public void linesAreRenderedForEachDetailAndPayment() {
+        InvoiceDetail detail1 = new InvoiceDetail();
+        detail1.setDescription("Membership");
+        detail1.setAmount(AmountBuilder.build(20));
+        InvoiceDetail detail2 = new InvoiceDetail();
+        detail2.setDescription("Magazine");
+        detail2.setAmount(AmountBuilder.build(10));
+        Payment payment = new Payment("p1");
+        payment.setDescription("Paid");
+        payment.setAmount(AmountBuilder.build(5));
+
+        String result = invoicePreviewTemplate.fillInParametersInTemplate(
+                "<table>${lineStart}<tr>${line.description}:${invoice.id}</tr>${lineEnd}</table>",
+                invoice, asList(detail1, detail2), singletonList(payment), party, new Date());
+
+        assertEquals("<table><tr>Membership:2011001</tr><tr>Magazine:2011001</tr><tr>Paid:2011001</tr></table>", result);
+    }
+
+    @Test
+    public void compiledTemplateCanBeRenderedForMultipleInvoicesToSameWriter() throws IOException {
+        CompiledInvoicePreviewTemplate template = invoicePreviewTemplate.compile("${invoice.id};");
+        Invoice otherInvoice = new Invoice("2011002");
+        otherInvoice.setAmountToBePaid(AmountBuilder.build(10));
+        StringWriter writer = new StringWriter();
+
+        template.render(writer, invoice, emptyList(), emptyList(), party, new Date());
+        template.render(writer, otherInvoice, emptyList(), emptyList(), party, new Date());
+
+        assertEquals("2011001;2011002;", writer.toString());
+    }
+
+    @Test
+    public void compiledTemplateIsRenderedAsUtf8ToOutputStream() throws IOException {
+        party.setName("José");
+        CompiledInvoicePreviewTemplate template = invoicePreviewTemplate.compile("<p>€ ${party.name}</p>");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        template.render(outputStream, invoice, emptyList(), emptyList(), party, new Date());
+
+        assertEquals("<p>€ Jos&#233;</p>", outputStream.toString("UTF-8"));
+    }
+}
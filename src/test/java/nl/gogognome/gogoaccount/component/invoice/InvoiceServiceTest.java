@@ -44,6 +44,43 @@ public class InvoiceServiceTest extends AbstractBookkeepingTest {
         assertEquals(parties.size(), uniqueIds.size());
     }
 
+    @Test
+    public void createInvoicesForMultipleParties_reportsProgressAndCreatesJournalEntryPerInvoice() throws Exception {
+        removeExistingInvoices();
+        List<Party> parties = partyService.findAllParties(document);
+        Date issueDate = DateUtil.createDate(2011, 8, 20);
+        Account debtor = configurationService.getAccount(document, "190");
+        InvoiceTemplate invoiceTemplate = new InvoiceTemplate(InvoiceTemplate.Type.SALE, null, issueDate, "Invoice for {name}", buildSomeLine());
+        List<Integer> percentages = new ArrayList<>();
+
+        List<Invoice> createdInvoices = ledgerService.createInvoiceAndJournalForParties(document, debtor, invoiceTemplate, parties, percentages::add);
+
+        assertEquals(parties.size(), createdInvoices.size());
+        assertEquals(0, percentages.get(0));
+        assertEquals(100, percentages.get(percentages.size() - 1));
+        for (Invoice invoice : createdInvoices) {
+            assertEquals(invoice.getId(), ledgerService.findJournalEntry(document, invoice.getId()).getIdOfCreatedInvoice());
+        }
+    }
+
+    @Test
+    public void createInvoiceSendings_moreThanOneStatementOfSendings_allSendingsAreStored() throws Exception {
+        removeExistingInvoices();
+        Account debtor = configurationService.getAccount(document, "190");
+        InvoiceTemplate invoiceTemplate = new InvoiceTemplate(InvoiceTemplate.Type.SALE, null, DateUtil.createDate(2011, 8, 20),
+                "Invoice for {name}", buildSomeLine());
+        List<Invoice> invoices = ledgerService.createInvoiceAndJournalForParties(document, debtor, invoiceTemplate, nCopies(1234, pietPuk));
+
+        invoiceService.createInvoiceSendings(document, invoices, InvoiceSending.Type.PDF);
+
+        List<InvoiceSending> invoiceSendings = invoiceService.findAllInvoiceSendings(document);
+        assertEquals(invoices.stream().map(Invoice::getId).collect(toSet()),
+                invoiceSendings.stream().map(InvoiceSending::getInvoiceId).collect(toSet()));
+        assertEquals(invoices.size(), invoiceSendings.size());
+        assertTrue(invoiceSendings.stream().allMatch(invoiceSending -> invoiceSending.getType() == InvoiceSending.Type.PDF));
+        assertEquals(invoiceSendings.size(), invoiceSendings.stream().map(InvoiceSending::getId).distinct().count());
+    }
+
     @Test
     public void testInvoiceIdPatternWhenCreatingInvoices() throws Exception {
         assertEquals("[01, 02]", getInvoiceIdsWithInvoiceIdPattern("nn"));
@@ -188,6 +225,54 @@ public class InvoiceServiceTest extends AbstractBookkeepingTest {
                 "201100001 Invoice to be paid: 100, paid: 100 Pietje Puk");
     }
 
+    @Test
+    public void findInvoiceOverviews_reflectsChangesMadeAfterPreviousSearch() throws ServiceException {
+        removeExistingInvoices();
+        createInvoiceWithPayment(100, 80, janPieterszoon);
+        assertInvoiceOverviewsEqual(invoiceService.findInvoiceOverviews(document, null, false),
+                "201100001 Invoice to be paid: 100, paid: 80 Jan Pieterszoon");
+
+        createInvoiceWithPayment(100, 100, pietPuk);
+        janPieterszoon.setName("Jan Janszoon");
+        partyService.updateParty(document, janPieterszoon, emptyList());
+
+        assertInvoiceOverviewsEqual(invoiceService.findInvoiceOverviews(document, null, true),
+                "201100001 Invoice to be paid: 100, paid: 80 Jan Janszoon",
+                "201100002 Invoice to be paid: 100, paid: 100 Pietje Puk");
+        assertInvoiceOverviewsEqual(invoiceService.findInvoiceOverviews(document, new StringLiteral("janszoon"), true),
+                "201100001 Invoice to be paid: 100, paid: 80 Jan Janszoon");
+
+        removeExistingInvoices();
+        assertTrue(invoiceService.findInvoiceOverviews(document, null, true).isEmpty());
+    }
+
+    @Test
+    public void findOpenInvoices_onlyPaymentsUpToDateAreTakenIntoAccount() throws ServiceException {
+        removeExistingInvoices();
+        createInvoiceWithPayment(100, 100, pietPuk);
+        createInvoiceWithPayment(100, 80, janPieterszoon);
+
+        assertEquals(asList("201100001", "201100002"),
+                invoiceService.findOpenInvoices(document, createDate(2011, 8, 29)).stream().map(Invoice::getId).toList());
+        assertEquals(singletonList("201100002"),
+                invoiceService.findOpenInvoices(document, createDate(2011, 8, 30)).stream().map(Invoice::getId).toList());
+    }
+
+    @Test
+    public void getRemainingAmounts_onlyPaymentsUpToDateAreSubtracted() throws ServiceException {
+        removeExistingInvoices();
+        createInvoiceWithPayment(100, 100, pietPuk);
+        createInvoiceWithPayment(100, 80, janPieterszoon);
+
+        Map<String, Amount> remainingAmountsBeforePayments = invoiceService.getRemainingAmounts(document, createDate(2011, 8, 29));
+        assertEquals(AmountBuilder.build(100), remainingAmountsBeforePayments.get("201100001"));
+        assertEquals(AmountBuilder.build(100), remainingAmountsBeforePayments.get("201100002"));
+
+        Map<String, Amount> remainingAmountsAfterPayments = invoiceService.getRemainingAmounts(document, createDate(2011, 8, 30));
+        assertEquals(AmountBuilder.build(0), remainingAmountsAfterPayments.get("201100001"));
+        assertEquals(AmountBuilder.build(20), remainingAmountsAfterPayments.get("201100002"));
+    }
+
     private void removeExistingInvoices() throws ServiceException {
         for (JournalEntry entry : ledgerService.findJournalEntries(document)) {
             for (JournalEntryDetail detail : ledgerService.findJournalEntryDetails(document, entry)) {
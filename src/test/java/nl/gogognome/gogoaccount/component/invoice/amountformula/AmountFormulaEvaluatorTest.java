@@ -0,0 +1,56 @@
+package nl.gogognome.gogoaccount.component.invoice.amountformula;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+import nl.gogognome.lib.text.*;
+
+public class AmountFormulaEvaluatorTest {
+
+    private final AmountFormula formula1 = mock(AmountFormula.class);
+    private final AmountFormula formula2 = mock(AmountFormula.class);
+    private final AmountFormulaEvaluator evaluator = new AmountFormulaEvaluator(asList(formula1, formula2));
+
+    private final Amount someAmount = new Amount("123");
+    private final Amount otherAmount = new Amount("456");
+
+    @Test
+    public void getAmountsReturnsAmountsOfFormulasInOrder() {
+        when(formula1.getAmount(ArgumentMatchers.<String>anyList())).thenReturn(someAmount);
+        when(formula2.getAmount(ArgumentMatchers.<String>anyList())).thenReturn(null);
+
+        Amount[] amounts = evaluator.getAmounts(asList("tag1", "tag2"));
+
+        assertArrayEquals(new Amount[] { someAmount, null }, amounts);
+    }
+
+    @Test
+    public void formulasAreEvaluatedOncePerDistinctCombinationOfTags() {
+        when(formula1.getAmount(ArgumentMatchers.<String>anyList())).thenReturn(someAmount);
+        when(formula2.getAmount(ArgumentMatchers.<String>anyList())).thenReturn(otherAmount);
+
+        evaluator.getAmounts(asList("tag1", "tag2"));
+        evaluator.getAmounts(asList("tag2", "tag1"));
+        evaluator.getAmounts(asList("tag1", "tag2", "tag1"));
+        evaluator.getAmounts(singletonList("tag1"));
+        evaluator.getAmounts(emptyList());
+        evaluator.getAmounts(emptyList());
+
+        verify(formula1, times(3)).getAmount(ArgumentMatchers.<String>anyList());
+        verify(formula2, times(3)).getAmount(ArgumentMatchers.<String>anyList());
+    }
+
+    @Test
+    public void differentCombinationsOfTagsGetTheirOwnAmounts() {
+        when(formula1.getAmount(asList("member"))).thenReturn(someAmount);
+        when(formula1.getAmount(asList("member", "youth"))).thenReturn(otherAmount);
+
+        assertEquals(someAmount, evaluator.getAmounts(asList("member"))[0]);
+        assertEquals(otherAmount, evaluator.getAmounts(asList("member", "youth"))[0]);
+        assertEquals(someAmount, evaluator.getAmounts(asList("member"))[0]);
+    }
+}
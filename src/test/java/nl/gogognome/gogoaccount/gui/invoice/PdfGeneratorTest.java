@@ -3,7 +3,12 @@ package nl.gogognome.gogoaccount.gui.invoice;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.*;
 import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import org.apache.pdfbox.pdmodel.*;
+import org.apache.pdfbox.text.*;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
 
 class PdfGeneratorTest {
 
@@ -30,4 +35,45 @@ class PdfGeneratorTest {
 		assertEquals("%PDF", headerOfPdf);
 	}
 
+	@Test
+	void testWritingTwoDifferentPdfsWithSameGenerator() throws Exception {
+		PdfGenerator pdfGenerator = new PdfGenerator();
+		ByteArrayOutputStream firstOutputStream = new ByteArrayOutputStream();
+		pdfGenerator.writePdfToStream(template, "https://gogognome.nl", firstOutputStream);
+		ByteArrayOutputStream secondOutputStream = new ByteArrayOutputStream();
+		pdfGenerator.writePdfToStream(template.replace("This is a test invoice.", "This is another invoice."),
+				"https://gogognome.nl", secondOutputStream);
+
+		String textOfSecondPdf = getText(secondOutputStream.toByteArray());
+		assertTrue(textOfSecondPdf.contains("This is another invoice."), textOfSecondPdf);
+		assertFalse(textOfSecondPdf.contains("This is a test invoice."), textOfSecondPdf);
+	}
+
+	@Test
+	void testStyleSheetIsReadAgainAfterItHasBeenModified(@TempDir Path directory) throws Exception {
+		Path styleSheet = directory.resolve("invoice.css");
+		Files.writeString(styleSheet, ".hidden { display: none; }");
+		String templateWithStyleSheet = template
+				.replace("<title>", "<link rel=\"stylesheet\" type=\"text/css\" href=\"invoice.css\"/><title>")
+				.replace("<p>This", "<p class=\"hidden\">This");
+		String url = directory.resolve("invoice.html").toUri().toString();
+		PdfGenerator pdfGenerator = new PdfGenerator();
+
+		ByteArrayOutputStream firstOutputStream = new ByteArrayOutputStream();
+		pdfGenerator.writePdfToStream(templateWithStyleSheet, url, firstOutputStream);
+		Files.writeString(styleSheet, ".hidden { color: black; }");
+		Files.setLastModifiedTime(styleSheet, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+		ByteArrayOutputStream secondOutputStream = new ByteArrayOutputStream();
+		pdfGenerator.writePdfToStream(templateWithStyleSheet, url, secondOutputStream);
+
+		assertFalse(getText(firstOutputStream.toByteArray()).contains("This is a test invoice."));
+		assertTrue(getText(secondOutputStream.toByteArray()).contains("This is a test invoice."));
+	}
+
+	private String getText(byte[] pdf) throws IOException {
+		try (PDDocument document = PDDocument.load(pdf)) {
+			return new PDFTextStripper().getText(document);
+		}
+	}
+
 }
\ No newline at end of file
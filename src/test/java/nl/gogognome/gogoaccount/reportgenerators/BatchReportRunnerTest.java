@@ -0,0 +1,102 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static nl.gogognome.gogoaccount.test.builders.LegacyDatabaseBuilder.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import nl.gogognome.gogoaccount.businessobjects.*;
+import nl.gogognome.gogoaccount.component.configuration.*;
+import nl.gogognome.gogoaccount.component.document.*;
+import nl.gogognome.gogoaccount.test.*;
+import nl.gogognome.gogoaccount.util.*;
+import nl.gogognome.lib.util.*;
+
+public class BatchReportRunnerTest extends AbstractBookkeepingTest {
+
+    private final ExecutorService executorService = ParallelTasks.newExecutorService(2);
+    private final BatchReportRunner batchReportRunner = new BatchReportRunner(textResource, documentService, bookkeepingService,
+            configurationService, invoiceService, ledgerService, partyService, executorService);
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void bindLocale() {
+        Factory.bindSingleton(Locale.class, Locale.US);
+    }
+
+    @AfterEach
+    public void shutDownExecutorService() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void run_twoDocuments_plainTextReportIsWrittenForEachDocument() throws Exception {
+        File club = createBookkeepingFile("club.h2.db", new Account("100", "Cash of the club", AccountType.ASSET));
+        File foundation = createBookkeepingFile("foundation.h2.db", new Account("101", "Bank account of the foundation", AccountType.ASSET));
+        File outputDirectory = tempDir.resolve("reports").toFile();
+        assertTrue(outputDirectory.mkdir());
+
+        BatchReportRunner.Summary summary = batchReportRunner.run(asList(club, foundation), singletonList(ReportType.PLAIN_TEXT),
+                DateUtil.createDate(2011, 12, 31), null, outputDirectory);
+
+        assertEquals(0, summary.getNrFailures());
+        assertTrue(summary.toString().startsWith("Generated 2 reports for 2 files"), summary.toString());
+        assertTrue(readReport(outputDirectory, "club-20111231.txt").contains("100 Cash of the club"));
+        assertTrue(readReport(outputDirectory, "foundation-20111231.txt").contains("101 Bank account of the foundation"));
+    }
+
+    @Test
+    public void run_missingFile_failureIsCountedAndOtherFilesAreProcessed() throws Exception {
+        File club = createBookkeepingFile("club.h2.db", new Account("100", "Cash of the club", AccountType.ASSET));
+        File missing = tempDir.resolve("missing.h2.db").toFile();
+
+        BatchReportRunner.Summary summary = batchReportRunner.run(asList(missing, club), singletonList(ReportType.PLAIN_TEXT),
+                DateUtil.createDate(2011, 12, 31), null, tempDir.toFile());
+
+        assertEquals(1, summary.getNrFailures());
+        assertTrue(summary.toString().startsWith("Generated 1 reports for 2 files"), summary.toString());
+        assertTrue(new File(tempDir.toFile(), "club-20111231.txt").isFile());
+    }
+
+    @Test
+    public void run_fileWithOlderSchema_reportIsWrittenAndFileIsNotChanged() throws Exception {
+        File legacy = tempDir.resolve("legacy.h2.db").toFile();
+        try (Connection connection = createDatabaseWithLegacyAmounts(legacy)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("UPDATE bookkeeping SET start_of_period = DATE '2011-01-01'");
+                statement.execute("INSERT INTO account (id, name, type) VALUES ('100', 'Cash of the legacy club', 'ASSET')");
+            }
+        }
+        byte[] contentsBeforeRun = Files.readAllBytes(legacy.toPath());
+
+        BatchReportRunner.Summary summary = batchReportRunner.run(singletonList(legacy), singletonList(ReportType.PLAIN_TEXT),
+                DateUtil.createDate(2011, 12, 31), null, tempDir.toFile());
+
+        assertEquals(0, summary.getNrFailures());
+        assertTrue(readReport(tempDir.toFile(), "legacy-20111231.txt").contains("100 Cash of the legacy club"));
+        assertArrayEquals(contentsBeforeRun, Files.readAllBytes(legacy.toPath()));
+    }
+
+    private File createBookkeepingFile(String name, Account account) throws Exception {
+        File file = tempDir.resolve(name).toFile();
+        Document document = documentService.createNewDocument(file, name);
+        try {
+            configurationService.createAccount(document, account);
+        } finally {
+            document.close();
+        }
+        return file;
+    }
+
+    private String readReport(File outputDirectory, String name) throws IOException {
+        return new String(Files.readAllBytes(new File(outputDirectory, name).toPath()));
+    }
+}
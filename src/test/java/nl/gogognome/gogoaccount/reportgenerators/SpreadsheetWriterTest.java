@@ -0,0 +1,62 @@
+package nl.gogognome.gogoaccount.reportgenerators;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.math.*;
+import java.nio.file.*;
+import java.util.*;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import nl.gogognome.lib.text.*;
+
+public class SpreadsheetWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void amountsInEuroAreWrittenInEuros() throws Exception {
+        File file = writeAmounts(Currency.getInstance("EUR"), 1234, -5, 0);
+
+        assertEquals(Arrays.asList(12.34, -0.05, 0.0), readAmounts(file));
+    }
+
+    @Test
+    public void amountsInCurrencyWithoutFractionDigitsAreWrittenUnchanged() throws Exception {
+        File file = writeAmounts(Currency.getInstance("JPY"), 1234, -5);
+
+        assertEquals(Arrays.asList(1234.0, -5.0), readAmounts(file));
+    }
+
+    @Test
+    public void amountsInCurrencyWithThreeFractionDigitsAreWrittenInCurrencyUnit() throws Exception {
+        File file = writeAmounts(Currency.getInstance("KWD"), 1234, -5);
+
+        assertEquals(Arrays.asList(1.234, -0.005), readAmounts(file));
+    }
+
+    private File writeAmounts(Currency currency, long... amountsInSmallestUnit) throws IOException {
+        File file = tempDir.resolve("amounts.xlsx").toFile();
+        try (SpreadsheetWriter writer = new SpreadsheetWriter(currency)) {
+            writer.startSheet("Amounts", "Amount");
+            for (long amount : amountsInSmallestUnit) {
+                writer.addRow(new Amount(BigInteger.valueOf(amount)));
+            }
+            writer.write(file);
+        }
+        return file;
+    }
+
+    private List<Double> readAmounts(File file) throws Exception {
+        List<Double> amounts = new ArrayList<>();
+        try (Workbook workbook = new XSSFWorkbook(file)) {
+            Sheet sheet = workbook.getSheet("Amounts");
+            for (int rowIndex = 1; rowIndex <= sheet.getLastRowNum(); rowIndex++) {
+                amounts.add(sheet.getRow(rowIndex).getCell(0).getNumericCellValue());
+            }
+        }
+        return amounts;
+    }
+}
@@ -9,6 +9,7 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import org.junit.jupiter.api.*;
 import nl.gogognome.dataaccess.transaction.*;
 import nl.gogognome.gogoaccount.businessobjects.*;
@@ -22,6 +23,7 @@ import nl.gogognome.gogoaccount.component.party.*;
 import nl.gogognome.gogoaccount.component.settings.*;
 import nl.gogognome.gogoaccount.services.*;
 import nl.gogognome.gogoaccount.test.builders.*;
+import nl.gogognome.gogoaccount.util.ParallelTasks;
 import nl.gogognome.helpers.*;
 import nl.gogognome.lib.swing.*;
 import nl.gogognome.lib.text.*;
@@ -32,6 +34,8 @@ import nl.gogognome.lib.util.*;
  */
 public abstract class AbstractBookkeepingTest {
 
+    private final static ExecutorService EXECUTOR_SERVICE = ParallelTasks.newExecutorService(2);
+
     protected final AmountFormat amountFormat = new AmountFormat(Locale.US, Currency.getInstance("EUR"));
     protected final SettingsService settingsService = new SettingsService();
     protected final ConfigurationService configurationService = new ConfigurationService();
@@ -45,7 +49,8 @@ public abstract class AbstractBookkeepingTest {
     protected final LedgerService ledgerService = new LedgerService(textResource, configurationService, invoiceService, partyService,
             paymentAmountAgainstDebtorAndCreditorValidator);
     protected final DirectDebitService directDebitService = new DirectDebitService(configurationService, ledgerService, partyService);
-    protected final BookkeepingService bookkeepingService = new BookkeepingService(directDebitService, ledgerService, configurationService, documentService, invoiceService, partyService);
+    protected final BookkeepingService bookkeepingService = new BookkeepingService(directDebitService, ledgerService, configurationService, documentService, invoiceService, partyService,
+            new ReportCache(), EXECUTOR_SERVICE);
 
     protected Document document;
     protected Bookkeeping bookkeeping;
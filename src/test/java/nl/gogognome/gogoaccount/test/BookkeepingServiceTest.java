@@ -95,6 +95,121 @@ public class BookkeepingServiceTest extends AbstractBookkeepingTest {
         checkTotalsOfReport(report);
     }
 
+    @Test
+    public void createReport_numberOfQueriesDoesNotDependOnNumberOfJournalEntriesAndInvoices() throws Exception {
+        QueryCounter queryCounter = QueryCounter.install(document);
+        createInvoicesAndPayments(1);
+        int nrQueriesForFewJournalEntries = countQueriesToCreateReport(queryCounter);
+
+        createInvoicesAndPayments(10);
+        int nrQueriesForManyJournalEntries = countQueriesToCreateReport(queryCounter);
+
+        assertEquals(nrQueriesForFewJournalEntries, nrQueriesForManyJournalEntries);
+    }
+
+    @Test
+    public void createReport_documentUnchanged_cachedReportIsReturned() throws Exception {
+        Report report = bookkeepingService.createReport(document, createDate(2011, 12, 31));
+
+        assertSame(report, bookkeepingService.createReport(document, createDate(2011, 12, 31)));
+        assertNotSame(report, bookkeepingService.createReport(document, createDate(2011, 6, 30)));
+    }
+
+    @Test
+    public void createReport_documentChanged_newReportReflectsChange() throws Exception {
+        Report report = bookkeepingService.createReport(document, createDate(2011, 12, 31));
+
+        createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+
+        Report newReport = bookkeepingService.createReport(document, createDate(2011, 12, 31));
+        assertNotSame(report, newReport);
+        assertAmountEquals(100, report.getAmount(cash));
+        assertAmountEquals(120, newReport.getAmount(cash));
+    }
+
+    @Test
+    public void createReport_totalsProfile_containsTotalsButNoLedgerLinesAndDebtors() throws Exception {
+        createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
+
+        Report totalsReport = bookkeepingService.createReport(document, createDate(2011, 12, 31), ReportProfile.TOTALS);
+        Report fullReport = bookkeepingService.createReport(document, createDate(2011, 12, 31), ReportProfile.FULL);
+
+        assertNotSame(totalsReport, fullReport);
+        for (Account account : fullReport.getAllAccounts()) {
+            assertEquals(fullReport.getAmount(account), totalsReport.getAmount(account), account.getId());
+            assertTrue(totalsReport.getLedgerLinesForAccount(account).isEmpty());
+        }
+        assertEquals(fullReport.getResultOfOperations(), totalsReport.getResultOfOperations());
+        assertEquals(singletonList(janPieterszoon), fullReport.getDebtors());
+        assertTrue(totalsReport.getDebtors().isEmpty());
+    }
+
+    @Test
+    public void createReport_fullReportCached_fullReportIsReturnedForSmallerProfiles() throws Exception {
+        Report fullReport = bookkeepingService.createReport(document, createDate(2011, 12, 31), ReportProfile.FULL);
+
+        assertSame(fullReport, bookkeepingService.createReport(document, createDate(2011, 12, 31), ReportProfile.TOTALS));
+        assertSame(fullReport, bookkeepingService.createReport(document, createDate(2011, 12, 31), ReportProfile.TOTALS_DEBTORS_AND_CREDITORS));
+    }
+
+    @Test
+    public void createReportWithLedgerOfAccount_ledgerLinesAndTotalsMatchFullReport() throws Exception {
+        createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
+        Date date = createDate(2011, 12, 31);
+        Report fullReport = bookkeepingService.createReport(document, date, ReportProfile.FULL);
+
+        for (Account account : asList(debtors, bankAccount, sportsHallRent)) {
+            Report report = bookkeepingService.createReportWithLedgerOfAccount(document, account, date);
+
+            assertEquals(fullReport.getLedgerLinesForAccount(account).toString(), report.getLedgerLinesForAccount(account).toString());
+            for (Account otherAccount : fullReport.getAllAccounts()) {
+                assertEquals(fullReport.getAmount(otherAccount), report.getAmount(otherAccount), otherAccount.getId());
+                if (!otherAccount.equals(account)) {
+                    assertTrue(report.getLedgerLinesForAccount(otherAccount).isEmpty());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void createReportSeries_multipleDates_reportsMatchReportsCreatedPerDate() throws Exception {
+        Invoice invoice1 = createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
+        createSalesInvoiceAndJournalEntry(createDate(2011, 4, 15), pietPuk, "Subscription 2011 {name}", subscription, debtors, 456);
+        createJournalEntry(createDate(2011, 3, 25), "p1", "Payment subscription Jan Pieterszoon", 123, bankAccount, invoice1, debtors, null);
+        createJournalEntry(createDate(2011, 5, 2), "t1", "Rent", 50, sportsHallRent, null, cash, null);
+        List<Date> dates = asList(createDate(2011, 12, 31), createDate(2011, 3, 20), createDate(2011, 3, 25), createDate(2011, 4, 30));
+
+        List<Report> reports = bookkeepingService.createReportSeries(document, dates);
+
+        assertEquals(dates.size(), reports.size());
+        for (int i=0; i<dates.size(); i++) {
+            Report expectedReport = bookkeepingService.createReport(document, dates.get(i));
+            Report actualReport = reports.get(i);
+            assertEquals(dates.get(i), actualReport.getEndDate());
+            for (Account account : expectedReport.getAllAccounts()) {
+                assertEquals(expectedReport.getAmount(account), actualReport.getAmount(account), "account " + account.getId() + " at " + dates.get(i));
+            }
+            assertEquals(expectedReport.getResultOfOperations(), actualReport.getResultOfOperations());
+            assertEquals(expectedReport.getDebtors(), actualReport.getDebtors());
+            assertEquals(expectedReport.getTotalDebtors(), actualReport.getTotalDebtors());
+            assertEquals(expectedReport.getCreditors(), actualReport.getCreditors());
+        }
+    }
+
+    private void createInvoicesAndPayments(int nrInvoicesPerParty) throws ServiceException {
+        for (int i=0; i<nrInvoicesPerParty; i++) {
+            Invoice invoice = createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
+            createJournalEntry(createDate(2011, 3, 25), "p" + invoice.getId(), "Payment", 100, bankAccount, invoice, debtors, null);
+            createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), pietPuk, "Subscription 2011 {name}", subscription, debtors, 456);
+        }
+    }
+
+    private int countQueriesToCreateReport(QueryCounter queryCounter) throws ServiceException {
+        queryCounter.reset();
+        bookkeepingService.createReport(document, createDate(2011, 12, 31));
+        return queryCounter.getNrQueries();
+    }
+
     @Test
     public void testReportApril30_2011() throws Exception {
         Invoice invoice1 = createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
@@ -596,6 +711,34 @@ public class BookkeepingServiceTest extends AbstractBookkeepingTest {
         }
     }
 
+    @Test
+    public void createMultiYearComparison_twoYears_amountsOfBothYearsAreSideBySide() throws Exception {
+        File newBookkeepingFile = File.createTempFile("test", "h2.db");
+        try {
+            createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011 {name}", subscription, debtors, 123);
+            String description2011 = configurationService.getBookkeeping(document).getDescription();
+            Document newDocument = closeBookkeeping(newBookkeepingFile, createDate(2012, 1, 1));
+
+            MultiYearComparison comparison = bookkeepingService.createMultiYearComparisonOfDocuments(asList(newDocument, document));
+
+            Report report2011 = bookkeepingService.createReport(document, createDate(2011, 12, 31));
+            Report report2012 = bookkeepingService.createReport(newDocument, createDate(2012, 12, 31));
+            assertEquals(asList(description2011, "new bookkeeping"), comparison.getDescriptions());
+            List<MultiYearComparison.Row> rows = new ArrayList<>(comparison.getAssets());
+            rows.addAll(comparison.getLiabilities());
+            rows.addAll(comparison.getExpenses());
+            rows.addAll(comparison.getRevenues());
+            assertEquals(report2012.getAllAccounts().size(), rows.size());
+            for (MultiYearComparison.Row row : rows) {
+                assertEquals(asList(report2011.getAmount(row.getAccount()), report2012.getAmount(row.getAccount())), row.getAmounts(),
+                        row.getAccount().getId());
+            }
+            assertEquals(asList(report2011.getResultOfOperations(), report2012.getResultOfOperations()), comparison.getResultsOfOperations());
+        } finally {
+            deleteNewBookkeeping(newBookkeepingFile);
+        }
+    }
+
     private Document closeBookkeeping(File newBookkeepingFile, Date startOfNewBookkeeping) throws ServiceException {
         return bookkeepingService.closeBookkeeping(document, newBookkeepingFile, "new bookkeeping", startOfNewBookkeeping, equity);
     }
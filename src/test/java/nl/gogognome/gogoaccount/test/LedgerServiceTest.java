@@ -8,10 +8,15 @@ import java.util.*;
 import org.junit.jupiter.api.*;
 import nl.gogognome.gogoaccount.businessobjects.*;
 import nl.gogognome.gogoaccount.component.configuration.*;
+import nl.gogognome.gogoaccount.component.document.*;
 import nl.gogognome.gogoaccount.component.invoice.*;
 import nl.gogognome.gogoaccount.component.ledger.*;
 import nl.gogognome.gogoaccount.services.*;
+import nl.gogognome.gogoaccount.test.builders.*;
+import nl.gogognome.lib.collections.*;
+import nl.gogognome.lib.text.Amount;
 import nl.gogognome.lib.util.*;
+import nl.gogognome.textsearch.criteria.*;
 
 public class LedgerServiceTest extends AbstractBookkeepingTest {
 
@@ -208,5 +213,258 @@ public class LedgerServiceTest extends AbstractBookkeepingTest {
         assertEquals("resource-id: LedgerService.creditorAmountNotEqualToAmountPaidForPurchaseInvoice", exception.getMessage());
     }
 
+    @Test
+    public void findFormattedJournalEntries_journalEntryWithPayment_containsInvoiceAndParty() throws Exception {
+        Invoice invoice = createSalesInvoiceAndJournalEntry(createDate(2011, 3, 15), janPieterszoon, "Subscription 2011", subscription, debtors, 123);
+        createJournalEntry(createDate(2011, 3, 25), "p1", "Payment subscription Jan Pieterszoon", 123, bankAccount, invoice, debtors, null);
+
+        List<FormattedJournalEntry> formattedJournalEntries = ledgerService.findFormattedJournalEntries(document, new Parser().parse("p1"));
+
+        assertEquals(1, formattedJournalEntries.size());
+        FormattedJournalEntry formattedJournalEntry = formattedJournalEntries.get(0);
+        assertEquals("p1", formattedJournalEntry.id);
+        assertEquals(invoice.getId() + " - Subscription 2011 - " + amountFormat.formatAmountWithoutCurrency(AmountBuilder.build(123).toBigInteger()),
+                formattedJournalEntry.invoiceDescription);
+        assertEquals(janPieterszoon.getId() + " - Jan Pieterszoon", formattedJournalEntry.party);
+    }
+
+    @Test
+    public void findFormattedJournalEntries_numberOfQueriesDoesNotDependOnNumberOfJournalEntries() throws Exception {
+        QueryCounter queryCounter = QueryCounter.install(document);
+        int nrQueriesForFewJournalEntries = countQueriesToFindFormattedJournalEntries(queryCounter);
+
+        for (int i=0; i<25; i++) {
+            Invoice invoice = createSalesInvoiceAndJournalEntry(someDate, pietPuk, "Subscription " + i, subscription, debtors, 10 + i);
+            createJournalEntry(someDate, "p" + i, "Payment " + i, 10 + i, bankAccount, invoice, debtors, null);
+        }
+        int nrQueriesForManyJournalEntries = countQueriesToFindFormattedJournalEntries(queryCounter);
+
+        assertEquals(nrQueriesForFewJournalEntries, nrQueriesForManyJournalEntries);
+    }
+
+    @Test
+    public void getAccountBalance_journalEntryAdded_balanceChangesFromDateOfJournalEntry() throws Exception {
+        createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+
+        assertAmountEquals(100, ledgerService.getAccountBalance(document, cash, createDate(2011, 3, 24)));
+        assertAmountEquals(120, ledgerService.getAccountBalance(document, cash, createDate(2011, 3, 25)));
+        assertAmountEquals(280, ledgerService.getAccountBalance(document, bankAccount, createDate(2011, 12, 31)));
+        assertAmountEquals(400, ledgerService.getAccountBalance(document, equity, createDate(2011, 12, 31)));
+    }
+
+    @Test
+    public void getAccountBalance_journalEntryUpdatedWithOtherDateAndAmount_balanceReflectsUpdatedJournalEntry() throws Exception {
+        JournalEntry journalEntry = createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+
+        journalEntry.setDate(createDate(2011, 6, 1));
+        List<JournalEntryDetail> journalEntryDetails = Arrays.asList(
+                JournalEntryDetailBuilder.debet().amount("30").account(cash.getId()).build(),
+                JournalEntryDetailBuilder.credit().amount("30").account(bankAccount.getId()).build());
+        ledgerService.updateJournalEntry(document, journalEntry, journalEntryDetails);
+
+        assertAmountEquals(100, ledgerService.getAccountBalance(document, cash, createDate(2011, 3, 25)));
+        assertAmountEquals(130, ledgerService.getAccountBalance(document, cash, createDate(2011, 6, 1)));
+        assertAmountEquals(270, ledgerService.getAccountBalance(document, bankAccount, createDate(2011, 6, 1)));
+    }
+
+    @Test
+    public void getAccountBalance_journalEntryRemoved_balanceIsRestored() throws Exception {
+        JournalEntry journalEntry = createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+
+        ledgerService.removeJournalEntry(document, journalEntry);
+
+        assertAmountEquals(100, ledgerService.getAccountBalance(document, cash, createDate(2011, 12, 31)));
+        assertAmountEquals(300, ledgerService.getAccountBalance(document, bankAccount, createDate(2011, 12, 31)));
+    }
+
+    @Test
+    public void rebuildAccountBalances_afterMutations_balancesAreUnchanged() throws Exception {
+        createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 3, 25), "t2", "Rent", 15, sportsHallRent, null, cash, null);
+        createJournalEntry(createDate(2011, 4, 2), "t3", "Deposit", 50, bankAccount, null, cash, null);
+
+        ledgerService.rebuildAccountBalances(document);
+
+        assertAmountEquals(105, ledgerService.getAccountBalance(document, cash, createDate(2011, 3, 25)));
+        assertAmountEquals(55, ledgerService.getAccountBalance(document, cash, createDate(2011, 4, 2)));
+        assertAmountEquals(330, ledgerService.getAccountBalance(document, bankAccount, createDate(2011, 4, 2)));
+        assertAmountEquals(15, ledgerService.getAccountBalance(document, sportsHallRent, createDate(2011, 12, 31)));
+    }
+
+    @Test
+    public void getAccountBalances_afterMutations_balancesMatchBalancesPerAccount() throws Exception {
+        createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 3, 25), "t2", "Rent", 15, sportsHallRent, null, cash, null);
+        createJournalEntry(createDate(2011, 4, 2), "t3", "Deposit", 50, bankAccount, null, cash, null);
+
+        Map<String, Amount> accountIdToBalance = ledgerService.getAccountBalances(document, createDate(2011, 3, 25));
+
+        assertAmountEquals(105, accountIdToBalance.get(cash.getId()));
+        assertAmountEquals(280, accountIdToBalance.get(bankAccount.getId()));
+        assertAmountEquals(400, accountIdToBalance.get(equity.getId()));
+        assertAmountEquals(15, accountIdToBalance.get(sportsHallRent.getId()));
+        for (Account account : configurationService.findAllAccounts(document)) {
+            if (accountIdToBalance.containsKey(account.getId())) {
+                assertEquals(ledgerService.getAccountBalance(document, account, createDate(2011, 4, 2)),
+                        ledgerService.getAccountBalances(document, createDate(2011, 4, 2)).get(account.getId()));
+            }
+        }
+    }
+
+    @Test
+    public void addJournalEntries_multipleJournalEntries_journalEntriesAndDetailsAreStored() throws Exception {
+        List<JournalEntry> createdJournalEntries = ledgerService.addJournalEntries(document, Arrays.asList(
+                buildJournalEntryWithDetails(createDate(2011, 3, 25), "t1", 20, cash, bankAccount),
+                buildJournalEntryWithDetails(createDate(2011, 4, 2), "t2", 15, sportsHallRent, cash)));
+
+        assertEquals(2, createdJournalEntries.size());
+        assertEquals("t1", createdJournalEntries.get(0).getId());
+        assertEquals("t2", createdJournalEntries.get(1).getId());
+        List<JournalEntryDetail> details = findJournalEntryDetails("t2");
+        assertEquals(2, details.size());
+        assertEquals(sportsHallRent.getId(), details.get(0).getAccountId());
+        assertAmountEquals(15, details.get(0).getAmount());
+        assertTrue(details.get(0).isDebet());
+        assertEquals(cash.getId(), details.get(1).getAccountId());
+        assertFalse(details.get(1).isDebet());
+        assertAmountEquals(105, ledgerService.getAccountBalance(document, cash, createDate(2011, 12, 31)));
+    }
+
+    @Test
+    public void addJournalEntries_oneJournalEntryNotInBalance_noJournalEntryIsStored() throws Exception {
+        JournalEntryWithDetails journalEntryNotInBalance = new JournalEntryWithDetails(JournalEntryBuilder.build(someDate, "not in balance"),
+                Arrays.asList(JournalEntryBuilder.debet(10, cash), JournalEntryBuilder.credit(20, bankAccount)));
 
+        assertThrows(DebetAndCreditAmountsDifferException.class, () -> ledgerService.addJournalEntries(document, Arrays.asList(
+                buildJournalEntryWithDetails(someDate, "t1", 20, cash, bankAccount),
+                journalEntryNotInBalance)));
+
+        assertNull(findJournalEntry("t1"));
+    }
+
+    @Test
+    public void addJournalEntries_numberOfQueriesDoesNotDependOnNumberOfJournalEntries() throws Exception {
+        QueryCounter queryCounter = QueryCounter.install(document);
+        ledgerService.addJournalEntries(document, singletonList(buildJournalEntryWithDetails(someDate, "first", 1, cash, bankAccount)));
+        int nrQueriesForFewJournalEntries = countQueriesToAddJournalEntries(queryCounter, 2);
+        int nrQueriesForManyJournalEntries = countQueriesToAddJournalEntries(queryCounter, 100);
+
+        assertEquals(nrQueriesForFewJournalEntries, nrQueriesForManyJournalEntries);
+    }
+
+    @Test
+    public void addJournalEntries_multipleDatesAndAccounts_dailyMutationsMatchLedgerSnapshot() throws Exception {
+        ledgerService.addJournalEntries(document, Arrays.asList(
+                buildJournalEntryWithDetails(someDate, "t1", 10, cash, bankAccount),
+                buildJournalEntryWithDetails(addDays(someDate, 1), "t2", 20, sportsHallRent, cash),
+                buildJournalEntryWithDetails(someDate, "t3", 30, cash, bankAccount),
+                buildJournalEntryWithDetails(addDays(someDate, 3), "t4", 40, bankAccount, cash)));
+        ledgerService.addJournalEntries(document, singletonList(buildJournalEntryWithDetails(someDate, "t5", 50, cash, sportsHallRent)));
+
+        List<Date> dates = Arrays.asList(addDays(someDate, -1), someDate, addDays(someDate, 1), addDays(someDate, 3));
+        List<Account> accounts = Arrays.asList(cash, bankAccount, sportsHallRent);
+        Map<Date, List<Amount>> dateToBalancesFromDailyMutations = new HashMap<>();
+        for (Date date : dates) {
+            List<Amount> balances = new ArrayList<>();
+            for (Account account : accounts) {
+                balances.add(ledgerService.getAccountBalance(document, account, date));
+            }
+            dateToBalancesFromDailyMutations.put(date, balances);
+        }
+
+        for (Date date : dates) {
+            Map<String, Amount> accountIdToBalance = ledgerService.getAccountBalances(document, date);
+            for (int i=0; i<accounts.size(); i++) {
+                assertEquals(accountIdToBalance.getOrDefault(accounts.get(i).getId(), Amount.ZERO), dateToBalancesFromDailyMutations.get(date).get(i));
+            }
+        }
+    }
+
+    @Test
+    public void getLedgerSnapshot_documentUnchanged_snapshotIsReused() throws Exception {
+        LedgerSnapshot snapshot = ledgerService.getLedgerSnapshot(document);
+
+        assertSame(snapshot, ledgerService.getLedgerSnapshot(document));
+        assertEquals(3, snapshot.size());
+    }
+
+    @Test
+    public void getLedgerSnapshot_journalEntryAdded_newSnapshotContainsJournalEntry() throws Exception {
+        LedgerSnapshot oldSnapshot = ledgerService.getLedgerSnapshot(document);
+
+        createJournalEntry(createDate(2011, 3, 25), "t1", "Withdrawal", 20, cash, null, bankAccount, null);
+
+        LedgerSnapshot newSnapshot = ledgerService.getLedgerSnapshot(document);
+        assertNotSame(oldSnapshot, newSnapshot);
+        assertEquals(5, newSnapshot.size());
+        assertEquals(12000, newSnapshot.getDebetBalance(cash.getId(), createDate(2011, 3, 25)));
+        assertEquals(10000, newSnapshot.getDebetBalance(cash.getId(), createDate(2011, 3, 24)));
+    }
+
+    private int countQueriesToAddJournalEntries(QueryCounter queryCounter, int nrJournalEntries) throws ServiceException {
+        List<JournalEntryWithDetails> journalEntries = new ArrayList<>();
+        for (int i=0; i<nrJournalEntries; i++) {
+            Account debetAccount = i % 2 == 0 ? cash : sportsHallRent;
+            Account creditAccount = i % 2 == 0 ? bankAccount : cash;
+            journalEntries.add(buildJournalEntryWithDetails(addDays(someDate, i), "t" + i, 1 + i, debetAccount, creditAccount));
+        }
+        queryCounter.reset();
+        ledgerService.addJournalEntries(document, journalEntries);
+        return queryCounter.getNrQueries();
+    }
+
+    private JournalEntryWithDetails buildJournalEntryWithDetails(Date date, String id, int amount, Account debetAccount, Account creditAccount) {
+        JournalEntry journalEntry = JournalEntryBuilder.build(date, "Journal entry " + id);
+        journalEntry.setId(id);
+        return new JournalEntryWithDetails(journalEntry, Arrays.asList(
+                JournalEntryBuilder.debet(amount, debetAccount), JournalEntryBuilder.credit(amount, creditAccount)));
+    }
+
+    @Test
+    public void findJournalEntries_dateRange_returnsOnlyJournalEntriesInRange() throws Exception {
+        createJournalEntry(createDate(2011, 3, 24), "t1", "Before range", 10, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 3, 25), "t2", "First day of range", 10, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 4, 30), "t3", "Last day of range", 10, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 5, 1), "t4", "After range", 10, cash, null, bankAccount, null);
+
+        List<JournalEntry> journalEntries = ledgerService.findJournalEntries(document, createDate(2011, 3, 25), createDate(2011, 4, 30));
+
+        assertEquals("[t2, t3]", journalEntries.stream().map(JournalEntry::getId).toList().toString());
+        DefaultValueMap<Long, List<JournalEntryDetail>> journalEntryIdToDetails =
+                ledgerService.getJournalEntryIdToDetailsMap(document, createDate(2011, 3, 25), createDate(2011, 4, 30));
+        assertEquals(2, journalEntryIdToDetails.get(journalEntries.get(0).getUniqueId()).size());
+        assertEquals(0, journalEntryIdToDetails.get(findJournalEntry("t1").getUniqueId()).size());
+    }
+
+    @Test
+    public void forEachJournalEntry_endDate_visitsJournalEntriesUpToEndDateWithDetails() throws Exception {
+        createJournalEntry(createDate(2011, 4, 30), "t2", "Second", 10, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 3, 25), "t1", "First", 20, sportsHallRent, null, cash, null);
+        createJournalEntry(createDate(2011, 5, 1), "t3", "After end date", 10, cash, null, bankAccount, null);
+
+        List<String> visitedJournalEntries = new ArrayList<>();
+        ledgerService.forEachJournalEntry(document, null, createDate(2011, 4, 30),
+                (journalEntry, details) -> visitedJournalEntries.add(journalEntry.getId() + ":" + details.size()));
+
+        assertEquals("[start:3, t1:2, t2:2]", visitedJournalEntries.toString());
+    }
+
+    @Test
+    public void forEachJournalEntryDetailOfAccount_visitsDetailsOfAccountOrderedByDate() throws Exception {
+        createJournalEntry(createDate(2011, 4, 30), "t2", "Second", 10, cash, null, bankAccount, null);
+        createJournalEntry(createDate(2011, 3, 25), "t1", "First", 20, sportsHallRent, null, cash, null);
+        createJournalEntry(createDate(2011, 5, 1), "t3", "Other account", 10, sportsHallRent, null, bankAccount, null);
+
+        List<String> visitedDetails = new ArrayList<>();
+        ledgerService.forEachJournalEntryDetailOfAccount(document, cash.getId(),
+                (journalEntry, detail) -> visitedDetails.add(journalEntry.getId() + ":" + (detail.isDebet() ? "D" : "C")));
+
+        assertEquals("[start:D, t1:C, t2:D]", visitedDetails.toString());
+    }
+
+    private int countQueriesToFindFormattedJournalEntries(QueryCounter queryCounter) throws ServiceException {
+        queryCounter.reset();
+        ledgerService.findFormattedJournalEntries(document, null);
+        return queryCounter.getNrQueries();
+    }
 }
@@ -0,0 +1,41 @@
+package nl.gogognome.gogoaccount.test.builders;
+
+import nl.gogognome.dataaccess.migrations.DatabaseMigratorDAO;
+import nl.gogognome.dataaccess.migrations.Migration;
+import nl.gogognome.dataaccess.transaction.CompositeDatasourceTransaction;
+import nl.gogognome.gogoaccount.services.ServiceTransaction;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+
+public class LegacyDatabaseBuilder {
+
+    /**
+     * Creates a database with the schema of the migrations that precede the amounts in cents.
+     * @param file the database file; its name must end with .h2.db
+     * @return a connection to the database; the caller must close it
+     */
+    public static Connection createDatabaseWithLegacyAmounts(File file) throws Exception {
+        String dataSourceId = UUID.randomUUID().toString();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(getJdbcUrl(file));
+        CompositeDatasourceTransaction.registerDataSource(dataSourceId, dataSource);
+        Connection connection = dataSource.getConnection();
+        ServiceTransaction.withoutResult(() -> {
+            DatabaseMigratorDAO databaseMigratorDAO = new DatabaseMigratorDAO(dataSourceId);
+            List<Migration> migrations = databaseMigratorDAO.loadMigrationsFromResource("/database/_migrations.txt");
+            databaseMigratorDAO.applyMigrations(migrations.stream().filter(m -> m.getId() < 140).collect(toList()));
+        });
+        return connection;
+    }
+
+    public static String getJdbcUrl(File file) {
+        String path = file.getAbsolutePath();
+        return "jdbc:h2:file:" + path.substring(0, path.length() - ".h2.db".length());
+    }
+}
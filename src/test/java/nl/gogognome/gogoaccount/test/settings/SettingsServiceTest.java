@@ -1,6 +1,8 @@
 package nl.gogognome.gogoaccount.test.settings;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
 import org.junit.jupiter.api.*;
 import nl.gogognome.gogoaccount.component.settings.*;
 import nl.gogognome.gogoaccount.services.*;
@@ -39,4 +41,42 @@ public class SettingsServiceTest extends AbstractBookkeepingTest {
         settingsService.save(document, "someKey", "some new value");
         assertEquals("some new value", settingsService.findValueForSetting(document, "someKey"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void reserveIdsReturnsConsecutiveIdsAndNextReservationContinuesAfterLastId() throws ServiceException {
+        assertEquals(List.of("P001", "P002", "P003"), toList(settingsService.reserveIds(document, "someKey", "Pnnn", 3)));
+        assertEquals(List.of("P004"), toList(settingsService.reserveIds(document, "someKey", "Pnnn", 1)));
+        assertEquals("P005", settingsService.findNextId(document, "someKey", "Pnnn"));
+    }
+
+    @Test
+    public void reservingZeroIdsDoesNotChangeSetting() throws ServiceException {
+        assertFalse(settingsService.reserveIds(document, "someKey", "Pnnn", 0).hasNext());
+        assertNull(settingsService.findValueForSetting(document, "someKey"));
+    }
+
+    @Test
+    public void concurrentReservationsGetDifferentIds() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i=0; i<20; i++) {
+                futures.add(executorService.submit(() -> toList(settingsService.reserveIds(document, "someKey", "nnnn", 5))));
+            }
+            Set<String> ids = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                ids.addAll(future.get());
+            }
+            assertEquals(100, ids.size());
+            assertEquals("0100", settingsService.findValueForSetting(document, "someKey"));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static List<String> toList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
@@ -34,4 +34,18 @@ public class AmountInDatabaseTest {
         assertEquals("1234", AmountInDatabase.format(new Amount("1234")));
         assertEquals("-1234", AmountInDatabase.format(new Amount("-1234")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fromCents() {
+        assertNull(AmountInDatabase.fromCents(null));
+        assertEquals(new Amount("1234"), AmountInDatabase.fromCents(1234L));
+        assertEquals(new Amount("-1234"), AmountInDatabase.fromCents(-1234L));
+    }
+
+    @Test
+    public void toCents() {
+        assertNull(AmountInDatabase.toCents(null));
+        assertEquals(1234L, AmountInDatabase.toCents(new Amount("1234")));
+        assertEquals(-1234L, AmountInDatabase.toCents(new Amount("-1234")));
+    }
+}
@@ -0,0 +1,50 @@
+package nl.gogognome.lib.text;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigInteger;
+import org.junit.jupiter.api.*;
+
+public class AmountAccumulatorTest {
+
+    @Test
+    public void newAccumulatorIsZero() {
+        AmountAccumulator accumulator = new AmountAccumulator();
+
+        assertTrue(accumulator.isZero());
+        assertEquals(Amount.ZERO, accumulator.toAmount());
+    }
+
+    @Test
+    public void addAndSubtractAmounts() {
+        AmountAccumulator accumulator = new AmountAccumulator()
+                .add(new Amount(100))
+                .add(new Amount(250))
+                .subtract(new Amount(50))
+                .addCents(-300);
+
+        assertTrue(accumulator.isZero());
+        accumulator.add(new Amount(1234));
+        assertEquals(new Amount(1234), accumulator.toAmount());
+    }
+
+    @Test
+    public void sumThatDoesNotFitInLongFallsBackToBigInteger() {
+        AmountAccumulator accumulator = new AmountAccumulator()
+                .add(new Amount(Long.MAX_VALUE))
+                .add(new Amount(Long.MAX_VALUE));
+
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.TWO), accumulator.toAmount().toBigInteger());
+
+        accumulator.subtract(new Amount(Long.MAX_VALUE));
+        assertEquals(new Amount(Long.MAX_VALUE), accumulator.toAmount());
+    }
+
+    @Test
+    public void reset() {
+        AmountAccumulator accumulator = new AmountAccumulator().add(new Amount(Long.MAX_VALUE)).add(new Amount(1));
+
+        accumulator.reset();
+
+        assertTrue(accumulator.isZero());
+    }
+}
@@ -0,0 +1,55 @@
+package nl.gogognome.lib.text;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.math.BigInteger;
+import org.junit.jupiter.api.*;
+
+public class AmountTest {
+
+    private final BigInteger maxLong = BigInteger.valueOf(Long.MAX_VALUE);
+    private final BigInteger minLong = BigInteger.valueOf(Long.MIN_VALUE);
+
+    @Test
+    public void arithmeticWithinRangeOfLong() {
+        assertEquals(new Amount(579), new Amount(123).add(new Amount(456)));
+        assertEquals(new Amount(-333), new Amount(123).subtract(new Amount(456)));
+        assertEquals(new Amount(369), new Amount(123).multiply(3));
+        assertEquals(new Amount(41), new Amount(123).divide(3));
+        assertEquals(new Amount(-123), new Amount(123).negate());
+    }
+
+    @Test
+    public void addAndSubtractOverflowToBigInteger() {
+        Amount max = new Amount(Long.MAX_VALUE);
+        Amount min = new Amount(Long.MIN_VALUE);
+
+        assertEquals(maxLong.add(BigInteger.ONE), max.add(new Amount(1)).toBigInteger());
+        assertEquals(minLong.subtract(BigInteger.ONE), min.subtract(new Amount(1)).toBigInteger());
+        assertEquals(new Amount(Long.MAX_VALUE), max.add(new Amount(1)).subtract(new Amount(1)));
+    }
+
+    @Test
+    public void multiplyAndNegateOverflowToBigInteger() {
+        assertEquals(maxLong.multiply(BigInteger.TWO), new Amount(Long.MAX_VALUE).multiply(2).toBigInteger());
+        assertEquals(minLong.negate(), new Amount(Long.MIN_VALUE).negate().toBigInteger());
+        assertEquals(minLong.negate(), new Amount(Long.MIN_VALUE).divide(-1).toBigInteger());
+    }
+
+    @Test
+    public void equalsAndHashCodeDoNotDependOnConstructor() {
+        assertEquals(new Amount(1234), new Amount("1234"));
+        assertEquals(new Amount(1234), new Amount(BigInteger.valueOf(1234)));
+        assertEquals(new Amount(1234).hashCode(), new Amount("1234").hashCode());
+        assertEquals(new Amount(maxLong.add(BigInteger.ONE)), new Amount(Long.MAX_VALUE).add(new Amount(1)));
+    }
+
+    @Test
+    public void compareToAndSignum() {
+        assertTrue(new Amount(1).compareTo(new Amount(2)) < 0);
+        assertTrue(new Amount(maxLong.add(BigInteger.ONE)).compareTo(new Amount(Long.MAX_VALUE)) > 0);
+        assertTrue(new Amount(1).isPositive());
+        assertTrue(new Amount(-1).isNegative());
+        assertTrue(Amount.ZERO.isZero());
+        assertTrue(new Amount(minLong.subtract(BigInteger.ONE)).isNegative());
+    }
+}